@@ -92,7 +92,47 @@ public class CLIParser implements Loggable {
                 .argName("type")
                 .hasArg()
                 .required(false)
-                .desc("Specify the type of data in dataFile [rawData/change]")
+                .desc("Specify the type of data in dataFile [rawData/change/changeLog]")
+                .build();
+
+        Option opt_ps = Option.builder("parser")
+                .argName("parser")
+                .hasArg()
+                .required(false)
+                .desc("Parse data with the given parser [fastjson/streaming]")
+                .build();
+
+        Option opt_rd = Option.builder("reader")
+                .argName("reader")
+                .hasArg()
+                .required(false)
+                .desc("Read data file with the given reader [buffered/mmap] (offline mode only)")
+                .build();
+
+        Option opt_pl = Option.builder("pipeline")
+                .argName("num")
+                .hasArg()
+                .required(false)
+                .desc("Read and parse data with the given number of parser threads in a pipeline (offline mode only)")
+                .build();
+
+        Option opt_mt = Option.builder("matchers")
+                .argName("num")
+                .hasArg()
+                .required(false)
+                .desc("Evaluate function matchers of a context with the given number of matcher threads (offline mode only)")
+                .build();
+
+        Option opt_oh = Option.builder("offheap")
+                .required(false)
+                .desc("Keep field values of activated contexts off-heap (offline mode and rawData only)")
+                .build();
+
+        Option opt_bc = Option.builder("bfunccache")
+                .argName("num")
+                .hasArg()
+                .required(false)
+                .desc("Cache results of bfunctions, keeping at most the given number of results")
                 .build();
 
         Options options = new Options();
@@ -105,6 +145,12 @@ public class CLIParser implements Loggable {
         options.addOption(opt_mf);
         options.addOption(opt_bf);
         options.addOption(opt_dt);
+        options.addOption(opt_ps);
+        options.addOption(opt_rd);
+        options.addOption(opt_pl);
+        options.addOption(opt_mt);
+        options.addOption(opt_oh);
+        options.addOption(opt_bc);
         options.addOption(opt_mg);
         options.addOption(opt_oi);
 
@@ -134,6 +180,11 @@ java -jar INFUSE.jar
 -mfuncs mfuncs.class
 -data data.txt
 -datatype rawData
+-parser streaming
+-reader mmap
+-pipeline 4
+-matchers 4
+-offheap
 -mg
 -incs incs.json
 //-fixeddata fiexeddata.txt
@@ -182,9 +233,8 @@ java -jar INFUSE.jar
             // bfunc file
             String bfuncFile = null;
             if(!cli.hasOption("bfuncs")){
-                logger.error("\033[91m" + "No specified bfunction file, please use option \"-bfuncs\"" + "\033[0m");
-                logger.info("\033[92m" + "Use option \"-help\" for more information"  + "\033[0m");
-                System.exit(1);
+                //rules may only use built-in predicates
+                logger.info("No specified bfunction file");
             }
             else{
                 bfuncFile = cli.getOptionValue("bfuncs");
@@ -234,17 +284,117 @@ java -jar INFUSE.jar
             // data type
             String dataType = null;
             if(!cli.hasOption("datatype")){
-                logger.error("\033[91m" + "No specified data type, please use option \"-datatype\", available datatypes: [rawData/change]" + "\033[0m");
+                logger.error("\033[91m" + "No specified data type, please use option \"-datatype\", available datatypes: [rawData/change/changeLog]" + "\033[0m");
                 logger.info("\033[92m" + "Use option \"-help\" for more information"  + "\033[0m");
                 System.exit(1);
             }
             else{
                 dataType = cli.getOptionValue("datatype");
-                if(!dataType.equals("rawData") && !dataType.equals("change")){
-                    logger.error("\033[91m" + "The data type is illegal, available datatypes: [rawData/change]" + "\033[0m");
+                if(!dataType.equals("rawData") && !dataType.equals("change") && !dataType.equals("changeLog")){
+                    logger.error("\033[91m" + "The data type is illegal, available datatypes: [rawData/change/changeLog]" + "\033[0m");
+                    logger.info("\033[92m" + "Use option \"-help\" for more information"  + "\033[0m");
+                    System.exit(1);
+                }
+                if(dataType.equals("changeLog") && !checkingMode.equalsIgnoreCase("offline")){
+                    logger.error("\033[91m" + "The data type changeLog is only available in offline mode" + "\033[0m");
+                    logger.info("\033[92m" + "Use option \"-help\" for more information"  + "\033[0m");
+                    System.exit(1);
+                }
+            }
+            // parser
+            String parserType = null;
+            if(!cli.hasOption("parser")){
+                parserType = "fastjson";
+            }
+            else{
+                parserType = cli.getOptionValue("parser");
+                if(!parserType.equals("fastjson") && !parserType.equals("streaming")){
+                    logger.error("\033[91m" + "The parser is illegal, available parsers: [fastjson/streaming]" + "\033[0m");
+                    logger.info("\033[92m" + "Use option \"-help\" for more information"  + "\033[0m");
+                    System.exit(1);
+                }
+            }
+            logger.info(String.format("The data parser is \"%s\"", parserType));
+            // reader [offline]
+            String readerType = "buffered";
+            if(cli.hasOption("reader")){
+                if(!checkingMode.equalsIgnoreCase("offline")){
+                    logger.error("\033[91m" + "Cannot specify reader in online mode" + "\033[0m");
+                    logger.info("\033[92m" + "Use option \"-help\" for more information"  + "\033[0m");
+                    System.exit(1);
+                }
+                readerType = cli.getOptionValue("reader");
+                if(!readerType.equals("buffered") && !readerType.equals("mmap")){
+                    logger.error("\033[91m" + "The reader is illegal, available readers: [buffered/mmap]" + "\033[0m");
+                    logger.info("\033[92m" + "Use option \"-help\" for more information"  + "\033[0m");
+                    System.exit(1);
+                }
+                logger.info(String.format("The data reader is \"%s\"", readerType));
+            }
+            // pipeline [offline]
+            int pipelineNum = 0;
+            if(cli.hasOption("pipeline")){
+                if(!checkingMode.equalsIgnoreCase("offline")){
+                    logger.error("\033[91m" + "Cannot specify pipeline in online mode" + "\033[0m");
+                    logger.info("\033[92m" + "Use option \"-help\" for more information"  + "\033[0m");
+                    System.exit(1);
+                }
+                try{
+                    pipelineNum = Integer.parseInt(cli.getOptionValue("pipeline"));
+                } catch (NumberFormatException e){
+                    pipelineNum = -1;
+                }
+                if(pipelineNum <= 0){
+                    logger.error("\033[91m" + "The number of parser threads in pipeline should be a positive integer" + "\033[0m");
+                    logger.info("\033[92m" + "Use option \"-help\" for more information"  + "\033[0m");
+                    System.exit(1);
+                }
+                logger.info(String.format("Pipelined ingestion is on with %d parser threads", pipelineNum));
+            }
+            // matchers [offline]
+            int matcherNum = 0;
+            if(cli.hasOption("matchers")){
+                if(!checkingMode.equalsIgnoreCase("offline")){
+                    logger.error("\033[91m" + "Cannot specify matchers in online mode" + "\033[0m");
+                    logger.info("\033[92m" + "Use option \"-help\" for more information"  + "\033[0m");
+                    System.exit(1);
+                }
+                try{
+                    matcherNum = Integer.parseInt(cli.getOptionValue("matchers"));
+                } catch (NumberFormatException e){
+                    matcherNum = -1;
+                }
+                if(matcherNum <= 0){
+                    logger.error("\033[91m" + "The number of matcher threads should be a positive integer" + "\033[0m");
+                    logger.info("\033[92m" + "Use option \"-help\" for more information"  + "\033[0m");
+                    System.exit(1);
+                }
+                logger.info(String.format("Parallel pattern matching is on with %d matcher threads", matcherNum));
+            }
+            // offheap [offline, rawData]
+            boolean isOffHeap = cli.hasOption("offheap");
+            if(isOffHeap){
+                if(!checkingMode.equalsIgnoreCase("offline") || !dataType.equals("rawData")){
+                    logger.error("\033[91m" + "Off-heap contexts are only available in offline mode with rawData" + "\033[0m");
+                    logger.info("\033[92m" + "Use option \"-help\" for more information"  + "\033[0m");
+                    System.exit(1);
+                }
+                logger.info("Off-heap contexts are on");
+            }
+            // bfunccache
+            int bfuncCacheSize = 0;
+            if(cli.hasOption("bfunccache")){
+                try{
+                    bfuncCacheSize = Integer.parseInt(cli.getOptionValue("bfunccache"));
+                } catch (NumberFormatException e){
+                    bfuncCacheSize = -1;
+                }
+                if(bfuncCacheSize <= 0){
+                    logger.error("\033[91m" + "The size of bfunc cache should be a positive integer" + "\033[0m");
                     logger.info("\033[92m" + "Use option \"-help\" for more information"  + "\033[0m");
                     System.exit(1);
                 }
+                logger.info(String.format("Bfunc cache is on with %d results at most", bfuncCacheSize));
             }
             // isMG or not
             boolean isMG = cli.hasOption("mg");
@@ -264,13 +414,13 @@ java -jar INFUSE.jar
             if(checkingMode.equalsIgnoreCase("offline")){
                 long startTime = System.nanoTime();
                 OfflineStarter offlineStarter = new OfflineStarter();
-                offlineStarter.start(approach, ruleFile, bfuncFile, patternFile, mfuncFile, dataFile, dataType, isMG, incs);
+                offlineStarter.start(approach, ruleFile, bfuncFile, patternFile, mfuncFile, dataFile, dataType, parserType, readerType, pipelineNum, matcherNum, isOffHeap, bfuncCacheSize, isMG, incs);
                 long totalTime = System.nanoTime() - startTime;
                 logger.info("\033[92m" + "Time cost: " + totalTime / 1000000L + " ms\033[0m");
             }
             else if(checkingMode.equalsIgnoreCase("online")){
                 OnlineStarter onlineStarter = new OnlineStarter();
-                onlineStarter.start(approach, ruleFile, bfuncFile, patternFile, mfuncFile, dataType, isMG, incs);
+                onlineStarter.start(approach, ruleFile, bfuncFile, patternFile, mfuncFile, dataType, parserType, bfuncCacheSize, isMG, incs);
             }
         }
     }
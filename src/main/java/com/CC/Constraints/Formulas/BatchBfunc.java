@@ -0,0 +1,22 @@
+package com.CC.Constraints.Formulas;
+
+import com.CC.Contexts.ContextView;
+
+import java.util.BitSet;
+import java.util.Map;
+
+/*
+    Bfunctions with a batch entry, used when the body of a quantifier is a single bfunc: the contexts of all
+    children of a quantifier node are passed at once, so a function can be written as one loop over the candidates
+    (e.g., over their coordinates read into primitive arrays).
+    A Bfunction class gets it by implementing this interface or declaring the public method
+    bfuncBatch(String, Map<String, ContextView>, String, ContextView[]), bound by Bfunc.bind().
+ */
+public interface BatchBfunc extends Bfunc {
+    /*
+        Results of the function with variable `var` bound to each of the candidates in turn, bit i for candidates[i].
+        The other variables of the function are bound in vcMap, which does not contain `var`.
+        Returning null evaluates the candidates one by one with bfunc().
+     */
+    BitSet bfuncBatch(String funcName, Map<String, ContextView> vcMap, String var, ContextView[] candidates) throws Exception;
+}
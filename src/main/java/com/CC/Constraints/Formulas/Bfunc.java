@@ -0,0 +1,154 @@
+package com.CC.Constraints.Formulas;
+
+import com.CC.Contexts.ContextView;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.*;
+
+/*
+    Entry of bfunctions. A Bfunction class may implement this interface directly,
+    otherwise its public `bfunc` method (and `bfuncBatch` method if declared, see BatchBfunc) is bound once by bind()
+    and called through a MethodHandle.
+    The map passed in is a read-only view of the bound contexts keyed by variable, valid only during the call.
+    A Bfunction class declaring bfunc(String, Map<String, Map<String, String>>) gets each context as a read-only
+    map of its fields plus "ctx_id", read from the context on access.
+ */
+@FunctionalInterface
+public interface Bfunc {
+    boolean bfunc(String funcName, Map<String, ContextView> vcMap) throws Exception;
+
+    static Bfunc bind(Object bfuncInstance) {
+        if(bfuncInstance == null || bfuncInstance instanceof Bfunc){
+            return (Bfunc) bfuncInstance;
+        }
+        try {
+            Method m = bfuncInstance.getClass().getMethod("bfunc", String.class, Map.class);
+            MethodHandle handle = MethodHandles.lookup().unreflect(m).bindTo(bfuncInstance)
+                    .asType(MethodType.methodType(boolean.class, String.class, Map.class));
+            Bfunc bfunc;
+            if(isTypedEntry(m)){
+                bfunc = (funcName, vcMap) -> invoke(handle, funcName, vcMap);
+            }
+            else{
+                bfunc = (funcName, vcMap) -> invoke(handle, funcName, new LegacyMap(vcMap));
+            }
+            Method batchMethod = findBatchEntry(bfuncInstance.getClass());
+            if(batchMethod == null){
+                return bfunc;
+            }
+            MethodHandle batchHandle = MethodHandles.lookup().unreflect(batchMethod).bindTo(bfuncInstance)
+                    .asType(MethodType.methodType(BitSet.class, String.class, Map.class, String.class, ContextView[].class));
+            return new BatchBfunc() {
+                @Override
+                public boolean bfunc(String funcName, Map<String, ContextView> vcMap) throws Exception {
+                    return bfunc.bfunc(funcName, vcMap);
+                }
+
+                @Override
+                public BitSet bfuncBatch(String funcName, Map<String, ContextView> vcMap, String var, ContextView[] candidates) throws Exception {
+                    try {
+                        return (BitSet) batchHandle.invokeExact(funcName, vcMap, var, candidates);
+                    } catch (Exception | Error e) {
+                        throw e;
+                    } catch (Throwable t) {
+                        throw new RuntimeException(t);
+                    }
+                }
+            };
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Method findBatchEntry(Class<?> clazz){
+        try {
+            Method m = clazz.getMethod("bfuncBatch", String.class, Map.class, String.class, ContextView[].class);
+            return m.getReturnType() == BitSet.class ? m : null;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static boolean invoke(MethodHandle handle, String funcName, Map<String, ?> vcMap) throws Exception {
+        try {
+            return (boolean) handle.invokeExact(funcName, (Map<?, ?>) vcMap);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    //bfunc(String, Map<String, ContextView>)
+    private static boolean isTypedEntry(Method m){
+        Type vcMapType = m.getGenericParameterTypes()[1];
+        return vcMapType instanceof ParameterizedType
+                && ((ParameterizedType) vcMapType).getActualTypeArguments()[1] == ContextView.class;
+    }
+
+    //contexts seen as Map<String, String> by a Bfunction class with the legacy entry
+    final class LegacyMap extends AbstractMap<String, Map<String, String>> {
+        private final Map<String, ContextView> vcMap;
+
+        private LegacyMap(Map<String, ContextView> vcMap) {
+            this.vcMap = vcMap;
+        }
+
+        @Override
+        public Map<String, String> get(Object key) {
+            ContextView context = vcMap.get(key);
+            return context == null ? null : new FieldView(context);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return vcMap.containsKey(key);
+        }
+
+        @Override
+        public Set<Entry<String, Map<String, String>>> entrySet() {
+            Set<Entry<String, Map<String, String>>> entries = new LinkedHashSet<>();
+            for(Entry<String, ContextView> entry : vcMap.entrySet()){
+                entries.add(new SimpleImmutableEntry<>(entry.getKey(), new FieldView(entry.getValue())));
+            }
+            return Collections.unmodifiableSet(entries);
+        }
+    }
+
+    final class FieldView extends AbstractMap<String, String> {
+        private static final String CTX_ID = "ctx_id";
+
+        private final ContextView context;
+
+        private FieldView(ContextView context) {
+            this.context = context;
+        }
+
+        @Override
+        public String get(Object key) {
+            if(!(key instanceof String)){
+                return null;
+            }
+            String value = context.getString((String) key);
+            return value == null && CTX_ID.equals(key) ? context.getCtx_id() : value;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return CTX_ID.equals(key) || context.getCtx_fields().containsKey(key);
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            Map<String, String> fields = new HashMap<>();
+            fields.put(CTX_ID, context.getCtx_id());
+            fields.putAll(context.getCtx_fields());
+            return Collections.unmodifiableMap(fields).entrySet();
+        }
+    }
+}
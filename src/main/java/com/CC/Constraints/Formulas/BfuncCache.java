@@ -0,0 +1,131 @@
+package com.CC.Constraints.Formulas;
+
+import com.CC.Contexts.Context;
+
+import java.util.*;
+
+/*
+    Bounded cache of bfunc results, evicting the least recently used result when full.
+    A result is keyed by the function and the numbers of the contexts bound to its variables, and is only used when
+    the same context objects are bound, so a context added again under the same id is evaluated anew.
+    Results involving a context are dropped when the context is deleted.
+ */
+public class BfuncCache {
+    private final int capacity;
+    private final LinkedHashMap<Key, Entry> entries;
+    //ctx_num -> keys of the results involving the context
+    private final Map<Long, Set<Key>> ctxKeys;
+    private long hitNum;
+    private long missNum;
+
+    public BfuncCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.ctxKeys = new HashMap<>();
+    }
+
+    //null if not cached
+    public synchronized Boolean get(String func, String[] vars, Context[] contexts){
+        Entry entry = entries.get(new Key(func, vars, contexts));
+        if(entry == null || !entry.isBoundTo(contexts)){
+            missNum++;
+            return null;
+        }
+        hitNum++;
+        return entry.result;
+    }
+
+    public synchronized void put(String func, String[] vars, Context[] contexts, boolean result){
+        Key key = new Key(func, vars, contexts);
+        if(entries.put(key, new Entry(contexts, result)) == null){
+            for(long ctxNum : key.ctxNums){
+                ctxKeys.computeIfAbsent(ctxNum, k -> new HashSet<>()).add(key);
+            }
+        }
+        if(entries.size() > capacity){
+            remove(entries.keySet().iterator().next());
+        }
+    }
+
+    public synchronized void invalidate(Context context){
+        Set<Key> keys = ctxKeys.get(context.getCtx_num());
+        if(keys == null){
+            return;
+        }
+        for(Key key : new ArrayList<>(keys)){
+            remove(key);
+        }
+    }
+
+    private void remove(Key key){
+        entries.remove(key);
+        for(long ctxNum : key.ctxNums){
+            Set<Key> keys = ctxKeys.get(ctxNum);
+            if(keys != null && keys.remove(key) && keys.isEmpty()){
+                ctxKeys.remove(ctxNum);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitNum() {
+        return hitNum;
+    }
+
+    public synchronized long getMissNum() {
+        return missNum;
+    }
+
+    private static final class Key {
+        private final String func;
+        //bfuncs read contexts by variable, so the variables are part of the key
+        private final String[] vars;
+        private final long[] ctxNums;
+        private final int hash;
+
+        private Key(String func, String[] vars, Context[] contexts) {
+            this.func = func;
+            this.vars = vars;
+            this.ctxNums = new long[contexts.length];
+            for(int i = 0; i < contexts.length; ++i){
+                ctxNums[i] = contexts[i].getCtx_num();
+            }
+            this.hash = 31 * (31 * func.hashCode() + Arrays.hashCode(vars)) + Arrays.hashCode(ctxNums);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o) return true;
+            if(!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return hash == key.hash && func.equals(key.func) && Arrays.equals(ctxNums, key.ctxNums) && Arrays.equals(vars, key.vars);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+        private final Context[] contexts;
+        private final boolean result;
+
+        private Entry(Context[] contexts, boolean result) {
+            this.contexts = contexts;
+            this.result = result;
+        }
+
+        private boolean isBoundTo(Context[] contexts){
+            for(int i = 0; i < contexts.length; ++i){
+                if(this.contexts[i] != contexts[i]){
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
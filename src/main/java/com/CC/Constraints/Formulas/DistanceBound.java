@@ -0,0 +1,126 @@
+package com.CC.Constraints.Formulas;
+
+import com.CC.Contexts.Context;
+import com.CC.Contexts.ContextPool;
+
+import java.util.*;
+
+/*
+    Distance bound of a quantifier, e.g., <forall var = "v2" in = "pat_x" near = "v1" within = "0.001">:
+    the quantifier only ranges over the contexts within the (Euclidean) distance of a variable bound outside of it,
+    measured on two numeric fields, longitude and latitude unless given by coords = "x,y".
+    A context without valid coordinates matches nothing. Contexts are looked up in a uniform grid whose cells are
+    twice the distance wide, so that the matching contexts lie in the cell of the outer context or its neighbours.
+ */
+public class DistanceBound extends DomainFilter {
+    static final String DEFAULT_COORDS = "longitude,latitude";
+
+    private final String xField;
+    private final String yField;
+    private final double distance;
+    private final double cellSize;
+    private final String indexName;
+
+    public DistanceBound(String outerVar, String xField, String yField, double distance) {
+        super(outerVar);
+        this.xField = xField;
+        this.yField = yField;
+        this.distance = distance;
+        this.cellSize = distance * 2;
+        this.indexName = "grid:" + xField + "," + yField + "@" + cellSize;
+    }
+
+    //near = "v1" within = "0.001" coords = "longitude,latitude", null if not well-formed
+    public static DistanceBound of(String near, String within, String coords){
+        String[] fields = (coords == null ? DEFAULT_COORDS : coords).split(",");
+        if(near == null || near.isEmpty() || within == null || fields.length != 2
+                || fields[0].trim().isEmpty() || fields[1].trim().isEmpty()){
+            return null;
+        }
+        double distance;
+        try {
+            distance = Double.parseDouble(within);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if(!(distance > 0) || Double.isInfinite(distance)){
+            return null;
+        }
+        return new DistanceBound(near, fields[0].trim(), fields[1].trim(), distance);
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    private static double coordinateOf(Context context, String field){
+        if(context.getString(field) == null){
+            return Double.NaN;
+        }
+        try {
+            return context.getDouble(field);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private boolean isWithin(Context context, double x, double y){
+        double dx = coordinateOf(context, xField) - x;
+        double dy = coordinateOf(context, yField) - y;
+        //false for NaN
+        return dx * dx + dy * dy <= distance * distance;
+    }
+
+    //cells far apart may share a key, which only adds candidates
+    private static Object cellKey(long cx, long cy){
+        return cx * 0x9E3779B97F4A7C15L + cy;
+    }
+
+    private Object cellOf(Context context){
+        double x = coordinateOf(context, xField);
+        double y = coordinateOf(context, yField);
+        if(Double.isNaN(x) || Double.isNaN(y)){
+            return null;
+        }
+        return cellKey((long) Math.floor(x / cellSize), (long) Math.floor(y / cellSize));
+    }
+
+    @Override
+    public boolean matches(Context context, Map<String, Context> varEnv) {
+        Context outerContext = varEnv.get(outerVar);
+        return outerContext != null
+                && isWithin(context, coordinateOf(outerContext, xField), coordinateOf(outerContext, yField));
+    }
+
+    @Override
+    public void addIndex(ContextPool contextPool, String pattern_id) {
+        contextPool.addIndex(pattern_id, indexName, this::cellOf);
+    }
+
+    @Override
+    public Set<Context> select(ContextPool contextPool, String rule_id, String pattern_id, Map<String, Context> varEnv) {
+        Context outerContext = varEnv.get(outerVar);
+        if(outerContext == null){
+            return Collections.emptySet();
+        }
+        double x = coordinateOf(outerContext, xField);
+        double y = coordinateOf(outerContext, yField);
+        if(Double.isNaN(x) || Double.isNaN(y)){
+            return Collections.emptySet();
+        }
+        long cx = (long) Math.floor(x / cellSize);
+        long cy = (long) Math.floor(y / cellSize);
+        List<Object> cells = new ArrayList<>(9);
+        for(long i = cx - 1; i <= cx + 1; ++i){
+            for(long j = cy - 1; j <= cy + 1; ++j){
+                cells.add(cellKey(i, j));
+            }
+        }
+        return contextPool.getPoolSet(rule_id, pattern_id, indexName, cells, context -> isWithin(context, x, y));
+    }
+
+    @Override
+    public String toString() {
+        return "(" + xField + "," + yField + ")~" + outerVar + "<=" + distance;
+    }
+}
@@ -0,0 +1,80 @@
+package com.CC.Constraints.Formulas;
+
+import com.CC.Contexts.Context;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+    <distance from = "v1" to = "v2" within = "0.001"/>: the two contexts are within a distance, measured on two numeric
+    fields, longitude and latitude unless given by coords = "x,y".
+    With metric = "haversine", the fields are longitude and latitude in degrees and the distance is in meters along
+    the earth's surface; otherwise it is Euclidean, in the unit of the fields.
+ */
+public class DistanceWithin extends NativePredicate {
+    private static final double EARTH_RADIUS = 6371008.8;
+
+    private final String fromVar;
+    private final String toVar;
+    private final String xField;
+    private final String yField;
+    private final double distance;
+    private final boolean haversine;
+
+    public DistanceWithin(String fromVar, String toVar, String xField, String yField, double distance, boolean haversine) {
+        this.fromVar = fromVar;
+        this.toVar = toVar;
+        this.xField = xField;
+        this.yField = yField;
+        this.distance = distance;
+        this.haversine = haversine;
+    }
+
+    //null if not well-formed
+    public static DistanceWithin of(String from, String to, String within, String coords, String metric){
+        String[] fields = (coords == null ? DistanceBound.DEFAULT_COORDS : coords).split(",");
+        Double distance = Operand.constantOf(within);
+        if(from == null || from.isEmpty() || to == null || to.isEmpty() || distance == null || distance < 0
+                || fields.length != 2 || fields[0].trim().isEmpty() || fields[1].trim().isEmpty()){
+            return null;
+        }
+        if(metric != null && !metric.equals("euclidean") && !metric.equals("haversine")){
+            return null;
+        }
+        return new DistanceWithin(from, to, fields[0].trim(), fields[1].trim(), distance, "haversine".equals(metric));
+    }
+
+    @Override
+    public boolean test(Map<String, Context> varEnv) {
+        Context from = varEnv.get(fromVar);
+        Context to = varEnv.get(toVar);
+        double x1 = Operand.numberOf(from, xField), y1 = Operand.numberOf(from, yField);
+        double x2 = Operand.numberOf(to, xField), y2 = Operand.numberOf(to, yField);
+        //false for NaN
+        if(!haversine){
+            double dx = x1 - x2;
+            double dy = y1 - y2;
+            return dx * dx + dy * dy <= distance * distance;
+        }
+        double sinLat = Math.sin(Math.toRadians(y2 - y1) / 2);
+        double sinLon = Math.sin(Math.toRadians(x2 - x1) / 2);
+        double a = sinLat * sinLat + Math.cos(Math.toRadians(y1)) * Math.cos(Math.toRadians(y2)) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS * Math.asin(Math.sqrt(Math.min(a, 1))) <= distance;
+    }
+
+    @Override
+    public List<String> getVars() {
+        List<String> vars = new ArrayList<>();
+        vars.add(fromVar);
+        if(!toVar.equals(fromVar)){
+            vars.add(toVar);
+        }
+        return vars;
+    }
+
+    @Override
+    public String toString() {
+        return "dist(" + fromVar + "," + toVar + ")<=" + distance + (haversine ? "m" : "");
+    }
+}
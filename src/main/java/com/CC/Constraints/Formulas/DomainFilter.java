@@ -0,0 +1,42 @@
+package com.CC.Constraints.Formulas;
+
+import com.CC.Contexts.Context;
+import com.CC.Contexts.ContextPool;
+
+import java.util.Map;
+import java.util.Set;
+
+/*
+    Restriction of the contexts a quantifier ranges over, relative to a variable bound outside of it
+    (e.g., JoinKey, DistanceBound). Matching contexts are looked up in an index of the pattern kept by ContextPool,
+    and a pool set without the index is scanned with the same test, so both give the same contexts.
+ */
+public abstract class DomainFilter {
+    protected final String outerVar;
+
+    protected DomainFilter(String outerVar) {
+        this.outerVar = outerVar;
+    }
+
+    public String getOuterVar() {
+        return outerVar;
+    }
+
+    public abstract boolean matches(Context context, Map<String, Context> varEnv);
+
+    //called when the pool set of a rule having the filter is created
+    public abstract void addIndex(ContextPool contextPool, String pattern_id);
+
+    //contexts of the pool set matching the filter
+    public abstract Set<Context> select(ContextPool contextPool, String rule_id, String pattern_id, Map<String, Context> varEnv);
+
+    public int count(Set<Context> contexts, Map<String, Context> varEnv){
+        int num = 0;
+        for(Context context : contexts){
+            if(matches(context, varEnv)){
+                num++;
+            }
+        }
+        return num;
+    }
+}
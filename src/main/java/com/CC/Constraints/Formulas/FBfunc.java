@@ -5,17 +5,25 @@ import com.CC.Constraints.Runtime.Link;
 import com.CC.Constraints.Runtime.RuntimeNode;
 import com.CC.Contexts.Context;
 import com.CC.Contexts.ContextChange;
+import com.CC.Contexts.ContextView;
 import com.CC.Middleware.Checkers.Checker;
 import com.CC.Middleware.Schedulers.Scheduler;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.*;
 
 public class FBfunc extends Formula {
 
     private String func = null;  // Function name
     private HashMap<String, String> params = new HashMap<>();
+    //false if the bfunc may give different results for the same contexts, then its results are never cached
+    private boolean deterministic = true;
+    //variables of the params in order, the key of cached results, computed lazily by any checking thread
+    private volatile String[] vars = null;
+    //built-in predicate evaluated instead of the bfunction, null for bfunctions
+    private NativePredicate predicate = null;
+
+    //one view per thread, rebound on every call
+    private static final ThreadLocal<BoundContexts> boundContexts = ThreadLocal.withInitial(BoundContexts::new);
 
     //constructor
     public FBfunc(String _func) {
@@ -27,6 +35,7 @@ public class FBfunc extends Formula {
     public void addParam(String pos, String var) {
         assert params.get(pos) == null;
         params.put(pos, var);
+        vars = null;
     }
 
     // getter and setter
@@ -54,6 +63,23 @@ public class FBfunc extends Formula {
 
     public void setParams(HashMap<String, String> params) {
         this.params = params;
+        this.vars = null;
+    }
+
+    public boolean isDeterministic() {
+        return deterministic;
+    }
+
+    public void setDeterministic(boolean deterministic) {
+        this.deterministic = deterministic;
+    }
+
+    public NativePredicate getPredicate() {
+        return predicate;
+    }
+
+    public void setPredicate(NativePredicate predicate) {
+        this.predicate = predicate;
     }
 
     @Override
@@ -67,7 +93,7 @@ public class FBfunc extends Formula {
     public void output(int offset) {
         for(int i = 0; i < offset; ++i)
             System.out.print(" ");
-        System.out.println("bfunc: " + this.func + "  affected: " + this.isAffected());
+        System.out.println("bfunc: " + (this.predicate != null ? this.predicate : this.func) + (this.deterministic ? "" : "  non-deterministic") + "  affected: " + this.isAffected());
         this.params.forEach((k,v) -> {
             for(int i = 0; i < offset+2; ++i)
                 System.out.print(" ");
@@ -75,14 +101,6 @@ public class FBfunc extends Formula {
         });
     }
 
-    @Override
-    public Formula formulaClone() {
-        FBfunc fBfunc = new FBfunc(this.func);
-        HashMap<String, String> tmpParams = new HashMap<>(this.params);
-        fBfunc.setParams(tmpParams);
-        return fBfunc;
-    }
-
     //S-condition
     @Override
     public void deriveIncPlusSet(Set<Map.Entry<ContextChange.Change_Type, String>> incPlusSet) {
@@ -155,7 +173,7 @@ public class FBfunc extends Formula {
 
     //MG
     @Override
-    public void taintSCCT(RuntimeNode curNode, Formula originFormula, Set<RuntimeNode> substantialNodes) {
+    public void taintSCCT(RuntimeNode curNode, Formula originFormula, Set<RuntimeNode> substantialNodes, Checker checker) {
         substantialNodes.add(curNode);
     }
 
@@ -333,26 +351,152 @@ public class FBfunc extends Formula {
 
 
     public boolean bfuncCaller(HashMap<String, Context> varEnv, Checker checker){
-        Map<String, Map<String, String>> vcMap = new HashMap<>();
-        for(String pos : params.keySet()){
-            HashMap<String, String> ctxInfos = new HashMap<>();
-            Context context = varEnv.get(params.get(pos));
-            ctxInfos.put("ctx_id", context.getCtx_id());
-            for(String attriName : context.getCtx_fields().keySet()){
-                ctxInfos.put(attriName, context.getCtx_fields().get(attriName));
+        //built-in predicates are cheaper than looking up the cache
+        if(predicate != null){
+            return predicate.test(varEnv);
+        }
+        BfuncCache bfuncCache = checker.getBfuncCache();
+        if(bfuncCache == null || !deterministic){
+            return callBfunc(varEnv, checker.getBfunc());
+        }
+        String[] vars = varsOf();
+        Context[] contexts = new Context[vars.length];
+        for(int i = 0; i < vars.length; ++i){
+            contexts[i] = varEnv.get(vars[i]);
+        }
+        Boolean result = bfuncCache.get(func, vars, contexts);
+        if(result == null){
+            result = callBfunc(varEnv, checker.getBfunc());
+            bfuncCache.put(func, vars, contexts, result);
+        }
+        return result;
+    }
+
+    private String[] varsOf(){
+        String[] vars = this.vars;
+        if(vars == null){
+            vars = new TreeSet<>(params.values()).toArray(new String[0]);
+            this.vars = vars;
+        }
+        return vars;
+    }
+
+    private boolean callBfunc(HashMap<String, Context> varEnv, Bfunc bfunc){
+        BoundContexts vcMap = boundContexts.get();
+        vcMap.params = params;
+        vcMap.varEnv = varEnv;
+        try {
+            return bfunc.bfunc(func, vcMap);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            vcMap.params = null;
+            vcMap.varEnv = null;
+        }
+    }
+
+    /*
+        Sets the truth values of the children of a quantifier over var having this bfunc as body,
+        passing the contexts of var in the children to the batch entry of the bfunc at once.
+     */
+    public void truthEvaluationBatch(List<RuntimeNode> children, String var, Checker checker){
+        if(children.isEmpty()){
+            return;
+        }
+        BfuncCache bfuncCache = deterministic ? checker.getBfuncCache() : null;
+        String[] vars = varsOf();
+        List<RuntimeNode> pending = children;
+        List<Context[]> pendingContexts = null;
+        if(bfuncCache != null){
+            pending = new ArrayList<>();
+            pendingContexts = new ArrayList<>();
+            for(RuntimeNode child : children){
+                Context[] contexts = new Context[vars.length];
+                for(int i = 0; i < vars.length; ++i){
+                    contexts[i] = child.getVarEnv().get(vars[i]);
+                }
+                Boolean result = bfuncCache.get(func, vars, contexts);
+                if(result != null){
+                    setTruth(child, result);
+                }
+                else{
+                    pending.add(child);
+                    pendingContexts.add(contexts);
+                }
+            }
+            if(pending.isEmpty()){
+                return;
             }
-            vcMap.put(params.get(pos), ctxInfos);
         }
 
-        boolean result = false;
+        ContextView[] candidates = new ContextView[pending.size()];
+        for(int i = 0; i < candidates.length; ++i){
+            candidates[i] = pending.get(i).getVarEnv().get(var);
+        }
+        BoundContexts vcMap = boundContexts.get();
+        vcMap.params = params;
+        vcMap.varEnv = pending.get(0).getVarEnv();
+        vcMap.unbound = var;
+        BitSet results;
         try {
-            Object bfuncInstance = checker.getBfuncInstance();
-            Method m = bfuncInstance.getClass().getMethod("bfunc", String.class, Class.forName("java.util.Map"));
-            result = (boolean) m.invoke(bfuncInstance,func, vcMap);
-        } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException | ClassNotFoundException e) {
+            results = ((BatchBfunc) checker.getBfunc()).bfuncBatch(func, vcMap, var, candidates);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
             throw new RuntimeException(e);
+        } finally {
+            vcMap.params = null;
+            vcMap.varEnv = null;
+            vcMap.unbound = null;
+        }
+        for(int i = 0; i < candidates.length; ++i){
+            RuntimeNode child = pending.get(i);
+            boolean result = results != null ? results.get(i) : callBfunc(child.getVarEnv(), checker.getBfunc());
+            setTruth(child, result);
+            if(bfuncCache != null){
+                bfuncCache.put(func, vars, pendingContexts.get(i), result);
+            }
+        }
+    }
+
+    private static void setTruth(RuntimeNode child, boolean result){
+        child.setTruth(result);
+        child.setVirtualTruth(result ? RuntimeNode.Virtual_Truth_Type.TRUE : RuntimeNode.Virtual_Truth_Type.FALSE);
+    }
+
+    //contexts of the params under the variable environment of a call, read in place
+    private static final class BoundContexts extends AbstractMap<String, ContextView> {
+        private Map<String, String> params;
+        private Map<String, Context> varEnv;
+        //the variable of the candidates in a batch call
+        private String unbound;
+
+        private boolean isBound(Object key){
+            return params.containsValue(key) && !key.equals(unbound);
+        }
+
+        @Override
+        public ContextView get(Object key) {
+            return isBound(key) ? varEnv.get(key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return isBound(key) && varEnv.containsKey(key);
+        }
+
+        @Override
+        public Set<Entry<String, ContextView>> entrySet() {
+            Set<Entry<String, ContextView>> entries = new HashSet<>();
+            for(String var : params.values()){
+                if(!var.equals(unbound)){
+                    entries.add(new SimpleImmutableEntry<>(var, varEnv.get(var)));
+                }
+            }
+            return Collections.unmodifiableSet(entries);
         }
-        return result;
     }
 }
 
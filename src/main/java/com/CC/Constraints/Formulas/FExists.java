@@ -17,6 +17,10 @@ import java.util.concurrent.Future;
 public class FExists extends Formula{
     private String var;
     private String pattern_id;
+    //rule of the formula, whose Add/Del/Upd sets are read
+    private final String rule_id;
+    //restriction of the contexts of the quantifier (e.g., a join key), null if not declared
+    private DomainFilter domainFilter;
     private Formula subformula;
 
     //CPCC_NB
@@ -27,10 +31,12 @@ public class FExists extends Formula{
     private final Map<ContextChange.Change_Type, Set<RuntimeNode.Virtual_Truth_Type>> reSet;
 
     //constructors
-    public FExists(String var, String pattern_id){
+    public FExists(String var, String pattern_id, String rule_id){
         this.setFormula_type(Formula_Type.EXISTS);
         this.var = var;
         this.pattern_id = pattern_id;
+        this.rule_id = rule_id;
+        this.domainFilter = null;
         this.subformula = null;
         this.setAffected(false);
         //CPCC_NB
@@ -49,6 +55,14 @@ public class FExists extends Formula{
         return reSet;
     }
 
+    public String getRule_id() {
+        return rule_id;
+    }
+
+    public DomainFilter getDomainFilter() {
+        return domainFilter;
+    }
+
     public String getVar() {
         return var;
     }
@@ -74,6 +88,10 @@ public class FExists extends Formula{
         super.setFormula_type(formula_type);
     }
 
+    public void setDomainFilter(DomainFilter domainFilter) {
+        this.domainFilter = domainFilter;
+    }
+
     public void setSubformula(Formula subformula) {
         this.subformula = subformula;
     }
@@ -90,15 +108,57 @@ public class FExists extends Formula{
     public void output(int offset) {
         for(int i = 0; i < offset; ++i)
             System.out.print(" ");
-        System.out.println("exists: "+ " var: " + var + " pattern_id: " + pattern_id + "  affected:" + this.isAffected()
+        System.out.println("exists: "+ " var: " + var + " pattern_id: " + pattern_id + (domainFilter == null ? "" : " domain: " + domainFilter) + "  affected:" + this.isAffected()
                             + "\trcSet: " + this.getRcSet() + "\treSet: " + this.getReSet()
         );
         subformula.output(offset + 2);
     }
 
-    @Override
-    public Formula formulaClone() {
-        return new FExists(this.getVar(), this.getPattern_id());
+    //contexts to enumerate under the node, only those matching the domain filter if declared
+    private Set<Context> poolOf(String rule_id, RuntimeNode curNode, Checker checker){
+        if(domainFilter == null){
+            return checker.getContextPool().getPoolSet(rule_id, this.pattern_id);
+        }
+        return domainFilter.select(checker.getContextPool(), rule_id, this.pattern_id, curNode.getVarEnv());
+    }
+
+    //Add/Del/Upd sets as seen by the node, whose children are only the contexts matching the domain filter if declared
+    private Set<Context> matching(Set<Context> contexts, RuntimeNode curNode){
+        if(domainFilter == null){
+            return contexts;
+        }
+        Set<Context> result = new HashSet<>();
+        for(Context context : contexts){
+            if(domainFilter.matches(context, curNode.getVarEnv())){
+                result.add(context);
+            }
+        }
+        return result;
+    }
+
+    private int matchingSize(Set<Context> contexts, RuntimeNode curNode){
+        return domainFilter == null ? contexts.size() : domainFilter.count(contexts, curNode.getVarEnv());
+    }
+
+    //an addition not matching the domain filter of the node leaves the node as it is
+    private boolean isUnaffected(Formula originFormula, ContextChange contextChange, RuntimeNode curNode){
+        if(!originFormula.isAffected()){
+            return true;
+        }
+        return domainFilter != null && contextChange.getPattern_id().equals(this.pattern_id)
+                && contextChange.getChange_type() == ContextChange.Change_Type.ADDITION
+                && !domainFilter.matches(contextChange.getContext(), curNode.getVarEnv());
+    }
+
+    //truth values of the children evaluated at once if the body is a bfunc having a batch entry, see BatchBfunc
+    private boolean batchEvaluation(RuntimeNode curNode, Formula originFormula, Checker checker){
+        Formula subformula = ((FExists)originFormula).getSubformula();
+        if(subformula.getFormula_type() != Formula_Type.BFUNC || ((FBfunc) subformula).getPredicate() != null
+                || !(checker.getBfunc() instanceof BatchBfunc)){
+            return false;
+        }
+        ((FBfunc) subformula).truthEvaluationBatch(curNode.getChildren(), ((FExists)originFormula).getVar(), checker);
+        return true;
     }
 
     //S-condition
@@ -123,6 +183,10 @@ public class FExists extends Formula{
 
         if(delChange.getPattern_id().equals(this.pattern_id)){
             assert var == null;
+            //a domain filter may take the replacing context out of the branch, so the changes are not cancelled
+            if(domainFilter != null){
+                return false;
+            }
             int meet_cnt = 0;
             for(RuntimeNode child : curNode.getChildren()){
                 HashMap<String, Context> varEnv = child.getVarEnv();
@@ -196,6 +260,10 @@ public class FExists extends Formula{
             return;
         if(delChange.getPattern_id().equals(this.pattern_id)){
             assert var == null;
+            //a domain filter may take the replacing context out of the branch, so the changes are not cancelled
+            if(domainFilter != null){
+                return;
+            }
             int meet_cnt = 0;
             for(RuntimeNode child : curNode.getChildren()){
                 HashMap<String, Context> varEnv = child.getVarEnv();
@@ -292,9 +360,9 @@ public class FExists extends Formula{
     //PCCM && CPCC
     @Override
     public boolean updateAffectedWithChanges(Checker checker) {
-        int AddSetSize = checker.getContextPool().getAddSetSize(this.pattern_id);
-        int DelSetSize = checker.getContextPool().getDelSetSize(this.pattern_id);
-        int UpdSetSize = checker.getContextPool().getUpdSetSize(this.pattern_id);
+        int AddSetSize = checker.getContextPool().getAddSetSize(this.rule_id, this.pattern_id);
+        int DelSetSize = checker.getContextPool().getDelSetSize(this.rule_id, this.pattern_id);
+        int UpdSetSize = checker.getContextPool().getUpdSetSize(this.rule_id, this.pattern_id);
         boolean result = this.subformula.updateAffectedWithChanges(checker);
         result = result || AddSetSize != 0 || DelSetSize!= 0 || UpdSetSize != 0;
         this.setAffected(result);
@@ -312,9 +380,9 @@ public class FExists extends Formula{
     public void updateCanConcurrent_INFUSE(boolean canConcurrent, Rule rule, Checker checker) {
         if(canConcurrent){
             int PoolSize = checker.getContextPool().getPoolSetSize(rule.getRule_id(), this.pattern_id);
-            int AddSetSize = checker.getContextPool().getAddSetSize(this.pattern_id);
-            int DelSetSize = checker.getContextPool().getDelSetSize(this.pattern_id);
-            int UpdSetSize = checker.getContextPool().getUpdSetSize(this.pattern_id);
+            int AddSetSize = checker.getContextPool().getAddSetSize(this.rule_id, this.pattern_id);
+            int DelSetSize = checker.getContextPool().getDelSetSize(this.rule_id, this.pattern_id);
+            int UpdSetSize = checker.getContextPool().getUpdSetSize(this.rule_id, this.pattern_id);
             if(rule.getPatToDepth().get(this.pattern_id) >= 2){
                 int entireNum = AddSetSize + UpdSetSize;
                 int partialNum = PoolSize - DelSetSize - UpdSetSize;
@@ -340,12 +408,12 @@ public class FExists extends Formula{
 
     //MG
     @Override
-    public void taintSCCT(RuntimeNode curNode, Formula originFormula, Set<RuntimeNode> substantialNodes) {
+    public void taintSCCT(RuntimeNode curNode, Formula originFormula, Set<RuntimeNode> substantialNodes, Checker checker) {
         substantialNodes.add(curNode);
         if(curNode.isTruth()){
             for(RuntimeNode child : curNode.getChildren()){
                 if(!child.isTruth()) continue;
-                child.getFormula().taintSCCT(child, ((FExists) originFormula).getSubformula(), substantialNodes);
+                child.getFormula().taintSCCT(child, ((FExists) originFormula).getSubformula(), substantialNodes, checker);
             }
         }
     }
@@ -355,7 +423,7 @@ public class FExists extends Formula{
                          */
     @Override
     public void createBranches_ECCPCC(String rule_id, RuntimeNode curNode, Formula originFormula, Checker checker) {
-        Set<Context> pool = checker.getContextPool().getPoolSet(rule_id, this.pattern_id);
+        Set<Context> pool = poolOf(rule_id, curNode, checker);
         for(Context context : pool){
             RuntimeNode runtimeNode = new RuntimeNode(((FExists)originFormula).getSubformula());
             runtimeNode.setDepth(curNode.getDepth() + 1);
@@ -372,9 +440,10 @@ public class FExists extends Formula{
      */
     @Override
     public boolean truthEvaluation_ECC(RuntimeNode curNode, Formula originFormula, Checker checker)  {
+        boolean batched = batchEvaluation(curNode, originFormula, checker);
         boolean result = false;
         for(RuntimeNode child : curNode.getChildren()){
-            boolean tempresult = child.getFormula().truthEvaluation_ECC(child, ((FExists)originFormula).getSubformula(), checker);
+            boolean tempresult = batched ? child.isTruth() : child.getFormula().truthEvaluation_ECC(child, ((FExists)originFormula).getSubformula(), checker);
             result = result || tempresult;
         }
         curNode.setTruth(result);
@@ -444,6 +513,9 @@ public class FExists extends Formula{
         if(contextChange.getPattern_id().equals(this.pattern_id)){
             //同一个pattern
             if(contextChange.getChange_type() == ContextChange.Change_Type.ADDITION){
+                if(domainFilter != null && !domainFilter.matches(contextChange.getContext(), curNode.getVarEnv())){
+                    return;
+                }
                 RuntimeNode runtimeNode = new RuntimeNode(((FExists)originFormula).getSubformula());
                 runtimeNode.setDepth(curNode.getDepth() + 1);
                 runtimeNode.getVarEnv().putAll(curNode.getVarEnv());
@@ -467,7 +539,7 @@ public class FExists extends Formula{
 
     @Override
     public boolean truthEvaluation_PCC(RuntimeNode curNode, Formula originFormula, ContextChange contextChange, Checker checker) {
-        if(!originFormula.isAffected()){
+        if(isUnaffected(originFormula, contextChange, curNode)){
             //no change and affected == false
             return curNode.isTruth();
         }
@@ -510,7 +582,7 @@ public class FExists extends Formula{
 
         if(!checker.isMG()) {
             // case 1: !MG --> all
-            if(!originFormula.isAffected()){
+            if(isUnaffected(originFormula, contextChange, curNode)){
                 return curNode.getLinks();
             }
             else{
@@ -556,7 +628,7 @@ public class FExists extends Formula{
         }
         else if(curNode.isTruth()) {
             // case 2: MG && true --> true
-            if(!originFormula.isAffected()){
+            if(isUnaffected(originFormula, contextChange, curNode)){
                 // check whether curNode.links reusable
                 if(prevSubstantialNodes.contains(curNode)){
                     return curNode.getLinks();
@@ -656,7 +728,7 @@ public class FExists extends Formula{
     @Override
     public void createBranches_ConC(String rule_id, RuntimeNode curNode, Formula originFormula, boolean canConcurrent, Checker checker) {
         if(canConcurrent){
-            Set<Context> pool = checker.getContextPool().getPoolSet(rule_id, this.pattern_id);
+            Set<Context> pool = poolOf(rule_id, curNode, checker);
             List<Future<RuntimeNode>> returnNodes = new ArrayList<>();
             for(Context context : pool){
                 assert checker instanceof ConC;
@@ -677,7 +749,7 @@ public class FExists extends Formula{
             }
         }
         else{
-            Set<Context> pool = checker.getContextPool().getPoolSet(rule_id, this.pattern_id);
+            Set<Context> pool = poolOf(rule_id, curNode, checker);
             for(Context context : pool){
                 RuntimeNode runtimeNode = new RuntimeNode(((FExists)originFormula).getSubformula());
                 runtimeNode.setDepth(curNode.getDepth() + 1);
@@ -692,6 +764,14 @@ public class FExists extends Formula{
 
     @Override
     public boolean truthEvaluation_ConC(RuntimeNode curNode, Formula originFormula, boolean canConcurrent, Checker checker) {
+        if(batchEvaluation(curNode, originFormula, checker)){
+            boolean result = false;
+            for(RuntimeNode child : curNode.getChildren()){
+                result = result || child.isTruth();
+            }
+            curNode.setTruth(result);
+            return result;
+        }
         if(canConcurrent){
             List<Future<Boolean>> truthList = new ArrayList<>();
             for(RuntimeNode child : curNode.getChildren()){
@@ -844,6 +924,9 @@ public class FExists extends Formula{
         if(contextChange.getPattern_id().equals(this.pattern_id)){
             //同一个pattern
             if(contextChange.getChange_type() == ContextChange.Change_Type.ADDITION){
+                if(domainFilter != null && !domainFilter.matches(contextChange.getContext(), curNode.getVarEnv())){
+                    return;
+                }
                 RuntimeNode runtimeNode = new RuntimeNode(((FExists)originFormula).getSubformula());
                 runtimeNode.setDepth(curNode.getDepth() + 1);
                 runtimeNode.getVarEnv().putAll(curNode.getVarEnv());
@@ -872,8 +955,8 @@ public class FExists extends Formula{
         }
         else{
             if(((FExists)originFormula).getSubformula().isAffected()){
-                int AddSetSize = checker.getContextPool().getAddSetSize(this.pattern_id);
-                int UpdSetSize = checker.getContextPool().getUpdSetSize(this.pattern_id);
+                int AddSetSize = matchingSize(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
+                int UpdSetSize = matchingSize(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
                 boolean result = false;
                 for(int i = 0; i < curNode.getChildren().size() - AddSetSize - UpdSetSize; ++i){
                     RuntimeNode child = curNode.getChildren().get(i);
@@ -889,9 +972,9 @@ public class FExists extends Formula{
                 return result;
             }
             else{
-                int AddSetSize = checker.getContextPool().getAddSetSize(this.pattern_id);
-                int DelSetSize = checker.getContextPool().getDelSetSize(this.pattern_id);
-                int UpdSetSize = checker.getContextPool().getUpdSetSize(this.pattern_id);
+                int AddSetSize = matchingSize(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
+                int DelSetSize = matchingSize(checker.getContextPool().getDelSet(this.rule_id, this.pattern_id), curNode);
+                int UpdSetSize = matchingSize(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
                 if(DelSetSize == 0 && UpdSetSize == 0){
                     boolean result = curNode.isTruth();
                     for(int i = curNode.getChildren().size() - AddSetSize; i < curNode.getChildren().size(); ++i){
@@ -932,8 +1015,8 @@ public class FExists extends Formula{
             }
             else{
                 if(((FExists)originFormula).getSubformula().isAffected()){
-                    int AddSetSize = checker.getContextPool().getAddSetSize(this.pattern_id);
-                    int UpdSetSize = checker.getContextPool().getUpdSetSize(this.pattern_id);
+                    int AddSetSize = matchingSize(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
+                    int UpdSetSize = matchingSize(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
                     for(int i = 0; i < curNode.getChildren().size() - AddSetSize - UpdSetSize; ++i){
                         RuntimeNode child = curNode.getChildren().get(i);
                         Set<Link> childLink = child.getFormula().linksGeneration_PCCM(child,((FExists)originFormula).getSubformula(), prevSubstantialNodes, checker);
@@ -958,9 +1041,9 @@ public class FExists extends Formula{
                     }
                 }
                 else{
-                    int AddSetSize = checker.getContextPool().getAddSetSize(this.pattern_id);
-                    int DelSetSize = checker.getContextPool().getDelSetSize(this.pattern_id);
-                    int UpdSetSize = checker.getContextPool().getUpdSetSize(this.pattern_id);
+                    int AddSetSize = matchingSize(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
+                    int DelSetSize = matchingSize(checker.getContextPool().getDelSet(this.rule_id, this.pattern_id), curNode);
+                    int UpdSetSize = matchingSize(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
                     if(DelSetSize == 0 && UpdSetSize == 0){
                         if(curNode.getLinks() != null)
                             result.addAll(curNode.getLinks());
@@ -1024,8 +1107,8 @@ public class FExists extends Formula{
             }
             else{
                 if(((FExists)originFormula).getSubformula().isAffected()){
-                    int AddSetSize = checker.getContextPool().getAddSetSize(this.pattern_id);
-                    int UpdSetSize = checker.getContextPool().getUpdSetSize(this.pattern_id);
+                    int AddSetSize = matchingSize(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
+                    int UpdSetSize = matchingSize(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
                     for(int i = 0; i < curNode.getChildren().size() - AddSetSize - UpdSetSize; ++i){
                         RuntimeNode child = curNode.getChildren().get(i);
                         if(!child.isTruth()) continue;
@@ -1050,9 +1133,9 @@ public class FExists extends Formula{
                     }
                 }
                 else{
-                    int AddSetSize = checker.getContextPool().getAddSetSize(this.pattern_id);
-                    int DelSetSize = checker.getContextPool().getDelSetSize(this.pattern_id);
-                    int UpdSetSize = checker.getContextPool().getUpdSetSize(this.pattern_id);
+                    int AddSetSize = matchingSize(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
+                    int DelSetSize = matchingSize(checker.getContextPool().getDelSet(this.rule_id, this.pattern_id), curNode);
+                    int UpdSetSize = matchingSize(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
                     if(DelSetSize == 0 && UpdSetSize == 0){
                         if(curNode.getLinks() != null){
                             // check whether curNode.links reusable
@@ -1155,7 +1238,7 @@ public class FExists extends Formula{
         assert checker instanceof INFUSE_C;
         rule.getPatToRuntimeNode().get(this.pattern_id).add(curNode);
         if(((FExists)originFormula).isCanConcurrent()){
-            Set<Context> pool = checker.getContextPool().getPoolSet(rule.getRule_id(), this.pattern_id);
+            Set<Context> pool = poolOf(rule.getRule_id(), curNode, checker);
             List<Future<RuntimeNode>> returnNodes = new ArrayList<>();
             for(Context context : pool){
                 Future<RuntimeNode> future = ((INFUSE_C) checker).ThreadPool.submit(
@@ -1177,7 +1260,7 @@ public class FExists extends Formula{
             }
         }
         else{
-            Set<Context> pool = checker.getContextPool().getPoolSet(rule.getRule_id(), this.pattern_id);
+            Set<Context> pool = poolOf(rule.getRule_id(), curNode, checker);
             for(Context context : pool){
                 RuntimeNode runtimeNode = new RuntimeNode(((FExists)originFormula).getSubformula());
                 runtimeNode.setDepth(curNode.getDepth() + 1);
@@ -1194,13 +1277,13 @@ public class FExists extends Formula{
     @Override
     public void modifyBranch_INFUSE(Rule rule, RuntimeNode curNode, Formula originFormula, Checker checker) {
         //Delset
-        Set<Context> DelSet = checker.getContextPool().getDelSet(this.pattern_id);
+        Set<Context> DelSet = matching(checker.getContextPool().getDelSet(this.rule_id, this.pattern_id), curNode);
         for(Context context : DelSet){
             RemoveBranch_CPCC(rule, curNode, context, false);
         }
 
         //ModSet
-        Set<Context> ModSet = checker.getContextPool().getUpdSet(this.pattern_id);
+        Set<Context> ModSet = matching(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
         for(Context context : ModSet){
             RuntimeNode ModNode = RemoveBranch_CPCC(rule, curNode, context, true);
             if(ModNode != null){
@@ -1210,7 +1293,7 @@ public class FExists extends Formula{
         }
 
         //AddSet
-        Set<Context> AddSet = checker.getContextPool().getAddSet(this.pattern_id);
+        Set<Context> AddSet = matching(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
         if(((FExists)originFormula).isCanConcurrent()){
             List<Future<RuntimeNode>> returnNodes = new ArrayList<>();
             for(Context context : AddSet){
@@ -1274,9 +1357,10 @@ public class FExists extends Formula{
 
     @Override
     public boolean truthEvaluationCom_INFUSE(RuntimeNode curNode, Formula originFormula, Checker checker) {
+        boolean batched = batchEvaluation(curNode, originFormula, checker);
         boolean result = false;
         for(RuntimeNode child : curNode.getChildren()){
-            boolean tempresult = child.getFormula().truthEvaluationCom_INFUSE(child, ((FExists)originFormula).getSubformula(), checker);
+            boolean tempresult = batched ? child.isTruth() : child.getFormula().truthEvaluationCom_INFUSE(child, ((FExists)originFormula).getSubformula(), checker);
             result = result || tempresult;
             //virtual truth
             curNode.getKidsVT().put(child.getVarEnv().get(this.var), child.getVirtualTruth());
@@ -1295,8 +1379,8 @@ public class FExists extends Formula{
         else {
             //case 4,5
             if(((FExists)originFormula).getSubformula().isAffected()){
-                int AddSetSize = checker.getContextPool().getAddSetSize(this.pattern_id);
-                int ModSetSize = checker.getContextPool().getUpdSetSize(this.pattern_id);
+                int AddSetSize = matchingSize(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
+                int ModSetSize = matchingSize(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
                 if(((FExists)originFormula).isCanConcurrent()){
                     boolean result = false;
                     List<Future<Boolean>> truthList = new ArrayList<>();
@@ -1356,9 +1440,9 @@ public class FExists extends Formula{
                 }
             }
             else{
-                int AddSetSize = checker.getContextPool().getAddSetSize(this.pattern_id);
-                int DelSetSize = checker.getContextPool().getDelSetSize(this.pattern_id);
-                int ModSetSize = checker.getContextPool().getUpdSetSize(this.pattern_id);
+                int AddSetSize = matchingSize(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
+                int DelSetSize = matchingSize(checker.getContextPool().getDelSet(this.rule_id, this.pattern_id), curNode);
+                int ModSetSize = matchingSize(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
                 //case 2
                 if(DelSetSize == 0 && ModSetSize == 0){
                     if(((FExists)originFormula).isCanConcurrent()){
@@ -1482,8 +1566,8 @@ public class FExists extends Formula{
             else{
                 if(((FExists)originFormula).getSubformula().isAffected()){
                     //case 4,5
-                    int AddSetSize = checker.getContextPool().getAddSetSize(this.pattern_id);
-                    int ModSetSize = checker.getContextPool().getUpdSetSize(this.pattern_id);
+                    int AddSetSize = matchingSize(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
+                    int ModSetSize = matchingSize(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
                     if(((FExists)originFormula).isCanConcurrent()){
                         Map<Integer, Future<Set<Link>>> LSMap= new HashMap<>();
                         for(int i = 0; i < curNode.getChildren().size() - AddSetSize - ModSetSize; ++i){
@@ -1546,9 +1630,9 @@ public class FExists extends Formula{
                     }
                 }
                 else{
-                    int AddSetSize = checker.getContextPool().getAddSetSize(this.pattern_id);
-                    int DelSetSize = checker.getContextPool().getDelSetSize(this.pattern_id);
-                    int ModSetSize = checker.getContextPool().getUpdSetSize(this.pattern_id);
+                    int AddSetSize = matchingSize(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
+                    int DelSetSize = matchingSize(checker.getContextPool().getDelSet(this.rule_id, this.pattern_id), curNode);
+                    int ModSetSize = matchingSize(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
                     //case 2
                     if(DelSetSize == 0 && ModSetSize == 0){
                         if(((FExists)originFormula).isCanConcurrent()){
@@ -1694,8 +1778,8 @@ public class FExists extends Formula{
             else{
                 if(((FExists)originFormula).getSubformula().isAffected()){
                     //case 4,5
-                    int AddSetSize = checker.getContextPool().getAddSetSize(this.pattern_id);
-                    int ModSetSize = checker.getContextPool().getUpdSetSize(this.pattern_id);
+                    int AddSetSize = matchingSize(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
+                    int ModSetSize = matchingSize(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
                     if(((FExists)originFormula).isCanConcurrent()){
                         Map<Integer, Future<Set<Link>>> LSMap= new HashMap<>();
                         for(int i = 0; i < curNode.getChildren().size() - AddSetSize - ModSetSize; ++i){
@@ -1759,9 +1843,9 @@ public class FExists extends Formula{
                     }
                 }
                 else{
-                    int AddSetSize = checker.getContextPool().getAddSetSize(this.pattern_id);
-                    int DelSetSize = checker.getContextPool().getDelSetSize(this.pattern_id);
-                    int ModSetSize = checker.getContextPool().getUpdSetSize(this.pattern_id);
+                    int AddSetSize = matchingSize(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
+                    int DelSetSize = matchingSize(checker.getContextPool().getDelSet(this.rule_id, this.pattern_id), curNode);
+                    int ModSetSize = matchingSize(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
                     //case 2
                     if(DelSetSize == 0 && ModSetSize == 0){
                         if(((FExists)originFormula).isCanConcurrent()){
@@ -1954,6 +2038,9 @@ public class FExists extends Formula{
         if(contextChange.getPattern_id().equals(this.pattern_id)){
             //同一个pattern
             if(contextChange.getChange_type() == ContextChange.Change_Type.ADDITION){
+                if(domainFilter != null && !domainFilter.matches(contextChange.getContext(), curNode.getVarEnv())){
+                    return;
+                }
                 RuntimeNode runtimeNode = new RuntimeNode(((FExists)originFormula).getSubformula());
                 runtimeNode.setDepth(curNode.getDepth() + 1);
                 runtimeNode.getVarEnv().putAll(curNode.getVarEnv());
@@ -1977,7 +2064,7 @@ public class FExists extends Formula{
 
     @Override
     public boolean truthEvaluation_BASE(RuntimeNode curNode, Formula originFormula, ContextChange contextChange, Checker checker) {
-        if(!originFormula.isAffected()){
+        if(isUnaffected(originFormula, contextChange, curNode)){
             //no change and affected == false
             return curNode.isTruth();
         }
@@ -2020,7 +2107,7 @@ public class FExists extends Formula{
 
         if(!checker.isMG()) {
             // case 1: !MG --> all
-            if(!originFormula.isAffected()){
+            if(isUnaffected(originFormula, contextChange, curNode)){
                 return curNode.getLinks();
             }
             else{
@@ -2067,7 +2154,7 @@ public class FExists extends Formula{
         }
         else if(curNode.isTruth()) {
             // case 2: MG && true --> true
-            if(!originFormula.isAffected()){
+            if(isUnaffected(originFormula, contextChange, curNode)){
                 // check whether curNode.links reusable
                 if(prevSubstantialNodes.contains(curNode)){
                     return curNode.getLinks();
@@ -17,6 +17,10 @@ import java.util.concurrent.Future;
 public class FForall extends Formula{
     private String var;
     private String pattern_id;
+    //rule of the formula, whose Add/Del/Upd sets are read
+    private final String rule_id;
+    //restriction of the contexts of the quantifier (e.g., a join key), null if not declared
+    private DomainFilter domainFilter;
     private Formula subformula;
 
     //CPCC_NB
@@ -27,10 +31,12 @@ public class FForall extends Formula{
     private final Map<ContextChange.Change_Type, Set<RuntimeNode.Virtual_Truth_Type>> reSet;
 
     // constructors
-    public FForall(String var, String pattern_id){
+    public FForall(String var, String pattern_id, String rule_id){
         this.setFormula_type(Formula_Type.FORALL);
         this.var = var;
         this.pattern_id = pattern_id;
+        this.rule_id = rule_id;
+        this.domainFilter = null;
         this.subformula = null;
         this.setAffected(false);
         //for CPCC_NB
@@ -57,6 +63,14 @@ public class FForall extends Formula{
         return pattern_id;
     }
 
+    public String getRule_id() {
+        return rule_id;
+    }
+
+    public DomainFilter getDomainFilter() {
+        return domainFilter;
+    }
+
     public String getVar() {
         return var;
     }
@@ -74,6 +88,10 @@ public class FForall extends Formula{
         this.pattern_id = pattern_id;
     }
 
+    public void setDomainFilter(DomainFilter domainFilter) {
+        this.domainFilter = domainFilter;
+    }
+
     public void setSubformula(Formula subformula) {
         this.subformula = subformula;
     }
@@ -91,7 +109,7 @@ public class FForall extends Formula{
     public void output(int offset) {
         for(int i = 0; i < offset; ++i)
             System.out.print(" ");
-        System.out.println("forall: " + " var: " + var + " pattern_id: " + pattern_id + "  affected:" + this.isAffected()
+        System.out.println("forall: " + " var: " + var + " pattern_id: " + pattern_id + (domainFilter == null ? "" : " domain: " + domainFilter) + "  affected:" + this.isAffected()
                 + "\trcSet: " + this.getRcSet() + "\treSet: " + this.getReSet()
 //                + "\tCCTComplexity: " + this.getCCTcomplexity()
 //                + "\tpartialWorkload: " + this.getPartialWorkload().getKey() + "-" + this.getPartialWorkload().getValue()
@@ -100,9 +118,51 @@ public class FForall extends Formula{
         subformula.output(offset + 2);
     }
 
-    @Override
-    public Formula formulaClone() {
-        return new FForall(this.getVar(), this.getPattern_id());
+    //contexts to enumerate under the node, only those matching the domain filter if declared
+    private Set<Context> poolOf(String rule_id, RuntimeNode curNode, Checker checker){
+        if(domainFilter == null){
+            return checker.getContextPool().getPoolSet(rule_id, this.pattern_id);
+        }
+        return domainFilter.select(checker.getContextPool(), rule_id, this.pattern_id, curNode.getVarEnv());
+    }
+
+    //Add/Del/Upd sets as seen by the node, whose children are only the contexts matching the domain filter if declared
+    private Set<Context> matching(Set<Context> contexts, RuntimeNode curNode){
+        if(domainFilter == null){
+            return contexts;
+        }
+        Set<Context> result = new HashSet<>();
+        for(Context context : contexts){
+            if(domainFilter.matches(context, curNode.getVarEnv())){
+                result.add(context);
+            }
+        }
+        return result;
+    }
+
+    private int matchingSize(Set<Context> contexts, RuntimeNode curNode){
+        return domainFilter == null ? contexts.size() : domainFilter.count(contexts, curNode.getVarEnv());
+    }
+
+    //an addition not matching the domain filter of the node leaves the node as it is
+    private boolean isUnaffected(Formula originFormula, ContextChange contextChange, RuntimeNode curNode){
+        if(!originFormula.isAffected()){
+            return true;
+        }
+        return domainFilter != null && contextChange.getPattern_id().equals(this.pattern_id)
+                && contextChange.getChange_type() == ContextChange.Change_Type.ADDITION
+                && !domainFilter.matches(contextChange.getContext(), curNode.getVarEnv());
+    }
+
+    //truth values of the children evaluated at once if the body is a bfunc having a batch entry, see BatchBfunc
+    private boolean batchEvaluation(RuntimeNode curNode, Formula originFormula, Checker checker){
+        Formula subformula = ((FForall)originFormula).getSubformula();
+        if(subformula.getFormula_type() != Formula_Type.BFUNC || ((FBfunc) subformula).getPredicate() != null
+                || !(checker.getBfunc() instanceof BatchBfunc)){
+            return false;
+        }
+        ((FBfunc) subformula).truthEvaluationBatch(curNode.getChildren(), ((FForall)originFormula).getVar(), checker);
+        return true;
     }
 
     //S-condition
@@ -126,6 +186,10 @@ public class FForall extends Formula{
             return false;
         if(delChange.getPattern_id().equals(this.pattern_id)){
             assert var == null;
+            //a domain filter may take the replacing context out of the branch, so the changes are not cancelled
+            if(domainFilter != null){
+                return false;
+            }
             int meet_cnt = 0;
             for(RuntimeNode child : curNode.getChildren()){
                 HashMap<String, Context> varEnv = child.getVarEnv();
@@ -201,6 +265,10 @@ public class FForall extends Formula{
             return;
         if(delChange.getPattern_id().equals(this.pattern_id)){
             assert var == null;
+            //a domain filter may take the replacing context out of the branch, so the changes are not cancelled
+            if(domainFilter != null){
+                return;
+            }
             int meet_cnt = 0;
             for(RuntimeNode child : curNode.getChildren()){
                 HashMap<String, Context> varEnv = child.getVarEnv();
@@ -305,9 +373,9 @@ public class FForall extends Formula{
     //PCCM && CPCC
     @Override
     public boolean updateAffectedWithChanges(Checker checker) {
-        int AddSetSize = checker.getContextPool().getAddSetSize(this.pattern_id);
-        int DelSetSize = checker.getContextPool().getDelSetSize(this.pattern_id);
-        int UpdSetSize = checker.getContextPool().getUpdSetSize(this.pattern_id);
+        int AddSetSize = checker.getContextPool().getAddSetSize(this.rule_id, this.pattern_id);
+        int DelSetSize = checker.getContextPool().getDelSetSize(this.rule_id, this.pattern_id);
+        int UpdSetSize = checker.getContextPool().getUpdSetSize(this.rule_id, this.pattern_id);
         boolean result = this.subformula.updateAffectedWithChanges(checker);
         result = result || AddSetSize != 0 || DelSetSize != 0 || UpdSetSize != 0;
         this.setAffected(result);
@@ -324,9 +392,9 @@ public class FForall extends Formula{
     public void updateCanConcurrent_INFUSE(boolean canConcurrent, Rule rule, Checker checker) {
         if(canConcurrent){
             int PoolSize = checker.getContextPool().getPoolSetSize(rule.getRule_id(), this.pattern_id);
-            int AddSetSize = checker.getContextPool().getAddSetSize(this.pattern_id);
-            int DelSetSize = checker.getContextPool().getDelSetSize(this.pattern_id);
-            int UpdSetSize = checker.getContextPool().getUpdSetSize(this.pattern_id);
+            int AddSetSize = checker.getContextPool().getAddSetSize(this.rule_id, this.pattern_id);
+            int DelSetSize = checker.getContextPool().getDelSetSize(this.rule_id, this.pattern_id);
+            int UpdSetSize = checker.getContextPool().getUpdSetSize(this.rule_id, this.pattern_id);
             if(rule.getPatToDepth().get(this.pattern_id) >= 2){
                 int entireNum = AddSetSize + UpdSetSize;
                 int partialNum = PoolSize - DelSetSize - UpdSetSize;
@@ -352,12 +420,12 @@ public class FForall extends Formula{
 
     //MG
     @Override
-    public void taintSCCT(RuntimeNode curNode, Formula originFormula, Set<RuntimeNode> substantialNodes) {
+    public void taintSCCT(RuntimeNode curNode, Formula originFormula, Set<RuntimeNode> substantialNodes, Checker checker) {
         substantialNodes.add(curNode);
         if(!curNode.isTruth()){
             for(RuntimeNode child : curNode.getChildren()){
                 if(child.isTruth()) continue;
-                child.getFormula().taintSCCT(child, ((FForall) originFormula).getSubformula(), substantialNodes);
+                child.getFormula().taintSCCT(child, ((FForall) originFormula).getSubformula(), substantialNodes, checker);
             }
         }
     }
@@ -367,7 +435,7 @@ public class FForall extends Formula{
                         */
     @Override
     public void createBranches_ECCPCC(String rule_id, RuntimeNode curNode, Formula originFormula, Checker checker) {
-        Set<Context> pool = checker.getContextPool().getPoolSet(rule_id, ((FForall)originFormula).getPattern_id());
+        Set<Context> pool = poolOf(rule_id, curNode, checker);
         for(Context context : pool){
             RuntimeNode runtimeNode = new RuntimeNode(((FForall)originFormula).getSubformula());
             runtimeNode.setDepth(curNode.getDepth() + 1);
@@ -384,9 +452,10 @@ public class FForall extends Formula{
      */
     @Override
     public boolean truthEvaluation_ECC(RuntimeNode curNode, Formula originFormula, Checker checker)  {
+        boolean batched = batchEvaluation(curNode, originFormula, checker);
         boolean result = true;
         for(RuntimeNode child : curNode.getChildren()){
-            boolean tempresult = child.getFormula().truthEvaluation_ECC(child, ((FForall)originFormula).getSubformula(),checker);
+            boolean tempresult = batched ? child.isTruth() : child.getFormula().truthEvaluation_ECC(child, ((FForall)originFormula).getSubformula(),checker);
             result = result && tempresult;
         }
         curNode.setTruth(result);
@@ -456,6 +525,9 @@ public class FForall extends Formula{
         if(contextChange.getPattern_id().equals(((FForall)originFormula).getPattern_id())){
             //同一个pattern
             if(contextChange.getChange_type() == ContextChange.Change_Type.ADDITION){
+                if(domainFilter != null && !domainFilter.matches(contextChange.getContext(), curNode.getVarEnv())){
+                    return;
+                }
                 RuntimeNode runtimeNode = new RuntimeNode(((FForall)originFormula).getSubformula());
                 runtimeNode.setDepth(curNode.getDepth() + 1);
                 runtimeNode.getVarEnv().putAll(curNode.getVarEnv());
@@ -479,7 +551,7 @@ public class FForall extends Formula{
 
     @Override
     public boolean truthEvaluation_PCC(RuntimeNode curNode, Formula originFormula, ContextChange contextChange, Checker checker) {
-        if(!originFormula.isAffected()){
+        if(isUnaffected(originFormula, contextChange, curNode)){
             return curNode.isTruth();
         }
         else{
@@ -522,7 +594,7 @@ public class FForall extends Formula{
 
         if(!checker.isMG()) {
             // case 1: !MG --> all
-            if(!originFormula.isAffected()){
+            if(isUnaffected(originFormula, contextChange, curNode)){
                 return curNode.getLinks();
             }
             else{
@@ -572,7 +644,7 @@ public class FForall extends Formula{
         }
         else {
             // case 3: MG && false --> false
-            if(!originFormula.isAffected()){
+            if(isUnaffected(originFormula, contextChange, curNode)){
                 // check whether curNode.links reusable
                 if(prevSubstantialNodes.contains(curNode)){
                     return curNode.getLinks();
@@ -666,7 +738,7 @@ public class FForall extends Formula{
     @Override
     public void createBranches_ConC(String rule_id, RuntimeNode curNode, Formula originFormula, boolean canConcurrent, Checker checker) {
         if(canConcurrent){
-            Set<Context> pool = checker.getContextPool().getPoolSet(rule_id, ((FForall)originFormula).getPattern_id());
+            Set<Context> pool = poolOf(rule_id, curNode, checker);
             List<Future<RuntimeNode>> returnNodes = new ArrayList<>();
             for(Context context : pool){
                 assert checker instanceof ConC;
@@ -687,7 +759,7 @@ public class FForall extends Formula{
             }
         }
         else{
-            Set<Context> pool = checker.getContextPool().getPoolSet(rule_id, ((FForall)originFormula).getPattern_id());
+            Set<Context> pool = poolOf(rule_id, curNode, checker);
             for(Context context : pool){
                 RuntimeNode runtimeNode = new RuntimeNode(((FForall)originFormula).getSubformula());
                 runtimeNode.setDepth(curNode.getDepth() + 1);
@@ -702,6 +774,14 @@ public class FForall extends Formula{
 
     @Override
     public boolean truthEvaluation_ConC(RuntimeNode curNode, Formula originFormula, boolean canConcurrent, Checker checker) {
+        if(batchEvaluation(curNode, originFormula, checker)){
+            boolean result = true;
+            for(RuntimeNode child : curNode.getChildren()){
+                result = result && child.isTruth();
+            }
+            curNode.setTruth(result);
+            return result;
+        }
         if(canConcurrent){
             List<Future<Boolean>> truthList = new ArrayList<>();
             for(RuntimeNode child : curNode.getChildren()){
@@ -855,6 +935,9 @@ public class FForall extends Formula{
         if(contextChange.getPattern_id().equals(((FForall)originFormula).getPattern_id())){
             //同一个pattern
             if(contextChange.getChange_type() == ContextChange.Change_Type.ADDITION){
+                if(domainFilter != null && !domainFilter.matches(contextChange.getContext(), curNode.getVarEnv())){
+                    return;
+                }
                 RuntimeNode runtimeNode = new RuntimeNode(((FForall)originFormula).getSubformula());
                 runtimeNode.setDepth(curNode.getDepth() + 1);
                 runtimeNode.getVarEnv().putAll(curNode.getVarEnv());
@@ -883,8 +966,8 @@ public class FForall extends Formula{
         }
         else{
             if(((FForall)originFormula).getSubformula().isAffected()){
-                int AddSetSize = checker.getContextPool().getAddSetSize(((FForall)originFormula).getPattern_id());
-                int UpdSetSize = checker.getContextPool().getUpdSetSize(((FForall)originFormula).getPattern_id());
+                int AddSetSize = matchingSize(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
+                int UpdSetSize = matchingSize(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
                 boolean result = true;
                 for(int i = 0; i < curNode.getChildren().size() - AddSetSize - UpdSetSize; ++i){
                     RuntimeNode child = curNode.getChildren().get(i);
@@ -900,9 +983,9 @@ public class FForall extends Formula{
                 return result;
             }
             else{
-                int AddSetSize = checker.getContextPool().getAddSetSize(((FForall)originFormula).getPattern_id());
-                int DelSetSize = checker.getContextPool().getDelSetSize(((FForall)originFormula).getPattern_id());
-                int UpdSetSize = checker.getContextPool().getUpdSetSize(((FForall)originFormula).getPattern_id());
+                int AddSetSize = matchingSize(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
+                int DelSetSize = matchingSize(checker.getContextPool().getDelSet(this.rule_id, this.pattern_id), curNode);
+                int UpdSetSize = matchingSize(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
                 if(DelSetSize == 0 && UpdSetSize == 0){
                     boolean result = curNode.isTruth();
                     for(int i = curNode.getChildren().size() - AddSetSize; i < curNode.getChildren().size(); ++i){
@@ -943,8 +1026,8 @@ public class FForall extends Formula{
             }
             else{
                 if(((FForall)originFormula).getSubformula().isAffected()){
-                    int AddSetSize = checker.getContextPool().getAddSetSize(((FForall)originFormula).getPattern_id());
-                    int UpdSetSize = checker.getContextPool().getUpdSetSize(((FForall)originFormula).getPattern_id());
+                    int AddSetSize = matchingSize(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
+                    int UpdSetSize = matchingSize(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
                     for(int i = 0; i < curNode.getChildren().size() - AddSetSize - UpdSetSize; ++i){
                         RuntimeNode child = curNode.getChildren().get(i);
                         Set<Link> childLink =  child.getFormula().linksGeneration_PCCM(child,((FForall)originFormula).getSubformula(), prevSubstantialNodes, checker);
@@ -969,9 +1052,9 @@ public class FForall extends Formula{
                     }
                 }
                 else{
-                    int AddSetSize = checker.getContextPool().getAddSetSize(((FForall)originFormula).getPattern_id());
-                    int DelSetSize = checker.getContextPool().getDelSetSize(((FForall)originFormula).getPattern_id());
-                    int UpdSetSize = checker.getContextPool().getUpdSetSize(((FForall)originFormula).getPattern_id());
+                    int AddSetSize = matchingSize(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
+                    int DelSetSize = matchingSize(checker.getContextPool().getDelSet(this.rule_id, this.pattern_id), curNode);
+                    int UpdSetSize = matchingSize(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
                     if(DelSetSize == 0 && UpdSetSize == 0){
                         if(curNode.getLinks() != null)
                             result.addAll(curNode.getLinks());
@@ -1039,8 +1122,8 @@ public class FForall extends Formula{
             }
             else{
                 if(((FForall)originFormula).getSubformula().isAffected()){
-                    int AddSetSize = checker.getContextPool().getAddSetSize(((FForall)originFormula).getPattern_id());
-                    int UpdSetSize = checker.getContextPool().getUpdSetSize(((FForall)originFormula).getPattern_id());
+                    int AddSetSize = matchingSize(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
+                    int UpdSetSize = matchingSize(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
                     for(int i = 0; i < curNode.getChildren().size() - AddSetSize - UpdSetSize; ++i){
                         RuntimeNode child = curNode.getChildren().get(i);
                         if(child.isTruth()) continue;
@@ -1065,9 +1148,9 @@ public class FForall extends Formula{
                     }
                 }
                 else{
-                    int AddSetSize = checker.getContextPool().getAddSetSize(((FForall)originFormula).getPattern_id());
-                    int DelSetSize = checker.getContextPool().getDelSetSize(((FForall)originFormula).getPattern_id());
-                    int UpdSetSize = checker.getContextPool().getUpdSetSize(((FForall)originFormula).getPattern_id());
+                    int AddSetSize = matchingSize(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
+                    int DelSetSize = matchingSize(checker.getContextPool().getDelSet(this.rule_id, this.pattern_id), curNode);
+                    int UpdSetSize = matchingSize(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
                     if(DelSetSize == 0 && UpdSetSize == 0){
                         if(curNode.getLinks() != null){
                             // check whether curNode.links reusable
@@ -1168,7 +1251,7 @@ public class FForall extends Formula{
         assert checker instanceof INFUSE_C;
         rule.getPatToRuntimeNode().get(this.pattern_id).add(curNode);
         if(((FForall)originFormula).isCanConcurrent()){
-            Set<Context> pool = checker.getContextPool().getPoolSet(rule.getRule_id(), ((FForall)originFormula).getPattern_id());
+            Set<Context> pool = poolOf(rule.getRule_id(), curNode, checker);
             List<Future<RuntimeNode>> returnNodes = new ArrayList<>();
             for(Context context : pool){
                 Future<RuntimeNode> future = ((INFUSE_C) checker).ThreadPool.submit(
@@ -1191,7 +1274,7 @@ public class FForall extends Formula{
             }
         }
         else{
-            Set<Context> pool = checker.getContextPool().getPoolSet(rule.getRule_id(), ((FForall)originFormula).getPattern_id());
+            Set<Context> pool = poolOf(rule.getRule_id(), curNode, checker);
             for(Context context : pool){
                 RuntimeNode runtimeNode = new RuntimeNode(((FForall)originFormula).getSubformula());
                 runtimeNode.setDepth(curNode.getDepth() + 1);
@@ -1208,13 +1291,13 @@ public class FForall extends Formula{
     @Override
     public void modifyBranch_INFUSE(Rule rule, RuntimeNode curNode, Formula originFormula, Checker checker) {
         //Delset
-        Set<Context> DelSet = checker.getContextPool().getDelSet(((FForall)originFormula).getPattern_id());
+        Set<Context> DelSet = matching(checker.getContextPool().getDelSet(this.rule_id, this.pattern_id), curNode);
         for(Context context : DelSet){
             RemoveBranch_CPCC(rule, curNode, context, false);
         }
 
         //ModSet
-        Set<Context> ModSet = checker.getContextPool().getUpdSet(((FForall)originFormula).getPattern_id());
+        Set<Context> ModSet = matching(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
         for(Context context : ModSet){
             RuntimeNode ModNode = RemoveBranch_CPCC(rule, curNode, context, true);
             if(ModNode != null){
@@ -1225,7 +1308,7 @@ public class FForall extends Formula{
         }
 
         //AddSet
-        Set<Context> AddSet = checker.getContextPool().getAddSet(((FForall)originFormula).getPattern_id());
+        Set<Context> AddSet = matching(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
         if(((FForall)originFormula).isCanConcurrent()){
             //AddS
             List<Future<RuntimeNode>> returnNodes = new ArrayList<>();
@@ -1291,10 +1374,11 @@ public class FForall extends Formula{
 
     @Override
     public boolean truthEvaluationCom_INFUSE(RuntimeNode curNode, Formula originFormula, Checker checker) {
+        boolean batched = batchEvaluation(curNode, originFormula, checker);
         boolean result = true;
         for(RuntimeNode child : curNode.getChildren()){
             //truth
-            boolean tempresult = child.getFormula().truthEvaluationCom_INFUSE(child, ((FForall)originFormula).getSubformula(),checker);
+            boolean tempresult = batched ? child.isTruth() : child.getFormula().truthEvaluationCom_INFUSE(child, ((FForall)originFormula).getSubformula(),checker);
             result = result && tempresult;
             //virtual truth
             curNode.getKidsVT().put(child.getVarEnv().get(this.var), child.getVirtualTruth());
@@ -1313,8 +1397,8 @@ public class FForall extends Formula{
         else{
             //case 4,5
             if(((FForall)originFormula).getSubformula().isAffected()){
-                int AddSetSize = checker.getContextPool().getAddSetSize(((FForall)originFormula).getPattern_id());
-                int ModSetSize = checker.getContextPool().getUpdSetSize(((FForall)originFormula).getPattern_id());
+                int AddSetSize = matchingSize(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
+                int ModSetSize = matchingSize(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
                 if(((FForall)originFormula).isCanConcurrent()){
                     boolean result = true;
                     List<Future<Boolean>> truthList = new ArrayList<>();
@@ -1374,9 +1458,9 @@ public class FForall extends Formula{
                 }
             }
             else{
-                int AddSetSize = checker.getContextPool().getAddSetSize(((FForall)originFormula).getPattern_id());
-                int DelSetSize = checker.getContextPool().getDelSetSize(((FForall)originFormula).getPattern_id());
-                int ModSetSize = checker.getContextPool().getUpdSetSize(((FForall)originFormula).getPattern_id());
+                int AddSetSize = matchingSize(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
+                int DelSetSize = matchingSize(checker.getContextPool().getDelSet(this.rule_id, this.pattern_id), curNode);
+                int ModSetSize = matchingSize(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
                 //case 2
                 if(ModSetSize == 0 && DelSetSize == 0){
                     if(((FForall)originFormula).isCanConcurrent()){
@@ -1503,8 +1587,8 @@ public class FForall extends Formula{
             else{
                 if(((FForall)originFormula).getSubformula().isAffected()){
                     //case 4,5
-                    int AddSetSize = checker.getContextPool().getAddSetSize(((FForall)originFormula).getPattern_id());
-                    int ModSetSize = checker.getContextPool().getUpdSetSize(((FForall)originFormula).getPattern_id());
+                    int AddSetSize = matchingSize(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
+                    int ModSetSize = matchingSize(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
                     if(((FForall)originFormula).isCanConcurrent()){
                         Map<Integer, Future<Set<Link>>> LSMap = new HashMap<>();
                         for(int i = 0; i < curNode.getChildren().size() - AddSetSize - ModSetSize; ++i){
@@ -1567,9 +1651,9 @@ public class FForall extends Formula{
                     }
                 }
                 else{
-                    int AddSetSize = checker.getContextPool().getAddSetSize(((FForall) originFormula).getPattern_id());
-                    int DelSetSize = checker.getContextPool().getDelSetSize(((FForall) originFormula).getPattern_id());
-                    int ModSetSize = checker.getContextPool().getUpdSetSize(((FForall) originFormula).getPattern_id());
+                    int AddSetSize = matchingSize(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
+                    int DelSetSize = matchingSize(checker.getContextPool().getDelSet(this.rule_id, this.pattern_id), curNode);
+                    int ModSetSize = matchingSize(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
                     //case 2
                     if(ModSetSize == 0 && DelSetSize == 0){
                         if(((FForall)originFormula).isCanConcurrent()){
@@ -1720,8 +1804,8 @@ public class FForall extends Formula{
             else{
                 if(((FForall)originFormula).getSubformula().isAffected()){
                     //case 4,5
-                    int AddSetSize = checker.getContextPool().getAddSetSize(((FForall)originFormula).getPattern_id());
-                    int ModSetSize = checker.getContextPool().getUpdSetSize(((FForall)originFormula).getPattern_id());
+                    int AddSetSize = matchingSize(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
+                    int ModSetSize = matchingSize(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
                     if(((FForall)originFormula).isCanConcurrent()){
                         Map<Integer, Future<Set<Link>>> LSMap = new HashMap<>();
                         for(int i = 0; i < curNode.getChildren().size() - AddSetSize - ModSetSize; ++i){
@@ -1785,9 +1869,9 @@ public class FForall extends Formula{
                     }
                 }
                 else{
-                    int AddSetSize = checker.getContextPool().getAddSetSize(((FForall) originFormula).getPattern_id());
-                    int DelSetSize = checker.getContextPool().getDelSetSize(((FForall) originFormula).getPattern_id());
-                    int ModSetSize = checker.getContextPool().getUpdSetSize(((FForall) originFormula).getPattern_id());
+                    int AddSetSize = matchingSize(checker.getContextPool().getAddSet(this.rule_id, this.pattern_id), curNode);
+                    int DelSetSize = matchingSize(checker.getContextPool().getDelSet(this.rule_id, this.pattern_id), curNode);
+                    int ModSetSize = matchingSize(checker.getContextPool().getUpdSet(this.rule_id, this.pattern_id), curNode);
                     //case 2
                     if(ModSetSize == 0 && DelSetSize == 0){
                         if(((FForall)originFormula).isCanConcurrent()){
@@ -1977,6 +2061,9 @@ public class FForall extends Formula{
         if(contextChange.getPattern_id().equals(((FForall)originFormula).getPattern_id())){
             //同一个pattern
             if(contextChange.getChange_type() == ContextChange.Change_Type.ADDITION){
+                if(domainFilter != null && !domainFilter.matches(contextChange.getContext(), curNode.getVarEnv())){
+                    return;
+                }
                 RuntimeNode runtimeNode = new RuntimeNode(((FForall)originFormula).getSubformula());
                 runtimeNode.setDepth(curNode.getDepth() + 1);
                 runtimeNode.getVarEnv().putAll(curNode.getVarEnv());
@@ -2000,7 +2087,7 @@ public class FForall extends Formula{
 
     @Override
     public boolean truthEvaluation_BASE(RuntimeNode curNode, Formula originFormula, ContextChange contextChange, Checker checker) {
-        if(!originFormula.isAffected()){
+        if(isUnaffected(originFormula, contextChange, curNode)){
             return curNode.isTruth();
         }
         else{
@@ -2043,7 +2130,7 @@ public class FForall extends Formula{
 
         if(!checker.isMG()) {
             // case 1: !MG --> all
-            if(!originFormula.isAffected()){
+            if(isUnaffected(originFormula, contextChange, curNode)){
                 return curNode.getLinks();
             }
             else{
@@ -2094,7 +2181,7 @@ public class FForall extends Formula{
         }
         else {
             // case 3: MG && false --> false
-            if(!originFormula.isAffected()){
+            if(isUnaffected(originFormula, contextChange, curNode)){
                 // check whether curNode.links reusable
                 if(prevSubstantialNodes.contains(curNode)){
                     return curNode.getLinks();
@@ -50,11 +50,6 @@ public class FNot extends Formula{
         subformula.output(offset + 2);
     }
 
-    @Override
-    public Formula formulaClone() {
-        return new FNot();
-    }
-
     //S-condition
     @Override
     public void deriveIncPlusSet(Set<Map.Entry<ContextChange.Change_Type, String>> incPlusSet) {
@@ -139,10 +134,10 @@ public class FNot extends Formula{
 
     //MG
     @Override
-    public void taintSCCT(RuntimeNode curNode, Formula originFormula, Set<RuntimeNode> substantialNodes) {
+    public void taintSCCT(RuntimeNode curNode, Formula originFormula, Set<RuntimeNode> substantialNodes, Checker checker) {
         substantialNodes.add(curNode);
         RuntimeNode runtimeNode = curNode.getChildren().get(0);
-        runtimeNode.getFormula().taintSCCT(runtimeNode, ((FNot) originFormula).getSubformula(), substantialNodes);
+        runtimeNode.getFormula().taintSCCT(runtimeNode, ((FNot) originFormula).getSubformula(), substantialNodes, checker);
     }
 
     /*
@@ -14,12 +14,14 @@ import java.util.Set;
 
 public class FOr extends Formula {
     private final Formula[] subformulas;
+    private final ShortCircuit shortCircuit;
 
     //constructors
     public FOr(){
         this.setFormula_type(Formula_Type.OR);
         this.subformulas = new Formula[2];
         this.setAffected(false);
+        this.shortCircuit = new ShortCircuit(true, true, true);
     }
 
     public void replaceSubformula(int pos, Formula formula){
@@ -53,11 +55,6 @@ public class FOr extends Formula {
         subformulas[1].output(offset+2);
     }
 
-    @Override
-    public Formula formulaClone() {
-        return new FOr();
-    }
-
     //S-condition
     @Override
     public void deriveIncPlusSet(Set<Map.Entry<ContextChange.Change_Type, String>> incPlusSet) {
@@ -74,6 +71,7 @@ public class FOr extends Formula {
     //C-condition
     @Override
     public boolean evaluationAndEqualSideEffect(RuntimeNode curNode, Formula originFormula, String var, ContextChange delChange, ContextChange addChange, boolean canConcurrent, Scheduler scheduler) {
+        ShortCircuit.ensureEvaluated(curNode, ((FOr) originFormula).getSubformulas(), scheduler.getChecker());
         if(var != null){
             curNode.getVarEnv().remove(var);
             curNode.getVarEnv().put(var, addChange.getContext());
@@ -160,21 +158,22 @@ public class FOr extends Formula {
 
     //MG
     @Override
-    public void taintSCCT(RuntimeNode curNode, Formula originFormula, Set<RuntimeNode> substantialNodes) {
+    public void taintSCCT(RuntimeNode curNode, Formula originFormula, Set<RuntimeNode> substantialNodes, Checker checker) {
+        ShortCircuit.ensureEvaluated(curNode, ((FOr) originFormula).getSubformulas(), checker);
         substantialNodes.add(curNode);
         RuntimeNode runtimeNode1 = curNode.getChildren().get(0);
         RuntimeNode runtimeNode2 = curNode.getChildren().get(1);
         if(curNode.isTruth()){
             if(runtimeNode1.isTruth()){
-                runtimeNode1.getFormula().taintSCCT(runtimeNode1, ((FOr) originFormula).getSubformulas()[0], substantialNodes);
+                runtimeNode1.getFormula().taintSCCT(runtimeNode1, ((FOr) originFormula).getSubformulas()[0], substantialNodes, checker);
             }
             if(runtimeNode2.isTruth()){
-                runtimeNode2.getFormula().taintSCCT(runtimeNode2, ((FOr) originFormula).getSubformulas()[1], substantialNodes);
+                runtimeNode2.getFormula().taintSCCT(runtimeNode2, ((FOr) originFormula).getSubformulas()[1], substantialNodes, checker);
             }
         }
         else{
-            runtimeNode1.getFormula().taintSCCT(runtimeNode1, ((FOr) originFormula).getSubformulas()[0], substantialNodes);
-            runtimeNode2.getFormula().taintSCCT(runtimeNode2, ((FOr) originFormula).getSubformulas()[1], substantialNodes);
+            runtimeNode1.getFormula().taintSCCT(runtimeNode1, ((FOr) originFormula).getSubformulas()[0], substantialNodes, checker);
+            runtimeNode2.getFormula().taintSCCT(runtimeNode2, ((FOr) originFormula).getSubformulas()[1], substantialNodes, checker);
         }
     }
 
@@ -204,6 +203,12 @@ public class FOr extends Formula {
      */
     @Override
     public boolean truthEvaluation_ECC(RuntimeNode curNode, Formula originFormula, Checker checker) {
+        if(checker.isShortCircuit()){
+            boolean result = ((FOr) originFormula).shortCircuit.evaluate(curNode, ((FOr) originFormula).getSubformulas(),
+                    (node, formula) -> node.getFormula().truthEvaluation_ECC(node, formula, checker));
+            curNode.setTruth(result);
+            return result;
+        }
         RuntimeNode runtimeNode1 = curNode.getChildren().get(0);
         boolean result = runtimeNode1.getFormula().truthEvaluation_ECC(runtimeNode1, ((FOr)originFormula).getSubformulas()[0], checker);
         RuntimeNode runtimeNode2 = curNode.getChildren().get(1);
@@ -215,6 +220,7 @@ public class FOr extends Formula {
 
     @Override
     public Set<Link> linksGeneration_ECC(RuntimeNode curNode, Formula originFormula, final Set<RuntimeNode> prevSubstantialNodes, Checker checker) {
+        ShortCircuit.ensureEvaluated(curNode, ((FOr) originFormula).getSubformulas(), checker);
         Set<Link> result = new HashSet<>();
         RuntimeNode runtimeNode1 = curNode.getChildren().get(0);
         RuntimeNode runtimeNode2 = curNode.getChildren().get(1);
@@ -507,6 +513,12 @@ public class FOr extends Formula {
 
     @Override
     public boolean truthEvaluation_ConC(RuntimeNode curNode, Formula originFormula, boolean canConcurrent, Checker checker) {
+        if(checker.isShortCircuit()){
+            boolean result = ((FOr) originFormula).shortCircuit.evaluate(curNode, ((FOr) originFormula).getSubformulas(),
+                    (node, formula) -> node.getFormula().truthEvaluation_ConC(node, formula, canConcurrent, checker));
+            curNode.setTruth(result);
+            return result;
+        }
         RuntimeNode runtimeNode1 = curNode.getChildren().get(0);
         boolean result = runtimeNode1.getFormula().truthEvaluation_ConC(runtimeNode1, ((FOr)originFormula).getSubformulas()[0], canConcurrent, checker);
         RuntimeNode runtimeNode2 = curNode.getChildren().get(1);
@@ -518,6 +530,7 @@ public class FOr extends Formula {
 
     @Override
     public Set<Link> linksGeneration_ConC(RuntimeNode curNode, Formula originFormula, boolean canConcurrent, final Set<RuntimeNode> prevSubstantialNodes, Checker checker) {
+        ShortCircuit.ensureEvaluated(curNode, ((FOr) originFormula).getSubformulas(), checker);
         Set<Link> result = new HashSet<>();
         RuntimeNode runtimeNode1 = curNode.getChildren().get(0);
         RuntimeNode runtimeNode2 = curNode.getChildren().get(1);
@@ -0,0 +1,45 @@
+package com.CC.Constraints.Formulas;
+
+import com.CC.Contexts.Context;
+
+import java.util.List;
+import java.util.Map;
+
+/*
+    <equal left = "v1.taxiId" right = "v2.taxiId"/>: the two fields have the same (string) value.
+ */
+public class FieldEqual extends NativePredicate {
+    private final Operand left;
+    private final Operand right;
+
+    public FieldEqual(Operand left, Operand right) {
+        this.left = left;
+        this.right = right;
+    }
+
+    //null if not well-formed
+    public static FieldEqual of(String left, String right){
+        Operand leftOperand = Operand.field(left);
+        Operand rightOperand = Operand.field(right);
+        if(leftOperand == null || rightOperand == null){
+            return null;
+        }
+        return new FieldEqual(leftOperand, rightOperand);
+    }
+
+    @Override
+    public boolean test(Map<String, Context> varEnv) {
+        String value = left.stringOf(varEnv);
+        return value != null && value.equals(right.stringOf(varEnv));
+    }
+
+    @Override
+    public List<String> getVars() {
+        return varsOf(left, right);
+    }
+
+    @Override
+    public String toString() {
+        return left + "==" + right;
+    }
+}
@@ -14,6 +14,7 @@ public abstract class Formula {
     public enum Formula_Type {FORALL, EXISTS, AND, OR, IMPLIES, NOT, BFUNC};
 
     private Formula_Type formula_type;
+    //per-check state, kept in the rule's tree only as runtime nodes share it for the structure
     private boolean Affected;
 
     public Formula_Type getFormula_type() {
@@ -40,8 +41,6 @@ public abstract class Formula {
     public abstract void updateCanConcurrent_INFUSE(boolean canConcurrent, Rule rule, Checker checker);
     public abstract void cleanAffectedAndCanConcurrent();
 
-    //RuntimeNode创建时使用
-    public abstract Formula formulaClone();
     //S-condition
     public abstract void deriveIncPlusSet(Set<Map.Entry<ContextChange.Change_Type, String>> incPlusSet);
     public abstract void deriveIncMinusSet(Set<Map.Entry<ContextChange.Change_Type, String>> incMinusSet);
@@ -51,7 +50,7 @@ public abstract class Formula {
     //DIS
     public abstract void deriveRCRESets(boolean from);
 
-    public abstract void taintSCCT(RuntimeNode curNode, Formula originFormula, Set<RuntimeNode> substantialNodes);
+    public abstract void taintSCCT(RuntimeNode curNode, Formula originFormula, Set<RuntimeNode> substantialNodes, Checker checker);
 
     //ECC && PCC
     public abstract void createBranches_ECCPCC(String rule_id, RuntimeNode curNode, Formula originFormula, Checker checker);
@@ -0,0 +1,73 @@
+package com.CC.Constraints.Formulas;
+
+import com.CC.Contexts.Context;
+import com.CC.Contexts.ContextPool;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+    Equality join key of a quantifier, e.g., <exists var = "v2" in = "pat_x" key = "taxiId" equals = "v1.taxiId">:
+    the quantifier only ranges over the contexts whose field equals the field of a variable bound outside of it.
+    A context without the field matches nothing. Contexts are looked up in a hash index on the field.
+ */
+public class JoinKey extends DomainFilter {
+    private final String field;
+    private final String outerField;
+
+    public JoinKey(String field, String outerVar, String outerField) {
+        super(outerVar);
+        this.field = field;
+        this.outerField = outerField;
+    }
+
+    //key = "taxiId" equals = "v1.taxiId", null if not well-formed
+    public static JoinKey of(String field, String equals){
+        int dot = equals == null ? -1 : equals.indexOf('.');
+        if(field == null || field.isEmpty() || dot <= 0 || dot == equals.length() - 1){
+            return null;
+        }
+        return new JoinKey(field, equals.substring(0, dot), equals.substring(dot + 1));
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public String getOuterField() {
+        return outerField;
+    }
+
+    //value to match under the variable environment of a node
+    private String valueOf(Map<String, Context> varEnv){
+        Context outerContext = varEnv.get(outerVar);
+        return outerContext == null ? null : outerContext.getString(outerField);
+    }
+
+    @Override
+    public boolean matches(Context context, Map<String, Context> varEnv){
+        String value = valueOf(varEnv);
+        return value != null && value.equals(context.getString(field));
+    }
+
+    @Override
+    public void addIndex(ContextPool contextPool, String pattern_id) {
+        contextPool.addIndex(pattern_id, field, context -> context.getString(field));
+    }
+
+    @Override
+    public Set<Context> select(ContextPool contextPool, String rule_id, String pattern_id, Map<String, Context> varEnv){
+        String value = valueOf(varEnv);
+        if(value == null){
+            return Collections.emptySet();
+        }
+        return contextPool.getPoolSet(rule_id, pattern_id, field, List.of(value), context -> value.equals(context.getString(field)));
+    }
+
+    @Override
+    public String toString() {
+        return field + "=" + outerVar + "." + outerField;
+    }
+}
@@ -0,0 +1,30 @@
+package com.CC.Constraints.Formulas;
+
+import com.CC.Contexts.Context;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+    Built-in predicate declared in the rule file instead of a bfunction (e.g., FieldEqual, NumericCompare, NumericRange,
+    DistanceWithin, StringMember). RuleHandler compiles it into a bfunc holding the predicate, which is evaluated on
+    the contexts directly, without the bfunction class. A predicate reading a missing or non-numeric field is false.
+ */
+public abstract class NativePredicate {
+
+    public abstract boolean test(Map<String, Context> varEnv);
+
+    //variables read by the predicate, in order of appearance
+    public abstract List<String> getVars();
+
+    protected static List<String> varsOf(Operand... operands){
+        List<String> vars = new ArrayList<>();
+        for(Operand operand : operands){
+            if(!operand.isConstant() && !vars.contains(operand.getVar())){
+                vars.add(operand.getVar());
+            }
+        }
+        return vars;
+    }
+}
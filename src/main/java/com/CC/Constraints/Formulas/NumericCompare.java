@@ -0,0 +1,66 @@
+package com.CC.Constraints.Formulas;
+
+import com.CC.Contexts.Context;
+
+import java.util.List;
+import java.util.Map;
+
+/*
+    <compare left = "v1.speed" op = "gt" right = "60"/>: numeric comparison of a field with a constant or another
+    field (e.g., right = "v2.speed"), op being one of lt, le, gt, ge, eq and ne.
+ */
+public class NumericCompare extends NativePredicate {
+    public enum Op {LT, LE, GT, GE, EQ, NE}
+
+    private final Operand left;
+    private final Op op;
+    private final Operand right;
+
+    public NumericCompare(Operand left, Op op, Operand right) {
+        this.left = left;
+        this.op = op;
+        this.right = right;
+    }
+
+    //null if not well-formed
+    public static NumericCompare of(String left, String op, String right){
+        Operand leftOperand = Operand.field(left);
+        Operand rightOperand = Operand.of(right);
+        if(leftOperand == null || rightOperand == null || op == null){
+            return null;
+        }
+        for(Op value : Op.values()){
+            if(value.name().equalsIgnoreCase(op)){
+                return new NumericCompare(leftOperand, value, rightOperand);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean test(Map<String, Context> varEnv) {
+        double a = left.numberOf(varEnv);
+        double b = right.numberOf(varEnv);
+        if(Double.isNaN(a) || Double.isNaN(b)){
+            return false;
+        }
+        switch (op){
+            case LT: return a < b;
+            case LE: return a <= b;
+            case GT: return a > b;
+            case GE: return a >= b;
+            case EQ: return a == b;
+            default: return a != b;
+        }
+    }
+
+    @Override
+    public List<String> getVars() {
+        return varsOf(left, right);
+    }
+
+    @Override
+    public String toString() {
+        return left + " " + op.name().toLowerCase() + " " + right;
+    }
+}
@@ -0,0 +1,51 @@
+package com.CC.Constraints.Formulas;
+
+import com.CC.Contexts.Context;
+
+import java.util.List;
+import java.util.Map;
+
+/*
+    <range value = "v1.speed" min = "0" max = "120"/>: min <= field <= max, either bound may be left out.
+ */
+public class NumericRange extends NativePredicate {
+    private final Operand value;
+    private final double min;
+    private final double max;
+
+    public NumericRange(Operand value, double min, double max) {
+        this.value = value;
+        this.min = min;
+        this.max = max;
+    }
+
+    //null if not well-formed
+    public static NumericRange of(String value, String min, String max){
+        Operand operand = Operand.field(value);
+        Double minValue = Operand.constantOf(min);
+        Double maxValue = Operand.constantOf(max);
+        if(operand == null || (min == null && max == null) || (min != null && minValue == null) || (max != null && maxValue == null)){
+            return null;
+        }
+        double lower = minValue == null ? Double.NEGATIVE_INFINITY : minValue;
+        double upper = maxValue == null ? Double.POSITIVE_INFINITY : maxValue;
+        return lower <= upper ? new NumericRange(operand, lower, upper) : null;
+    }
+
+    @Override
+    public boolean test(Map<String, Context> varEnv) {
+        double number = value.numberOf(varEnv);
+        //false for NaN
+        return number >= min && number <= max;
+    }
+
+    @Override
+    public List<String> getVars() {
+        return varsOf(value);
+    }
+
+    @Override
+    public String toString() {
+        return value + " in [" + min + "," + max + "]";
+    }
+}
@@ -0,0 +1,87 @@
+package com.CC.Constraints.Formulas;
+
+import com.CC.Contexts.Context;
+
+import java.util.Map;
+
+/*
+    Operand of a built-in predicate: a field of a variable, e.g., "v1.speed", or a numeric constant, e.g., "60".
+ */
+public final class Operand {
+    //null for a constant
+    private final String var;
+    private final String field;
+    private final double constant;
+
+    private Operand(String var, String field, double constant) {
+        this.var = var;
+        this.field = field;
+        this.constant = constant;
+    }
+
+    //"var.field", null if not well-formed
+    public static Operand field(String ref){
+        int dot = ref == null ? -1 : ref.indexOf('.');
+        if(dot <= 0 || dot == ref.length() - 1){
+            return null;
+        }
+        return new Operand(ref.substring(0, dot), ref.substring(dot + 1), Double.NaN);
+    }
+
+    //"var.field" or a number, null if neither
+    public static Operand of(String ref){
+        Double constant = constantOf(ref);
+        return constant != null ? new Operand(null, null, constant) : field(ref);
+    }
+
+    //finite number, null if not
+    public static Double constantOf(String value){
+        if(value == null){
+            return null;
+        }
+        try {
+            double constant = Double.parseDouble(value.trim());
+            return Double.isFinite(constant) ? constant : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public boolean isConstant(){
+        return var == null;
+    }
+
+    public String getVar() {
+        return var;
+    }
+
+    //null if the variable is unbound or has no such field
+    public String stringOf(Map<String, Context> varEnv){
+        Context context = varEnv.get(var);
+        return context == null ? null : context.getString(field);
+    }
+
+    //NaN if the variable is unbound or the field is missing or not numeric
+    public double numberOf(Map<String, Context> varEnv){
+        if(var == null){
+            return constant;
+        }
+        return numberOf(varEnv.get(var), field);
+    }
+
+    public static double numberOf(Context context, String field){
+        if(context == null || context.getString(field) == null){
+            return Double.NaN;
+        }
+        try {
+            return context.getDouble(field);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return var == null ? String.valueOf(constant) : var + "." + field;
+    }
+}
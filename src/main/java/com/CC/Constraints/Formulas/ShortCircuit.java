@@ -0,0 +1,92 @@
+package com.CC.Constraints.Formulas;
+
+import com.CC.Constraints.Runtime.RuntimeNode;
+import com.CC.Middleware.Checkers.Checker;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+    Short-circuit evaluation of the two sides of an and/or/implies.
+    The side evaluated first is the one with the lower sampled cost per decided result, i.e., the cheaper or more
+    often decisive side. When its truth decides the result, the other side is left pending (RuntimeNode.isPending())
+    and only evaluated by ensureEvaluated() if its truth is read later, e.g., by links generation.
+    Sampled evaluations evaluate both sides in order, so the profile of a side does not depend on the chosen order.
+ */
+public class ShortCircuit {
+    private static final int WARMUP_NUM = 16;
+    private static final int SAMPLE_RATE = 16;
+
+    //the truth of each side deciding the result by itself, and that result
+    private final boolean decisive0;
+    private final boolean decisive1;
+    private final boolean decidedResult;
+
+    private volatile long sampleNum;
+    private long nanos0;
+    private long nanos1;
+    private long decisiveNum0;
+    private long decisiveNum1;
+    private volatile int first;
+
+    @FunctionalInterface
+    public interface Evaluation {
+        boolean evaluate(RuntimeNode curNode, Formula originFormula);
+    }
+
+    public ShortCircuit(boolean decisive0, boolean decisive1, boolean decidedResult) {
+        this.decisive0 = decisive0;
+        this.decisive1 = decisive1;
+        this.decidedResult = decidedResult;
+        this.sampleNum = 0;
+        this.first = 0;
+    }
+
+    public boolean evaluate(RuntimeNode curNode, Formula[] subformulas, Evaluation evaluation){
+        RuntimeNode runtimeNode1 = curNode.getChildren().get(0);
+        RuntimeNode runtimeNode2 = curNode.getChildren().get(1);
+        if(sampleNum < WARMUP_NUM || ThreadLocalRandom.current().nextInt(SAMPLE_RATE) == 0){
+            long start = System.nanoTime();
+            boolean truth1 = evaluation.evaluate(runtimeNode1, subformulas[0]);
+            long mid = System.nanoTime();
+            boolean truth2 = evaluation.evaluate(runtimeNode2, subformulas[1]);
+            sample(mid - start, System.nanoTime() - mid, truth1 == decisive0, truth2 == decisive1);
+            return truth1 == decisive0 || truth2 == decisive1 ? decidedResult : !decidedResult;
+        }
+        if(first == 0){
+            if(evaluation.evaluate(runtimeNode1, subformulas[0]) == decisive0){
+                runtimeNode2.setPending(true);
+                return decidedResult;
+            }
+            return evaluation.evaluate(runtimeNode2, subformulas[1]) == decisive1 ? decidedResult : !decidedResult;
+        }
+        else{
+            if(evaluation.evaluate(runtimeNode2, subformulas[1]) == decisive1){
+                runtimeNode1.setPending(true);
+                return decidedResult;
+            }
+            return evaluation.evaluate(runtimeNode1, subformulas[0]) == decisive0 ? decidedResult : !decidedResult;
+        }
+    }
+
+    //evaluates the sides of curNode left pending, before their truths are read (ConC evaluates a side the same way)
+    public static void ensureEvaluated(RuntimeNode curNode, Formula[] subformulas, Checker checker){
+        for(int i = 0; i < 2; ++i){
+            RuntimeNode child = curNode.getChildren().get(i);
+            if(child.isPending()){
+                child.setPending(false);
+                child.getFormula().truthEvaluation_ECC(child, subformulas[i], checker);
+            }
+        }
+    }
+
+    private synchronized void sample(long cost0, long cost1, boolean decided0, boolean decided1){
+        //at least 1ns, so that a side deciding no result is never put first
+        nanos0 += Math.max(cost0, 1);
+        nanos1 += Math.max(cost1, 1);
+        decisiveNum0 += decided0 ? 1 : 0;
+        decisiveNum1 += decided1 ? 1 : 0;
+        sampleNum++;
+        //cost0 / P(decided0) <= cost1 / P(decided1), over the same samples
+        first = (double) nanos0 * decisiveNum1 <= (double) nanos1 * decisiveNum0 ? 0 : 1;
+    }
+}
@@ -0,0 +1,49 @@
+package com.CC.Constraints.Formulas;
+
+import com.CC.Contexts.Context;
+
+import java.util.*;
+
+/*
+    <member value = "v1.status" set = "free,busy"/>: the field is one of the comma-separated strings.
+ */
+public class StringMember extends NativePredicate {
+    private final Operand value;
+    private final Set<String> set;
+
+    public StringMember(Operand value, Set<String> set) {
+        this.value = value;
+        this.set = set;
+    }
+
+    //null if not well-formed
+    public static StringMember of(String value, String set){
+        Operand operand = Operand.field(value);
+        if(operand == null || set == null){
+            return null;
+        }
+        Set<String> strings = new HashSet<>();
+        for(String string : set.split(",")){
+            if(!string.trim().isEmpty()){
+                strings.add(string.trim());
+            }
+        }
+        return strings.isEmpty() ? null : new StringMember(operand, strings);
+    }
+
+    @Override
+    public boolean test(Map<String, Context> varEnv) {
+        String string = value.stringOf(varEnv);
+        return string != null && set.contains(string);
+    }
+
+    @Override
+    public List<String> getVars() {
+        return varsOf(value);
+    }
+
+    @Override
+    public String toString() {
+        return value + " in " + new TreeSet<>(set);
+    }
+}
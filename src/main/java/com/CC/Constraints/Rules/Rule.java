@@ -1,6 +1,7 @@
 package com.CC.Constraints.Rules;
 
 import com.CC.Constraints.Formulas.Formula;
+import com.CC.Constraints.Formulas.DomainFilter;
 import com.CC.Constraints.Runtime.Link;
 import com.CC.Constraints.Runtime.RuntimeNode;
 import com.CC.Contexts.Context;
@@ -19,6 +20,8 @@ public class Rule {
     private boolean CCTAlready;
     // Related patterns
     private final Map<String,String> varPatternMap;
+    //pattern to the domain filter of its quantifier (e.g., a join key), if declared
+    private final Map<String, DomainFilter> patToDomainFilter;
 
     //for INFUSE
     //pat to maxUnderDepth
@@ -39,7 +42,7 @@ public class Rule {
     private List<ContextChange> newBatch;
 
     //GEAS C-condition
-    private final Set<String> criticalSet;
+    private final Set<Context> criticalSet;
 
 
     //constructor
@@ -48,6 +51,7 @@ public class Rule {
         this.CCTRoot = null;
         this.CCTAlready = false;
         this.varPatternMap = new HashMap<>();
+        this.patToDomainFilter = new HashMap<>();
         //GEAS
         this.incMinusSet = new HashSet<>();
         this.incPlusSet = new HashSet<>();
@@ -94,13 +98,13 @@ public class Rule {
         this.criticalSet.clear();
         for(Link link : links){
             for(Map.Entry<String, Context> entry : link.getVaSet()){
-                this.criticalSet.add(entry.getValue().getCtx_id());
+                this.criticalSet.add(entry.getValue());
             }
         }
     }
 
-    public boolean inCriticalSet(String ctx_id){
-        return this.criticalSet.contains(ctx_id);
+    public boolean inCriticalSet(Context context){
+        return this.criticalSet.contains(context);
     }
 
     //DIS
@@ -131,9 +135,9 @@ public class Rule {
     }
 
     //MG
-    public Set<RuntimeNode> taintSCCT(){
+    public Set<RuntimeNode> taintSCCT(Checker checker){
         Set<RuntimeNode> curSubstantialNodes = new HashSet<>();
-        this.CCTRoot.getFormula().taintSCCT(this.CCTRoot, this.formula, curSubstantialNodes);
+        this.CCTRoot.getFormula().taintSCCT(this.CCTRoot, this.formula, curSubstantialNodes, checker);
         return curSubstantialNodes;
     }
 
@@ -290,6 +294,10 @@ public class Rule {
         return varPatternMap;
     }
 
+    public Map<String, DomainFilter> getPatToDomainFilter() {
+        return patToDomainFilter;
+    }
+
     public List<ContextChange> getBatch() {
         return batch;
     }
@@ -306,7 +314,7 @@ public class Rule {
         return incPlusSet;
     }
 
-    public Set<String> getCriticalSet() {
+    public Set<Context> getCriticalSet() {
         return criticalSet;
     }
 
@@ -15,9 +15,12 @@ import java.util.*;
 public class RuleHandler implements Loggable {
 
     private final Map<String, Rule> ruleMap;
+    //whether any rule calls the bfunction class, rather than only built-in predicates
+    private boolean bfuncUsed;
 
     public RuleHandler() {
         this.ruleMap = new HashMap<>();
+        this.bfuncUsed = false;
     }
 
     public void buildRules(String filename) throws Exception {
@@ -34,21 +37,23 @@ public class RuleHandler implements Loggable {
                 // formula
                 assert eLabelList.get(1).getName().equals("formula");
                 Element eFormula =  eLabelList.get(1).elements().get(0);
-                newRule.setFormula(resolveFormula(eFormula, newRule.getVarPatternMap(), newRule.getPatToFormula(), newRule.getPatToRuntimeNode(), 0));
+                newRule.setFormula(resolveFormula(eFormula, newRule.getRule_id(), newRule.getVarPatternMap(), newRule.getPatToFormula(), newRule.getPatToRuntimeNode(), 0));
                 setPatWithDepth(newRule.getFormula(), newRule.getPatToDepth(), newRule.getDepthToPat());
+                setPatWithDomainFilter(newRule, newRule.getFormula(), new HashSet<>());
                 ruleMap.put(newRule.getRule_id(), newRule);
             }
         }
     }
 
-    private Formula resolveFormula(Element eFormula, Map<String, String> varPatternMap, Map<String, Formula> patToFormula,
+    private Formula resolveFormula(Element eFormula, String rule_id, Map<String, String> varPatternMap, Map<String, Formula> patToFormula,
                                    Map<String, Set<RuntimeNode>> patToRunTimeNode, int depth){
         Formula retFormula = null;
         switch (eFormula.getName()){
             case "forall":{
-                FForall tmpForall = new FForall(eFormula.attributeValue("var"), eFormula.attributeValue("in"));
+                FForall tmpForall = new FForall(eFormula.attributeValue("var"), eFormula.attributeValue("in"), rule_id);
+                tmpForall.setDomainFilter(resolveDomainFilter(eFormula, rule_id));
                 // forall has only one kid
-                tmpForall.setSubformula(resolveFormula(eFormula.elements().get(0), varPatternMap, patToFormula, patToRunTimeNode, depth + 1));
+                tmpForall.setSubformula(resolveFormula(eFormula.elements().get(0), rule_id, varPatternMap, patToFormula, patToRunTimeNode, depth + 1));
                 varPatternMap.put(eFormula.attributeValue("var"), eFormula.attributeValue("in"));
                 patToFormula.put(eFormula.attributeValue("in"), tmpForall);
                 patToRunTimeNode.put(eFormula.attributeValue("in"), new HashSet<>());
@@ -56,9 +61,10 @@ public class RuleHandler implements Loggable {
                 break;
             }
             case "exists":{
-                FExists tmpExists = new FExists(eFormula.attributeValue("var"), eFormula.attributeValue("in"));
+                FExists tmpExists = new FExists(eFormula.attributeValue("var"), eFormula.attributeValue("in"), rule_id);
+                tmpExists.setDomainFilter(resolveDomainFilter(eFormula, rule_id));
                 // exists has only one kid
-                tmpExists.setSubformula(resolveFormula(eFormula.elements().get(0), varPatternMap, patToFormula, patToRunTimeNode, depth + 1));
+                tmpExists.setSubformula(resolveFormula(eFormula.elements().get(0), rule_id, varPatternMap, patToFormula, patToRunTimeNode, depth + 1));
                 varPatternMap.put(eFormula.attributeValue("var"), eFormula.attributeValue("in"));
                 patToFormula.put(eFormula.attributeValue("in"), tmpExists);
                 patToRunTimeNode.put(eFormula.attributeValue("in"), new HashSet<>());
@@ -68,42 +74,52 @@ public class RuleHandler implements Loggable {
             case "and":{
                 FAnd tmpAnd = new FAnd();
                 // and has two kids
-                tmpAnd.replaceSubformula(0, resolveFormula(eFormula.elements().get(0), varPatternMap, patToFormula, patToRunTimeNode, depth + 1));
-                tmpAnd.replaceSubformula(1, resolveFormula(eFormula.elements().get(1), varPatternMap, patToFormula, patToRunTimeNode, depth + 1));
+                tmpAnd.replaceSubformula(0, resolveFormula(eFormula.elements().get(0), rule_id, varPatternMap, patToFormula, patToRunTimeNode, depth + 1));
+                tmpAnd.replaceSubformula(1, resolveFormula(eFormula.elements().get(1), rule_id, varPatternMap, patToFormula, patToRunTimeNode, depth + 1));
                 retFormula = tmpAnd;
                 break;
             }
             case "or" :{
                 FOr tmpOr = new FOr();
                 // or has two kids
-                tmpOr.replaceSubformula(0, resolveFormula(eFormula.elements().get(0), varPatternMap, patToFormula, patToRunTimeNode, depth + 1));
-                tmpOr.replaceSubformula(1, resolveFormula(eFormula.elements().get(1), varPatternMap, patToFormula, patToRunTimeNode, depth + 1));
+                tmpOr.replaceSubformula(0, resolveFormula(eFormula.elements().get(0), rule_id, varPatternMap, patToFormula, patToRunTimeNode, depth + 1));
+                tmpOr.replaceSubformula(1, resolveFormula(eFormula.elements().get(1), rule_id, varPatternMap, patToFormula, patToRunTimeNode, depth + 1));
                 retFormula = tmpOr;
                 break;
             }
             case "implies" :{
                 FImplies tmpImplies = new FImplies();
                 // implies has two kids
-                tmpImplies.replaceSubformula(0, resolveFormula(eFormula.elements().get(0), varPatternMap, patToFormula, patToRunTimeNode, depth + 1));
-                tmpImplies.replaceSubformula(1, resolveFormula(eFormula.elements().get(1), varPatternMap, patToFormula, patToRunTimeNode, depth + 1));
+                tmpImplies.replaceSubformula(0, resolveFormula(eFormula.elements().get(0), rule_id, varPatternMap, patToFormula, patToRunTimeNode, depth + 1));
+                tmpImplies.replaceSubformula(1, resolveFormula(eFormula.elements().get(1), rule_id, varPatternMap, patToFormula, patToRunTimeNode, depth + 1));
                 retFormula = tmpImplies;
                 break;
             }
             case "not" :{
                 FNot tmpNot = new FNot();
                 // not has only one kid
-                tmpNot.setSubformula(resolveFormula(eFormula.elements().get(0), varPatternMap, patToFormula, patToRunTimeNode, depth + 1));
+                tmpNot.setSubformula(resolveFormula(eFormula.elements().get(0), rule_id, varPatternMap, patToFormula, patToRunTimeNode, depth + 1));
                 retFormula = tmpNot;
                 break;
             }
             case "bfunc" :{
                 FBfunc tmpBfunc = new FBfunc(eFormula.attributeValue("name"));
+                tmpBfunc.setDeterministic(!"false".equals(eFormula.attributeValue("deterministic")));
                 // bfunc has several params
                 List<Element> paramElementList = eFormula.elements();
                 for(Element paramElement : paramElementList){
                     tmpBfunc.addParam(paramElement.attributeValue("pos"), paramElement.attributeValue("var"));
                 }
                 retFormula = tmpBfunc;
+                bfuncUsed = true;
+                break;
+            }
+            case "equal":
+            case "compare":
+            case "range":
+            case "distance":
+            case "member":{
+                retFormula = resolvePredicate(eFormula, rule_id);
                 break;
             }
             default:
@@ -113,6 +129,122 @@ public class RuleHandler implements Loggable {
         return retFormula;
     }
 
+    //built-in predicates are compiled into bfuncs evaluating them without the bfunction class
+    private FBfunc resolvePredicate(Element eFormula, String rule_id){
+        NativePredicate predicate = null;
+        String usage = null;
+        switch (eFormula.getName()){
+            case "equal":
+                predicate = FieldEqual.of(eFormula.attributeValue("left"), eFormula.attributeValue("right"));
+                usage = "left = \"var.field\" right = \"var.field\"";
+                break;
+            case "compare":
+                predicate = NumericCompare.of(eFormula.attributeValue("left"), eFormula.attributeValue("op"), eFormula.attributeValue("right"));
+                usage = "left = \"var.field\" op = \"lt/le/gt/ge/eq/ne\" right = \"var.field or number\"";
+                break;
+            case "range":
+                predicate = NumericRange.of(eFormula.attributeValue("value"), eFormula.attributeValue("min"), eFormula.attributeValue("max"));
+                usage = "value = \"var.field\" and min = \"number\" and/or max = \"number\"";
+                break;
+            case "distance":
+                predicate = DistanceWithin.of(eFormula.attributeValue("from"), eFormula.attributeValue("to"), eFormula.attributeValue("within"),
+                        eFormula.attributeValue("coords"), eFormula.attributeValue("metric"));
+                usage = "from = \"var\" to = \"var\" within = \"distance\" and optionally coords = \"xField,yField\" metric = \"euclidean/haversine\"";
+                break;
+            case "member":
+                predicate = StringMember.of(eFormula.attributeValue("value"), eFormula.attributeValue("set"));
+                usage = "value = \"var.field\" set = \"string1,string2,...\"";
+                break;
+            default:
+                assert false;
+        }
+        if(predicate == null){
+            logger.error("\033[91m" + "Illegal " + eFormula.getName() + " in " + rule_id + ", please use " + usage + "\033[0m");
+            System.exit(1);
+        }
+        FBfunc tmpBfunc = new FBfunc(eFormula.getName());
+        tmpBfunc.setPredicate(predicate);
+        List<String> vars = predicate.getVars();
+        for(int i = 0; i < vars.size(); ++i){
+            tmpBfunc.addParam(String.valueOf(i + 1), vars.get(i));
+        }
+        return tmpBfunc;
+    }
+
+    //key = "field" equals = "var.field", or near = "var" within = "distance" [coords = "x,y"], null if not declared
+    private DomainFilter resolveDomainFilter(Element eFormula, String rule_id){
+        boolean isJoinKey = eFormula.attributeValue("key") != null || eFormula.attributeValue("equals") != null;
+        boolean isDistanceBound = eFormula.attributeValue("near") != null || eFormula.attributeValue("within") != null
+                || eFormula.attributeValue("coords") != null;
+        if(!isJoinKey && !isDistanceBound){
+            return null;
+        }
+        DomainFilter domainFilter = null;
+        if(isJoinKey && isDistanceBound){
+            logger.error("\033[91m" + "Variable " + eFormula.attributeValue("var") + " in " + rule_id
+                    + " has both a join key and a distance bound, please keep one of them" + "\033[0m");
+            System.exit(1);
+        }
+        else if(isJoinKey){
+            domainFilter = JoinKey.of(eFormula.attributeValue("key"), eFormula.attributeValue("equals"));
+            if(domainFilter == null){
+                logger.error("\033[91m" + "Illegal join key of variable " + eFormula.attributeValue("var") + " in " + rule_id
+                        + ", please use key = \"field\" equals = \"var.field\"" + "\033[0m");
+                System.exit(1);
+            }
+        }
+        else{
+            domainFilter = DistanceBound.of(eFormula.attributeValue("near"), eFormula.attributeValue("within"), eFormula.attributeValue("coords"));
+            if(domainFilter == null){
+                logger.error("\033[91m" + "Illegal distance bound of variable " + eFormula.attributeValue("var") + " in " + rule_id
+                        + ", please use near = \"var\" within = \"positive distance\" and optionally coords = \"xField,yField\"" + "\033[0m");
+                System.exit(1);
+            }
+        }
+        return domainFilter;
+    }
+
+    //domain filters must refer to variables of enclosing quantifiers
+    private void setPatWithDomainFilter(Rule rule, Formula formula, Set<String> boundVars){
+        switch (formula.getFormula_type()){
+            case FORALL:
+            case EXISTS:{
+                String var = formula instanceof FForall ? ((FForall)formula).getVar() : ((FExists)formula).getVar();
+                String pattern_id = formula instanceof FForall ? ((FForall)formula).getPattern_id() : ((FExists)formula).getPattern_id();
+                DomainFilter domainFilter = formula instanceof FForall ? ((FForall)formula).getDomainFilter() : ((FExists)formula).getDomainFilter();
+                if(domainFilter != null){
+                    if(!boundVars.contains(domainFilter.getOuterVar())){
+                        logger.error("\033[91m" + "Domain of variable " + var + " in " + rule.getRule_id()
+                                + " refers to " + domainFilter.getOuterVar() + ", which is not bound by an enclosing quantifier" + "\033[0m");
+                        System.exit(1);
+                    }
+                    rule.getPatToDomainFilter().put(pattern_id, domainFilter);
+                }
+                Set<String> innerVars = new HashSet<>(boundVars);
+                innerVars.add(var);
+                setPatWithDomainFilter(rule, formula instanceof FForall ? ((FForall)formula).getSubformula() : ((FExists)formula).getSubformula(), innerVars);
+                break;
+            }
+            case AND:
+                setPatWithDomainFilter(rule, ((FAnd)formula).getSubformulas()[0], boundVars);
+                setPatWithDomainFilter(rule, ((FAnd)formula).getSubformulas()[1], boundVars);
+                break;
+            case OR:
+                setPatWithDomainFilter(rule, ((FOr)formula).getSubformulas()[0], boundVars);
+                setPatWithDomainFilter(rule, ((FOr)formula).getSubformulas()[1], boundVars);
+                break;
+            case IMPLIES:
+                setPatWithDomainFilter(rule, ((FImplies)formula).getSubformulas()[0], boundVars);
+                setPatWithDomainFilter(rule, ((FImplies)formula).getSubformulas()[1], boundVars);
+                break;
+            case NOT:
+                setPatWithDomainFilter(rule, ((FNot)formula).getSubformula(), boundVars);
+                break;
+            default:
+                break;
+        }
+    }
+
     private int setPatWithDepth(Formula formula, Map<String,Integer> patToDepth, Map<Integer, String> depthToPat){
         int maxDepth;
         switch (formula.getFormula_type()){
@@ -153,4 +285,8 @@ public class RuleHandler implements Loggable {
         return ruleMap;
     }
 
+    public boolean isBfuncUsed() {
+        return bfuncUsed;
+    }
+
 }
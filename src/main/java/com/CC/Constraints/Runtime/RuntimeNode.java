@@ -23,6 +23,9 @@ public class RuntimeNode {
     //for GEAS-opt
     private boolean optTruth;
 
+    //for short-circuit evaluation: the truth is not evaluated yet
+    private boolean pending;
+
     //for DIS
     public enum Virtual_Truth_Type {TRUE, FALSE, UNKNOWN};
     private Virtual_Truth_Type virtualTruth;
@@ -31,8 +34,8 @@ public class RuntimeNode {
 
     //constructor
     public RuntimeNode(Formula formula){
-        //need to create a new formula
-        this.formula = formula.formulaClone();
+        //the formula is the rule's own node, shared by all runtime nodes of it
+        this.formula = formula;
         this.depth = -1;
         this.children = new ArrayList<>();
         this.varEnv = new HashMap<>();
@@ -93,6 +96,10 @@ public class RuntimeNode {
         return truth;
     }
 
+    public boolean isPending() {
+        return pending;
+    }
+
     public int getDepth() {
         return depth;
     }
@@ -126,6 +133,10 @@ public class RuntimeNode {
         this.truth = truth;
     }
 
+    public void setPending(boolean pending) {
+        this.pending = pending;
+    }
+
     public void setVarEnv(HashMap<String, Context> varEnv) {
         this.varEnv = varEnv;
     }
@@ -0,0 +1,46 @@
+package com.CC.Contexts;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/*
+    A line as bytes [start, end) of a (mapped) buffer, read with absolute gets only,
+    so slices of the same buffer can be parsed on different threads.
+ */
+public class ByteSlice {
+    private final ByteBuffer buffer;
+    private final int start;
+    private final int end;
+
+    public ByteSlice(ByteBuffer buffer, int start, int end) {
+        this.buffer = buffer;
+        this.start = start;
+        this.end = end;
+    }
+
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public int length(){
+        return end - start;
+    }
+
+    //decodes the whole line, only for parsers working on Strings
+    @Override
+    public String toString() {
+        byte[] bytes = new byte[end - start];
+        for(int i = start; i < end; ++i){
+            bytes[i - start] = buffer.get(i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,27 +1,245 @@
 package com.CC.Contexts;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
-public class Context {
+public class Context implements ContextView {
+    //value of JSON null, kept apart from absent fields (null)
+    private static final String NULL_VALUE = new String("null");
+
+    //number of a context without id
+    public static final long NO_NUM = Long.MIN_VALUE;
+
+    //values of a context without fields yet
+    private static final String[] NO_VALUES = new String[0];
+    private static final String[] RELEASED_VALUES = new String[0];
+    //values of a context moved to an arena
+    private static final String[] OFF_HEAP_VALUES = new String[0];
+    //first length of the values of a context
+    private static final int MIN_VALUES_LENGTH = 8;
+    //value arrays of released contexts, reused by contexts growing to the same size
+    private static final int RECYCLED_CAPACITY = 1024;
+    private static final String[][] recycledValues = new String[RECYCLED_CAPACITY][];
+    private static int recycledNum = 0;
+
+    //identity of the context, the id string of "ctx_N" is only made for output (see ContextIds)
+    private long ctx_num;
+    //id of a context numbered below 0, i.e., not in the form of "ctx_N"
     private String ctx_id;
+    //hash of the id string, so that hash-ordered output (e.g., variables of links) keeps its order
+    private int ctx_hash;
+
+    //field names of the slots
+    private final ContextSchema schema;
+    //field values by slot of the schema, up to the highest slot put
+    private String[] ctx_values;
+    //record of the field values when they are kept off-heap, see ContextArena
+    private ContextArena ctx_arena;
+    private long ctx_handle;
+
+    //values parsed by typed getters, created on first use and dropped when a field is put
+    private volatile ParsedValues parsedValues;
 
-    private final Map<String, String> ctx_fields;
+    //references from pool sets of rules, see ContextLifecycle
+    private int ctx_refs;
 
+    //a context with a schema of its own, e.g., one built by hand
     public Context() {
-        this.ctx_fields = new HashMap<>();
+        this(new ContextSchema());
     }
 
+    public Context(ContextSchema schema) {
+        this.ctx_num = NO_NUM;
+        this.ctx_hash = 0;
+        this.schema = schema;
+        this.ctx_values = NO_VALUES;
+    }
+
+    @Override
     public String getCtx_id() {
-        return ctx_id;
+        return ContextIds.isCanonical(ctx_num) ? ContextIds.toCtxId(ctx_num) : ctx_id;
+    }
+
+    public long getCtx_num() {
+        return ctx_num;
     }
 
+    //map view of the fields, changes are written through
+    @Override
     public Map<String, String> getCtx_fields() {
-        return ctx_fields;
+        return new FieldMap();
+    }
+
+    @Override
+    public String getString(String field) {
+        int slot = schema.slotOf(field);
+        return slot < 0 ? null : decode(valueAt(slot));
+    }
+
+    @Override
+    public double getDouble(String field) {
+        int slot = schema.slotOf(field);
+        ParsedValues values = parsedValues();
+        if(slot < 0 || slot >= values.doubles.length){
+            return Double.parseDouble(getString(field));
+        }
+        long bit = 1L << slot;
+        if((values.doubleMask & bit) != 0){
+            return values.doubles[slot];
+        }
+        double value = Double.parseDouble(getString(field));
+        synchronized (values){
+            values.doubles[slot] = value;
+            values.doubleMask |= bit;
+        }
+        return value;
+    }
+
+    @Override
+    public long getLong(String field) {
+        int slot = schema.slotOf(field);
+        ParsedValues values = parsedValues();
+        if(slot < 0 || slot >= values.longs.length){
+            return Long.parseLong(getString(field));
+        }
+        long bit = 1L << slot;
+        if((values.longMask & bit) != 0){
+            return values.longs[slot];
+        }
+        long value = Long.parseLong(getString(field));
+        synchronized (values){
+            values.longs[slot] = value;
+            values.longMask |= bit;
+        }
+        return value;
+    }
+
+    //a lost race only drops cached values, which are parsed again
+    private ParsedValues parsedValues(){
+        ParsedValues values = parsedValues;
+        if(values == null){
+            values = new ParsedValues(Math.min(schema.getFieldNum(), 64));
+            parsedValues = values;
+        }
+        return values;
+    }
+
+    public void setCtx_id(String ctx_id, ContextIds ctxIds) {
+        this.ctx_num = ctxIds.toCtxNum(ctx_id);
+        this.ctx_id = ContextIds.isCanonical(this.ctx_num) ? null : ctx_id;
+        this.ctx_hash = ctx_id == null ? 0 : ctx_id.hashCode();
+    }
+
+    public void setCtx_num(long ctx_num) {
+        this.ctx_num = ctx_num;
+        this.ctx_id = null;
+        this.ctx_hash = ContextIds.isCanonical(ctx_num) ? ContextIds.hashOf(ctx_num) : 0;
+    }
+
+    void retain(int refNum){
+        ctx_refs += refNum;
+    }
+
+    int drop(){
+        return --ctx_refs;
+    }
+
+    int getRefCount(){
+        return ctx_refs;
+    }
+
+    //drops the field values, the context keeps only its identity
+    void release(){
+        if(ctx_arena != null){
+            ctx_arena.free(ctx_handle);
+            ctx_arena = null;
+        }
+        String[] values = ctx_values;
+        ctx_values = RELEASED_VALUES;
+        parsedValues = null;
+        recycleValues(values);
+    }
+
+    //moves the field values into the arena, they are read from there until a field is written
+    void moveOffHeap(ContextArena arena){
+        if(ctx_arena != null || isReleased()){
+            return;
+        }
+        String[] values = ctx_values;
+        ctx_handle = arena.allocate(values, NULL_VALUE);
+        ctx_arena = arena;
+        ctx_values = OFF_HEAP_VALUES;
+        recycleValues(values);
     }
 
-    public void setCtx_id(String ctx_id) {
-        this.ctx_id = ctx_id;
+    public boolean isOffHeap(){
+        return ctx_arena != null;
+    }
+
+    public boolean isReleased(){
+        return ctx_values == RELEASED_VALUES;
+    }
+
+    //raw value of the slot, NULL_VALUE for JSON null
+    private String valueAt(int slot){
+        ContextArena arena = ctx_arena;
+        if(arena != null){
+            return arena.get(ctx_handle, slot, NULL_VALUE);
+        }
+        String[] values = ctx_values;
+        return slot < values.length ? values[slot] : null;
+    }
+
+    //values to read, decoded from the arena for an off-heap context
+    private String[] readValues(){
+        ContextArena arena = ctx_arena;
+        if(arena != null){
+            return arena.getAll(ctx_handle, 0, NULL_VALUE);
+        }
+        return ctx_values;
+    }
+
+    //values to write, an off-heap context is moved back to the heap first
+    private String[] writeValues(){
+        if(ctx_arena != null){
+            String[] values = readValues();
+            ctx_arena.free(ctx_handle);
+            ctx_arena = null;
+            ctx_values = values;
+        }
+        return ctx_values;
+    }
+
+    //grows the values to hold the slot, doubling up to the number of fields of the schema
+    private String[] growValues(String[] values, int slot){
+        int length = Math.min(Math.max(Math.max(slot + 1, values.length * 2), MIN_VALUES_LENGTH), schema.getFieldNum());
+        //the slot is registered, so the schema has more fields than it
+        String[] newValues = obtainValues(length);
+        System.arraycopy(values, 0, newValues, 0, values.length);
+        return newValues;
+    }
+
+    private static String[] obtainValues(int length){
+        synchronized (recycledValues){
+            //arrays of other sizes are left for other contexts
+            if(recycledNum > 0 && recycledValues[recycledNum - 1].length == length){
+                String[] values = recycledValues[--recycledNum];
+                recycledValues[recycledNum] = null;
+                return values;
+            }
+        }
+        return new String[length];
+    }
+
+    private static void recycleValues(String[] values){
+        if(values.length == 0){
+            return;
+        }
+        Arrays.fill(values, null);
+        synchronized (recycledValues){
+            if(recycledNum < RECYCLED_CAPACITY){
+                recycledValues[recycledNum++] = values;
+            }
+        }
     }
 
     @Override
@@ -31,16 +249,161 @@ public class Context {
 
         Context context = (Context) o;
 
-        return ctx_id.equals(context.ctx_id);
+        return ctx_num == context.ctx_num;
     }
 
     @Override
     public int hashCode() {
-        return ctx_id.hashCode();
+        return ctx_hash;
     }
 
     @Override
     public String toString() {
-        return "ctx_id=" + ctx_id ;
+        return "ctx_id=" + getCtx_id() ;
+    }
+
+    //slots below 64 are cached, a mask bit is set after its value is written
+    private static class ParsedValues {
+        private final double[] doubles;
+        private final long[] longs;
+        private volatile long doubleMask;
+        private volatile long longMask;
+
+        private ParsedValues(int slotNum) {
+            this.doubles = new double[slotNum];
+            this.longs = new long[slotNum];
+        }
+    }
+
+    private static String decode(String value){
+        return value == NULL_VALUE ? null : value;
+    }
+
+    private class FieldMap extends AbstractMap<String, String> {
+
+        private int slotOf(Object key){
+            if(!(key instanceof String)){
+                return -1;
+            }
+            return schema.slotOf((String) key);
+        }
+
+        @Override
+        public String get(Object key) {
+            int slot = slotOf(key);
+            return slot < 0 ? null : decode(valueAt(slot));
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            int slot = slotOf(key);
+            return slot >= 0 && valueAt(slot) != null;
+        }
+
+        @Override
+        public String put(String key, String value) {
+            int slot = schema.register(key);
+            String[] values = writeValues();
+            if(slot >= values.length){
+                values = growValues(values, slot);
+                ctx_values = values;
+            }
+            String oldValue = values[slot];
+            values[slot] = value == null ? NULL_VALUE : value;
+            parsedValues = null;
+            return decode(oldValue);
+        }
+
+        @Override
+        public String remove(Object key) {
+            int slot = slotOf(key);
+            if(slot < 0 || valueAt(slot) == null){
+                return null;
+            }
+            String[] values = writeValues();
+            String oldValue = values[slot];
+            values[slot] = null;
+            parsedValues = null;
+            return decode(oldValue);
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for(String value : readValues()){
+                if(value != null){
+                    size++;
+                }
+            }
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            Arrays.fill(writeValues(), null);
+            parsedValues = null;
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new FieldIterator();
+                }
+
+                @Override
+                public int size() {
+                    return FieldMap.this.size();
+                }
+            };
+        }
+    }
+
+    //fields in slot order, an off-heap context is iterated over a decoded copy
+    private class FieldIterator implements Iterator<Map.Entry<String, String>> {
+        private final String[] values = readValues();
+        private int nextSlot = advance(0);
+        private int lastSlot = -1;
+
+        private int advance(int slot){
+            while(slot < values.length && values[slot] == null){
+                slot++;
+            }
+            return slot;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextSlot < values.length;
+        }
+
+        @Override
+        public Map.Entry<String, String> next() {
+            if(!hasNext()){
+                throw new NoSuchElementException();
+            }
+            lastSlot = nextSlot;
+            nextSlot = advance(nextSlot + 1);
+            int slot = lastSlot;
+            return new AbstractMap.SimpleEntry<>(schema.getFieldName(slot), decode(values[slot])) {
+                @Override
+                public String setValue(String value) {
+                    writeValues()[slot] = value == null ? NULL_VALUE : value;
+                    parsedValues = null;
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if(lastSlot < 0){
+                throw new IllegalStateException();
+            }
+            writeValues()[lastSlot] = null;
+            parsedValues = null;
+            lastSlot = -1;
+        }
     }
 }
@@ -0,0 +1,253 @@
+package com.CC.Contexts;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/*
+    Off-heap storage of context field values, in chunks of direct ByteBuffers.
+    A record is [field number][slot, value length + 1 (0 for JSON null), UTF-8 bytes]... with varint numbers,
+    and is addressed by a handle of (chunk index << 32 | offset). Records are allocated in data order and freed
+    when their contexts are released, and a chunk is reused once all of its records are freed,
+    so the off-heap size follows the live contexts while the heap only keeps a handle per context.
+    Allocating and freeing happen on the checking thread, records may be read from any thread.
+ */
+public class ContextArena {
+    public static final int defaultChunkSize = 4 * 1024 * 1024;
+    //free chunks kept for reuse, others are left to the GC
+    private static final int FREE_CHUNK_LIMIT = 16;
+
+    private final int chunkSize;
+    //replaced as a whole when a chunk is added, so readers need no lock
+    private volatile ByteBuffer[] chunks;
+    private int[] liveRecords;
+    private int chunkNum;
+    private final ArrayDeque<Integer> freeChunks;
+    private int currentChunk;
+    private int currentOffset;
+    private byte[] scratch;
+
+    private long recordNum;
+    private long liveBytes;
+
+    public ContextArena() {
+        this(defaultChunkSize);
+    }
+
+    public ContextArena(int chunkSize) {
+        this.chunkSize = chunkSize;
+        this.chunks = new ByteBuffer[8];
+        this.liveRecords = new int[8];
+        this.chunkNum = 0;
+        this.freeChunks = new ArrayDeque<>();
+        this.currentChunk = -1;
+        this.currentOffset = 0;
+        this.scratch = new byte[256];
+        this.recordNum = 0L;
+        this.liveBytes = 0L;
+    }
+
+    //values by slot, null for absent fields, JSON null as nullValue
+    public long allocate(String[] values, String nullValue){
+        int length = encode(values, nullValue);
+        if(currentChunk < 0 || currentOffset + length > chunks[currentChunk].capacity()){
+            nextChunk(length);
+        }
+        ByteBuffer chunk = chunks[currentChunk];
+        for(int i = 0; i < length; ++i){
+            chunk.put(currentOffset + i, scratch[i]);
+        }
+        long handle = ((long) currentChunk << 32) | currentOffset;
+        currentOffset += length;
+        liveRecords[currentChunk]++;
+        recordNum++;
+        liveBytes += length;
+        return handle;
+    }
+
+    public void free(long handle){
+        int chunkIndex = (int) (handle >>> 32);
+        recordNum--;
+        liveBytes -= recordLength(chunks[chunkIndex], (int) handle);
+        if(--liveRecords[chunkIndex] == 0 && chunkIndex != currentChunk){
+            recycle(chunkIndex);
+        }
+    }
+
+    //value of the slot, null if absent, nullValue for JSON null
+    public String get(long handle, int slot, String nullValue){
+        ByteBuffer chunk = chunks[(int) (handle >>> 32)];
+        int[] pos = {(int) handle};
+        int fieldNum = readVarInt(chunk, pos);
+        for(int i = 0; i < fieldNum; ++i){
+            int fieldSlot = readVarInt(chunk, pos);
+            int length = readVarInt(chunk, pos);
+            if(fieldSlot == slot){
+                return length == 0 ? nullValue : decode(chunk, pos[0], length - 1);
+            }
+            pos[0] += Math.max(length - 1, 0);
+        }
+        return null;
+    }
+
+    //values by slot, of the given length at least
+    public String[] getAll(long handle, int minLength, String nullValue){
+        ByteBuffer chunk = chunks[(int) (handle >>> 32)];
+        int[] pos = {(int) handle};
+        int fieldNum = readVarInt(chunk, pos);
+        String[] values = new String[minLength];
+        for(int i = 0; i < fieldNum; ++i){
+            int fieldSlot = readVarInt(chunk, pos);
+            int length = readVarInt(chunk, pos);
+            if(fieldSlot >= values.length){
+                values = Arrays.copyOf(values, fieldSlot + 1);
+            }
+            values[fieldSlot] = length == 0 ? nullValue : decode(chunk, pos[0], length - 1);
+            pos[0] += Math.max(length - 1, 0);
+        }
+        return values;
+    }
+
+    //chunks holding live records
+    public int getChunkNum(){
+        int num = 0;
+        for(int i = 0; i < chunkNum; ++i){
+            if(chunks[i] != null && liveRecords[i] > 0){
+                num++;
+            }
+        }
+        return num;
+    }
+
+    public long getRecordNum() {
+        return recordNum;
+    }
+
+    public long getLiveBytes() {
+        return liveBytes;
+    }
+
+    private int encode(String[] values, String nullValue){
+        int pos = 0;
+        int fieldNum = 0;
+        for(String value : values){
+            if(value != null){
+                fieldNum++;
+            }
+        }
+        pos = putVarInt(pos, fieldNum);
+        for(int slot = 0; slot < values.length; ++slot){
+            String value = values[slot];
+            if(value == null){
+                continue;
+            }
+            pos = putVarInt(pos, slot);
+            if(value == nullValue){
+                pos = putVarInt(pos, 0);
+                continue;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            pos = putVarInt(pos, bytes.length + 1);
+            ensureScratch(pos + bytes.length);
+            System.arraycopy(bytes, 0, scratch, pos, bytes.length);
+            pos += bytes.length;
+        }
+        return pos;
+    }
+
+    private void nextChunk(int length){
+        int previousChunk = currentChunk;
+        if(length <= chunkSize && !freeChunks.isEmpty()){
+            currentChunk = freeChunks.pop();
+        }
+        else{
+            currentChunk = addChunk(ByteBuffer.allocateDirect(Math.max(chunkSize, length)));
+        }
+        currentOffset = 0;
+        if(previousChunk >= 0 && liveRecords[previousChunk] == 0){
+            recycle(previousChunk);
+        }
+    }
+
+    private void recycle(int chunkIndex){
+        if(chunks[chunkIndex].capacity() == chunkSize && freeChunks.size() < FREE_CHUNK_LIMIT){
+            freeChunks.push(chunkIndex);
+        }
+        else{
+            //oversized or surplus chunks are left to the GC
+            ByteBuffer[] newChunks = chunks.clone();
+            newChunks[chunkIndex] = null;
+            chunks = newChunks;
+        }
+    }
+
+    private int addChunk(ByteBuffer chunk){
+        ByteBuffer[] newChunks = chunks;
+        for(int i = 0; i < chunkNum; ++i){
+            if(newChunks[i] == null){
+                newChunks = newChunks.clone();
+                newChunks[i] = chunk;
+                chunks = newChunks;
+                return i;
+            }
+        }
+        if(chunkNum == newChunks.length){
+            newChunks = Arrays.copyOf(newChunks, chunkNum * 2);
+            liveRecords = Arrays.copyOf(liveRecords, chunkNum * 2);
+        }
+        else{
+            newChunks = newChunks.clone();
+        }
+        newChunks[chunkNum] = chunk;
+        chunks = newChunks;
+        return chunkNum++;
+    }
+
+    private int putVarInt(int pos, int value){
+        ensureScratch(pos + 5);
+        while((value & ~0x7f) != 0){
+            scratch[pos++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        scratch[pos++] = (byte) value;
+        return pos;
+    }
+
+    private void ensureScratch(int capacity){
+        if(scratch.length < capacity){
+            scratch = Arrays.copyOf(scratch, Math.max(capacity, scratch.length * 2));
+        }
+    }
+
+    private static int recordLength(ByteBuffer chunk, int offset){
+        int[] pos = {offset};
+        int fieldNum = readVarInt(chunk, pos);
+        for(int i = 0; i < fieldNum; ++i){
+            readVarInt(chunk, pos);
+            int length = readVarInt(chunk, pos);
+            pos[0] += Math.max(length - 1, 0);
+        }
+        return pos[0] - offset;
+    }
+
+    private static int readVarInt(ByteBuffer chunk, int[] pos){
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do{
+            b = chunk.get(pos[0]++);
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        }while(b < 0);
+        return value;
+    }
+
+    private static String decode(ByteBuffer chunk, int from, int length){
+        byte[] bytes = new byte[length];
+        for(int i = 0; i < length; ++i){
+            bytes[i] = chunk.get(from + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,5 +1,7 @@
 package com.CC.Contexts;
 
+import com.CC.Contexts.timestamp.AutoTimestampCodec;
+import com.CC.Contexts.timestamp.TimestampCodec;
 import com.CC.Patterns.Pattern;
 import com.CC.Patterns.PatternHandler;
 import com.CC.Patterns.types.FreshnessType;
@@ -8,59 +10,97 @@ import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
 
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class ContextHandler implements Loggable{
     private final PatternHandler patternHandler;
     private final String dataType;
+    private final String parserType;
 
     private final AtomicLong ctxCounter;
 
+    //field slots of the contexts built by the handler
+    private final ContextSchema contextSchema;
+    //numbers of the context ids given by change data
+    private final ContextIds contextIds;
+
     private final Date latestDate;
 
-    private final SimpleDateFormat simpleDateFormat;
+    private final TimestampCodec timestampCodec;
+
+    //field values of activated contexts are kept off-heap if not null (rawData only)
+    private final ContextArena contextArena;
+
+    //only for "streaming" parserType, one parser per thread
+    private final ThreadLocal<StreamingParser> streamingParser;
 
-    //time: (patternId, context)
-    private final PriorityQueue<Map.Entry<Long, Map.Entry<String, Context>>> activateContextsTimeQue;
-    //patternId : [context1, context2,...]
-    private final HashMap<String, Queue<Context>> activateContextsNumberMap;
+    //time: (overdueTime, patternId, context)
+    private final ExpiryTimingWheel activateContextsTimeWheel;
+    //patternId : rank, order of the contexts overdue at the same time
+    private final Map<String, Integer> patternRanks;
+    //patternId : [context1, context2,...], built with the patterns on first use
+    private NumberWindowStore activateContextsNumberStore;
+    //number windows matched by the current line and their evicted contexts
+    private int[] lineWindows;
+    private Context[] lineEvictedContexts;
 
-    public ContextHandler(PatternHandler patternHandler, String dataType) {
+    public ContextHandler(PatternHandler patternHandler, String dataType, String parserType) {
+        this(patternHandler, dataType, parserType, new AutoTimestampCodec());
+    }
+
+    public ContextHandler(PatternHandler patternHandler, String dataType, String parserType, TimestampCodec timestampCodec) {
+        this(patternHandler, dataType, parserType, timestampCodec, null);
+    }
+
+    public ContextHandler(PatternHandler patternHandler, String dataType, String parserType, TimestampCodec timestampCodec, ContextArena contextArena) {
         this.patternHandler = patternHandler;
         this.dataType = dataType;
+        this.parserType = parserType;
+        this.contextSchema = new ContextSchema();
+        this.contextIds = new ContextIds();
+        this.streamingParser = parserType.equals("streaming") ? ThreadLocal.withInitial(() -> new StreamingParser(contextSchema, contextIds)) : null;
         this.ctxCounter = new AtomicLong();
-        //this.activateContextsTimeQue = new PriorityQueue<>(50, (o1, o2) -> (int) (o1.getKey() - o2.getKey()));
-        // for taxi
-        this.activateContextsTimeQue = new PriorityQueue<>(50, ((o1, o2) -> {
-            if(o1.getKey() - o2.getKey() == 0){
-                return o1.getValue().getKey().substring(4).compareTo(o2.getValue().getKey().substring(4));
-            }
-            else{
-                return (int) (o1.getKey() - o2.getKey());
-            }
-        }));
-        this.activateContextsNumberMap = new HashMap<>();
-        initActivateContextsNumberMap(patternHandler.getPatternMap());
+        this.activateContextsTimeWheel = new ExpiryTimingWheel();
+        this.patternRanks = new HashMap<>();
+        this.activateContextsNumberStore = null;
         this.latestDate = new Date();
-        this.simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss:SSS");
+        this.timestampCodec = timestampCodec;
+        this.contextArena = contextArena;
     }
 
-    private void initActivateContextsNumberMap(HashMap<String, Pattern> patternHashMap){
-        for(Pattern pattern : patternHashMap.values()){
-            if(pattern.getFreshnessType() == FreshnessType.number){
-                activateContextsNumberMap.put(pattern.getPatternId(), new LinkedList<>());
-            }
+    //the handler may be created before the patterns are built, so windows are sized on first use
+    private NumberWindowStore activateContextsNumberStore(){
+        if(activateContextsNumberStore == null){
+            activateContextsNumberStore = new NumberWindowStore(patternHandler.getPatternMap().values());
+            lineWindows = new int[activateContextsNumberStore.getWindowNum()];
+            lineEvictedContexts = new Context[activateContextsNumberStore.getWindowNum()];
         }
+        return activateContextsNumberStore;
     }
 
     public List<ContextChange> generateChanges(String line) throws Exception{
+        if(line == null){
+            return generateFromParsedLine(null);
+        }
+        return generateFromParsedLine(parseLine(line, allocateCtxNum()));
+    }
+
+    //rawData contexts are numbered in data order, so numbers are allocated by the (single) reader of the data
+    public long allocateCtxNum(){
+        return dataType.equals("rawData") ? ctxCounter.getAndIncrement() : Context.NO_NUM;
+    }
+
+    /*
+        Stateless stage: parse the line and match the patterns.
+        It does not touch the activated contexts, so it can run on multiple threads.
+     */
+    public ParsedLine parseLine(String line, long ctxNum) throws Exception{
         if(dataType.equals("change")){
-            return generateFromChangeLine(line);
+            return parseChangeLine(line);
         }
         else if(dataType.equals("rawData")){
-            return generateFromRawDataLine(line);
+            return parseRawDataLine(line, ctxNum);
         }
         else{
             logger.error("Illegal dataType.");
@@ -69,16 +109,71 @@ public class ContextHandler implements Loggable{
         return null;
     }
 
-    private List<ContextChange> generateFromChangeLine(String line){
-        if(line == null){
-            return new ArrayList<>();
+    //same as parseLine(String, long), for lines read as bytes (only decoded as a whole for fastjson)
+    public ParsedLine parseLine(ByteSlice byteSlice, long ctxNum) throws Exception{
+        if(streamingParser == null){
+            return parseLine(byteSlice.toString(), ctxNum);
+        }
+        if(dataType.equals("change")){
+            ContextChange contextChange = new ContextChange();
+            String chgType = streamingParser.get().parseChange(byteSlice, contextChange);
+            return buildChangeLine(contextChange, chgType);
+        }
+        else if(dataType.equals("rawData")){
+            Context context = new Context(contextSchema);
+            String timestampStr = streamingParser.get().parseRawData(byteSlice, context);
+            long timestamp = timestampCodec.parse(timestampStr);
+            context.setCtx_num(ctxNum);
+            return buildRawDataLine(context, timestamp);
         }
-        JSONObject chgJsonObj = JSON.parseObject(line);
-        String chgType = chgJsonObj.getString("changeType");
-        String patternId = chgJsonObj.getString("patternId");
-        JSONObject ctxJsonObj = chgJsonObj.getJSONObject("context");
-        Context context = buildContext(ctxJsonObj.getString("contextId"), ctxJsonObj.getJSONObject("fields"));
+        else{
+            logger.error("Illegal dataType.");
+            System.exit(1);
+        }
+        return null;
+    }
+
+    //changeLog: changes are already decoded by ChangeLogReader
+    public ParsedLine parseLine(ContextChange contextChange, long ctxNum){
+        return new ParsedLine(contextChange);
+    }
+
+    /*
+        Stateful stage: apply parsed lines in data order, null means the end of data.
+     */
+    public List<ContextChange> generateFromParsedLine(ParsedLine parsedLine){
+        if(dataType.equals("change") || dataType.equals("changeLog")){
+            return generateFromChangeLine(parsedLine);
+        }
+        else if(dataType.equals("rawData")){
+            return generateFromRawDataLine(parsedLine);
+        }
+        else{
+            logger.error("Illegal dataType.");
+            System.exit(1);
+        }
+        return null;
+    }
+
+    private ParsedLine parseChangeLine(String line){
         ContextChange contextChange = new ContextChange();
+        String chgType;
+        if(streamingParser != null){
+            chgType = streamingParser.get().parseChange(line, contextChange);
+        }
+        else{
+            JSONObject chgJsonObj = JSON.parseObject(line);
+            chgType = chgJsonObj.getString("changeType");
+            contextChange.setPattern_id(chgJsonObj.getString("patternId"));
+            JSONObject ctxJsonObj = chgJsonObj.getJSONObject("context");
+            Context context = buildContext(ctxJsonObj.getJSONObject("fields"));
+            context.setCtx_id(ctxJsonObj.getString("contextId"), contextIds);
+            contextChange.setContext(context);
+        }
+        return buildChangeLine(contextChange, chgType);
+    }
+
+    private ParsedLine buildChangeLine(ContextChange contextChange, String chgType){
         switch (chgType) {
             case "+":
                 contextChange.setChange_type(ContextChange.Change_Type.ADDITION);
@@ -90,42 +185,81 @@ public class ContextHandler implements Loggable{
                 contextChange.setChange_type(ContextChange.Change_Type.UPDATE);
                 break;
         }
-        contextChange.setPattern_id(patternId);
-        contextChange.setContext(context);
-        return new ArrayList<>(){{add(contextChange);}};
+        return new ParsedLine(contextChange);
     }
 
-    private List<ContextChange> generateFromRawDataLine(String line) throws ParseException {
-        List<ContextChange> changeList = new ArrayList<>();
-        if(line == null){
-            latestDate.setTime(latestDate.getTime() + 24*3600*1000L);
-            this.cleanOverdueContext(latestDate, changeList);
+    private ParsedLine parseRawDataLine(String line, long ctxNum) throws ParseException {
+        Context context;
+        long timestamp;
+        if(streamingParser != null){
+            //fields are filled while parsing
+            context = new Context(contextSchema);
+            String timestampStr = streamingParser.get().parseRawData(line, context);
+            timestamp = timestampCodec.parse(timestampStr);
+            context.setCtx_num(ctxNum);
         }
         else{
             //date
             JSONObject dataJsonObj = JSON.parseObject(line);
             String timestampStr = dataJsonObj.getString("timestamp");
-            latestDate.setTime(simpleDateFormat.parse(timestampStr).getTime());
+            timestamp = timestampCodec.parse(timestampStr);
             //context
             JSONObject fieldsJsonObj = dataJsonObj.getJSONObject("fields");
-            Context context = buildContext("ctx_" + ctxCounter.getAndIncrement(), fieldsJsonObj);
+            context = buildContext(fieldsJsonObj);
+            context.setCtx_num(ctxNum);
+        }
+        return buildRawDataLine(context, timestamp);
+    }
+
+    private ParsedLine buildRawDataLine(Context context, long timestamp){
+        //context pattern match
+        List<Pattern> matchedPatterns = patternHandler.match(context);
+        return new ParsedLine(context, timestamp, matchedPatterns);
+    }
+
+    private List<ContextChange> generateFromChangeLine(ParsedLine parsedLine){
+        if(parsedLine == null){
+            return new ArrayList<>();
+        }
+        ContextChange contextChange = parsedLine.getContextChange();
+        return new ArrayList<>(){{add(contextChange);}};
+    }
+
+    private List<ContextChange> generateFromRawDataLine(ParsedLine parsedLine){
+        List<ContextChange> changeList = new ArrayList<>();
+        if(parsedLine == null){
+            latestDate.setTime(latestDate.getTime() + 24*3600*1000L);
+            this.cleanOverdueContext(latestDate, changeList);
+        }
+        else{
+            latestDate.setTime(parsedLine.getTimestamp());
             //clean overdue
             this.cleanOverdueContext(latestDate, changeList);
-            //context pattern match
-            boolean matched = false;
-            for(Pattern pattern : patternHandler.getPatternMap().values()){
-                if(pattern.getMatcher() == null || match(pattern, context)){
-                    matched = true;
-                    changeList.addAll(generate(pattern, context));
+            Context context = parsedLine.getContext();
+            //contexts matching no pattern are dropped at once, so only activated ones are moved
+            if(contextArena != null && !parsedLine.getMatchedPatterns().isEmpty()){
+                context.moveOffHeap(contextArena);
+            }
+            //number windows matched by the line slide together
+            NumberWindowStore numberWindowStore = activateContextsNumberStore();
+            int windowNum = 0;
+            for(Pattern pattern : parsedLine.getMatchedPatterns()){
+                if(pattern.getFreshnessType() == FreshnessType.number){
+                    lineWindows[windowNum++] = numberWindowStore.getWindowIndex(pattern.getPatternId());
                 }
             }
+            numberWindowStore.slideAll(lineWindows, windowNum, context, lineEvictedContexts);
+            int window = 0;
+            for(Pattern pattern : parsedLine.getMatchedPatterns()){
+                Context oldContext = pattern.getFreshnessType() == FreshnessType.number ? lineEvictedContexts[window++] : null;
+                generate(pattern, context, oldContext, changeList);
+            }
         }
         return changeList;
     }
 
-    private Context buildContext(String ctxId, JSONObject fieldsJsonObj){
-        Context context = new Context();
-        context.setCtx_id(ctxId);
+    private Context buildContext(JSONObject fieldsJsonObj){
+        Context context = new Context(contextSchema);
         for(String fieldName : fieldsJsonObj.keySet()){
             context.getCtx_fields().put(fieldName, fieldsJsonObj.getString(fieldName));
         }
@@ -133,45 +267,38 @@ public class ContextHandler implements Loggable{
     }
 
     private void cleanOverdueContext(Date dateLimit, List<ContextChange> changeList){
-        while(!activateContextsTimeQue.isEmpty()){
-            long overdueTime = activateContextsTimeQue.peek().getKey();
-            String patternId = activateContextsTimeQue.peek().getValue().getKey();
-            Context context = activateContextsTimeQue.peek().getValue().getValue();
-            if(overdueTime <= dateLimit.getTime()){
-                ContextChange delChange = new ContextChange();
-                delChange.setChange_type(ContextChange.Change_Type.DELETION);
-                delChange.setPattern_id(patternId);
-                delChange.setContext(context);
-                //TODO(): inducing from-pattern changes.
-                changeList.add(delChange);
-
-                activateContextsTimeQue.poll();
-            }
-            else{
-                 break;
-            }
+        activateContextsTimeWheel.expire(dateLimit.getTime(), changeList);
+    }
+
+    private int patternRank(String patternId){
+        Integer rank = patternRanks.get(patternId);
+        if(rank == null){
+            rankPatterns();
+            rank = patternRanks.get(patternId);
         }
+        return rank;
     }
 
-    private boolean match(Pattern pattern, Context context){
-        return pattern.getMatcher().match(context);
+    // for taxi: patterns are ranked by the id suffix after "pat_"
+    private void rankPatterns(){
+        List<String> patternIds = new ArrayList<>(patternHandler.getPatternMap().keySet());
+        patternIds.sort(Comparator.comparing((String patternId) -> patternId.length() >= 4 ? patternId.substring(4) : patternId)
+                .thenComparing(Comparator.naturalOrder()));
+        patternRanks.clear();
+        for(int i = 0; i < patternIds.size(); ++i){
+            patternRanks.put(patternIds.get(i), i);
+        }
     }
 
-    private List<ContextChange> generate(Pattern pattern, Context context){
-        List<ContextChange> changeList = new ArrayList<>();
-        //判断是否是number，如果是，判断是否满容量，如果是，先生成delChange，如果有delChange，则要考虑 inducing from-pattern changes.
-        if(pattern.getFreshnessType() == FreshnessType.number){
-            Queue<Context> queue = activateContextsNumberMap.get(pattern.getPatternId());
-            if(queue.size() == Integer.parseInt(pattern.getFreshnessValue())){
-                Context oldContext = queue.poll();
-                assert oldContext != null;
-                ContextChange delChange = new ContextChange();
-                delChange.setChange_type(ContextChange.Change_Type.DELETION);
-                delChange.setPattern_id(pattern.getPatternId());
-                delChange.setContext(oldContext);
-                changeList.add(delChange);
-                //TODO(): inducing from-pattern changes.
-            }
+    private void generate(Pattern pattern, Context context, Context oldContext, List<ContextChange> changeList){
+        //number窗口已满时，被挤出的context先生成delChange，如果有delChange，则要考虑 inducing from-pattern changes.
+        if(oldContext != null){
+            ContextChange delChange = new ContextChange();
+            delChange.setChange_type(ContextChange.Change_Type.DELETION);
+            delChange.setPattern_id(pattern.getPatternId());
+            delChange.setContext(oldContext);
+            changeList.add(delChange);
+            //TODO(): inducing from-pattern changes.
         }
         //生成addChange
         ContextChange addChange = new ContextChange();
@@ -180,17 +307,11 @@ public class ContextHandler implements Loggable{
         addChange.setContext(context);
         changeList.add(addChange);
 
-        //更新activateContexts容器
-        if(pattern.getFreshnessType() == FreshnessType.number){
-            Queue<Context> queue = activateContextsNumberMap.get(pattern.getPatternId());
-            queue.add(context);
+        //更新activateContexts容器 (number windows are already updated)
+        if(pattern.getFreshnessType() == FreshnessType.time){
+            long overdueTime = latestDate.getTime() + pattern.getParsedFreshnessValue();
+            activateContextsTimeWheel.add(overdueTime, patternRank(pattern.getPatternId()), pattern.getPatternId(), context);
         }
-        else if(pattern.getFreshnessType() == FreshnessType.time){
-            long overdueTime = latestDate.getTime() + Long.parseLong(pattern.getFreshnessValue());
-            activateContextsTimeQue.add(new AbstractMap.SimpleEntry<>(overdueTime, new AbstractMap.SimpleEntry<>(pattern.getPatternId(), context)));
-        }
-
-        return changeList;
     }
 
 
@@ -201,4 +322,26 @@ public class ContextHandler implements Loggable{
     public String getDataType() {
         return dataType;
     }
+
+    public ContextSchema getContextSchema() {
+        return contextSchema;
+    }
+
+    public ContextIds getContextIds() {
+        return contextIds;
+    }
+
+    public String getParserType() {
+        return parserType;
+    }
+
+    //null if field values are kept on the heap
+    public ContextArena getContextArena() {
+        return contextArena;
+    }
+
+    //null before any rawData line
+    public NumberWindowStore getNumberWindowStore() {
+        return activateContextsNumberStore;
+    }
 }
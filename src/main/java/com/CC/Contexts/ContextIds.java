@@ -0,0 +1,76 @@
+package com.CC.Contexts;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    Conversion between context ids and the numbers identifying contexts.
+    An id in the form of "ctx_N" (N without leading zeros) is numbered N, as allocated by ContextHandler for rawData.
+    Other ids (e.g., given by change data) are numbered -1, -2, ... in order of appearance, and the context keeps the id itself.
+    One instance is owned by each ContextHandler, and reset at the end of a run.
+ */
+public class ContextIds {
+    private static final String CTX_PREFIX = "ctx_";
+    private static final int CTX_PREFIX_HASH = CTX_PREFIX.hashCode();
+
+    private final Map<String, Long> otherNums = new ConcurrentHashMap<>();
+    //never rewinds, so numbers given before a reset are not given again
+    private final AtomicLong otherNumCounter = new AtomicLong();
+
+    public long toCtxNum(String ctxId){
+        if(ctxId == null){
+            return Context.NO_NUM;
+        }
+        long ctxNum = parseCanonical(ctxId);
+        if(ctxNum >= 0){
+            return ctxNum;
+        }
+        return otherNums.computeIfAbsent(ctxId, id -> -otherNumCounter.incrementAndGet());
+    }
+
+    //forgets the other ids seen so far
+    public void reset(){
+        otherNums.clear();
+    }
+
+    public static boolean isCanonical(long ctxNum){
+        return ctxNum >= 0;
+    }
+
+    //id of a canonical number
+    public static String toCtxId(long ctxNum){
+        return CTX_PREFIX + ctxNum;
+    }
+
+    //same as toCtxId(ctxNum).hashCode(), without making the id
+    public static int hashOf(long ctxNum){
+        long divisor = 1L;
+        while(ctxNum / divisor >= 10){
+            divisor *= 10;
+        }
+        int hash = CTX_PREFIX_HASH;
+        for(; divisor > 0; divisor /= 10){
+            hash = 31 * hash + (int) ('0' + ctxNum / divisor % 10);
+        }
+        return hash;
+    }
+
+    //N of "ctx_N", -1 if the id is not in this form
+    private static long parseCanonical(String ctxId){
+        int length = ctxId.length();
+        if(!ctxId.startsWith(CTX_PREFIX) || length == CTX_PREFIX.length()
+                || (ctxId.charAt(CTX_PREFIX.length()) == '0' && length > CTX_PREFIX.length() + 1)){
+            return -1L;
+        }
+        long ctxNum = 0L;
+        for(int i = CTX_PREFIX.length(); i < length; ++i){
+            int digit = ctxId.charAt(i) - '0';
+            if(digit < 0 || digit > 9 || ctxNum > (Long.MAX_VALUE - digit) / 10){
+                return -1L;
+            }
+            ctxNum = ctxNum * 10 + digit;
+        }
+        return ctxNum;
+    }
+}
@@ -0,0 +1,88 @@
+package com.CC.Contexts;
+
+import com.CC.Constraints.Rules.Rule;
+
+import java.util.*;
+
+/*
+    Reference counting of contexts by the pool sets of rules, driven by the changes being checked.
+    Scheduling an addition takes one reference per rule having its pattern, so a context stays alive while
+    its changes wait in the batch of any rule, and removing the context from the pool set of a rule drops one.
+    The addition also takes a reference for the pattern itself, which is dropped once its deletion is scheduled,
+    so contexts of patterns without rules (or kept in an arena, see ContextArena) are released as well.
+    Contexts left without references are released after the current change has been checked: their field values
+    are dropped and the value array is recycled, while the context object remains as the id of links already emitted.
+    References are counted on the context retained by the addition, matched by ctx_num: a deletion of change data
+    carries another object of the same context, which is never counted itself.
+    Rules are added before checking, afterwards pool sets of different rules may drop contexts on different threads.
+ */
+public class ContextLifecycle {
+    //pattern_id -> number of rules having the pattern
+    private final Map<String, Integer> patternRuleNums;
+    //ctx_num -> context having references or waiting to be released
+    private final Map<Long, Context> retainedContexts;
+    private final List<Context> droppedContexts;
+    private long releasedNum;
+
+    public ContextLifecycle() {
+        this.patternRuleNums = new HashMap<>();
+        this.retainedContexts = new HashMap<>();
+        this.droppedContexts = new ArrayList<>();
+        this.releasedNum = 0L;
+    }
+
+    public void addRule(Rule rule){
+        for(String pattern_id : new HashSet<>(rule.getVarPatternMap().values())){
+            patternRuleNums.merge(pattern_id, 1, Integer::sum);
+        }
+    }
+
+    //called before the change is scheduled
+    public synchronized void retain(ContextChange contextChange){
+        if(contextChange.getChange_type() == ContextChange.Change_Type.ADDITION){
+            int ruleNum = patternRuleNums.getOrDefault(contextChange.getPattern_id(), 0);
+            Context context = contextChange.getContext();
+            //a context added again before being released keeps the retained object, as the pool does
+            retainedContexts.computeIfAbsent(context.getCtx_num(), ctxNum -> context).retain(ruleNum + 1);
+        }
+    }
+
+    //called after the change has been checked
+    public synchronized void complete(ContextChange contextChange){
+        if(contextChange.getChange_type() == ContextChange.Change_Type.DELETION){
+            drop(contextChange.getContext());
+        }
+        releaseDropped();
+    }
+
+    //called when the context is removed from the pool set of a rule
+    synchronized void drop(Context context){
+        Context retained = retainedContexts.get(context.getCtx_num());
+        //e.g., a deletion without an addition
+        if(retained == null || retained.getRefCount() == 0){
+            return;
+        }
+        if(retained.drop() == 0){
+            droppedContexts.add(retained);
+        }
+    }
+
+    public synchronized void releaseDropped(){
+        if(droppedContexts.isEmpty()){
+            return;
+        }
+        for(Context context : droppedContexts){
+            //a dropped context may be added again by a later change
+            if(context.getRefCount() == 0){
+                context.release();
+                retainedContexts.remove(context.getCtx_num());
+                releasedNum++;
+            }
+        }
+        droppedContexts.clear();
+    }
+
+    public synchronized long getReleasedNum() {
+        return releasedNum;
+    }
+}
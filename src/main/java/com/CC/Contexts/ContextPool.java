@@ -1,69 +1,95 @@
 package com.CC.Contexts;
 
+import com.CC.Constraints.Formulas.DomainFilter;
 import com.CC.Constraints.Rules.Rule;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 public class ContextPool {
 
-    //存储现在有效的context, rule_id to Map<pattern_id to set>
-    private final HashMap<String, HashMap<String, Set<Context>>> Pool;
+    //存储现在有效的context, rule_id to Map<pattern_id to view of the pattern store>
+    private final HashMap<String, HashMap<String, PatternStore.View>> Pool;
 
-    // pattern_id to set
-    private final HashMap<String, Set<Context>> DelSets;
-    private final HashMap<String, Set<Context>> AddSets;
-    private final HashMap<String, Set<Context>> UpdSets;
+    //pattern_id to the store shared by the rules having the pattern
+    private final HashMap<String, PatternStore> Stores;
 
+    //rule_id to Map<pattern_id to Add/Del/Upd sets of the last changes applied by the rule>
+    private final HashMap<String, ConcurrentHashMap<String, PatternStore.Delta>> Deltas;
+
+    private final ContextLifecycle lifecycle;
+
+    /*
+        Rules are added before checking. Afterwards, the changes of a rule are applied by one thread at a time
+        while other rules may be checked on other threads: the pool set and Add/Del/Upd sets of a rule are only
+        changed by applying its own changes, and the stores shared with other rules are locked while being written.
+     */
     public ContextPool() {
         Pool = new HashMap<>();
-        DelSets = new HashMap<>();
-        AddSets = new HashMap<>();
-        UpdSets = new HashMap<>();
+        Stores = new HashMap<>();
+        Deltas = new HashMap<>();
+        lifecycle = new ContextLifecycle();
     }
 
     public void poolInit(Rule rule){
-            HashMap<String, Set<Context>> map = new HashMap<>();
+            HashMap<String, PatternStore.View> map = new HashMap<>();
+            ConcurrentHashMap<String, PatternStore.Delta> deltaMap = new ConcurrentHashMap<>();
             for(String pattern_id : rule.getVarPatternMap().values()){
-                map.put(pattern_id, new HashSet<>());
+                if(!map.containsKey(pattern_id)){
+                    map.put(pattern_id, Stores.computeIfAbsent(pattern_id, k -> new PatternStore()).newView());
+                    deltaMap.put(pattern_id, new PatternStore.Delta());
+                }
+            }
+            for(Map.Entry<String, DomainFilter> entry : rule.getPatToDomainFilter().entrySet()){
+                entry.getValue().addIndex(this, entry.getKey());
             }
             Pool.put(rule.getRule_id(), map);
+            Deltas.put(rule.getRule_id(), deltaMap);
+            lifecycle.addRule(rule);
     }
 
-    public void threeSetsInit(String pattern_id){
-        DelSets.put(pattern_id, new HashSet<>());
-        AddSets.put(pattern_id, new HashSet<>());
-        UpdSets.put(pattern_id, new HashSet<>());
+    public ContextLifecycle getLifecycle() {
+        return lifecycle;
     }
 
-    public Set<Context> getAddSet(String pattern_id){
-        return AddSets.get(pattern_id);
+    public Set<Context> getAddSet(String rule_id, String pattern_id){
+        return Deltas.get(rule_id).get(pattern_id).addSet;
     }
 
-    public Set<Context> getDelSet(String pattern_id){
-        return DelSets.get(pattern_id);
+    public Set<Context> getDelSet(String rule_id, String pattern_id){
+        return Deltas.get(rule_id).get(pattern_id).delSet;
     }
 
-    public Set<Context> getUpdSet(String pattern_id){
-        return UpdSets.get(pattern_id);
+    public Set<Context> getUpdSet(String rule_id, String pattern_id){
+        return Deltas.get(rule_id).get(pattern_id).updSet;
     }
 
     public Set<Context> getPoolSet(String rule_id, String pattern_id){
         return Pool.get(rule_id).get(pattern_id);
     }
 
-    public int getAddSetSize(String pattern_id){
-        return AddSets.get(pattern_id).size();
+    //indexes contexts of the pattern by key (null for none), see DomainFilter
+    public void addIndex(String pattern_id, String name, Function<Context, Object> keyOf){
+        Stores.get(pattern_id).addIndex(name, keyOf);
+    }
+
+    //contexts of the pool set passing the filter, looked up by the keys in the index if any
+    public Set<Context> getPoolSet(String rule_id, String pattern_id, String name, Collection<?> keys, Predicate<Context> filter){
+        return Pool.get(rule_id).get(pattern_id).lookup(name, keys, filter);
     }
 
-    public int getDelSetSize(String pattern_id){
-        return DelSets.get(pattern_id).size();
+    public int getAddSetSize(String rule_id, String pattern_id){
+        return getAddSet(rule_id, pattern_id).size();
     }
 
-    public int getUpdSetSize(String pattern_id){
-        return UpdSets.get(pattern_id).size();
+    public int getDelSetSize(String rule_id, String pattern_id){
+        return getDelSet(rule_id, pattern_id).size();
+    }
+
+    public int getUpdSetSize(String rule_id, String pattern_id){
+        return getUpdSet(rule_id, pattern_id).size();
     }
 
     public int getPoolSetSize(String rule_id, String pattern_id){
@@ -72,69 +98,53 @@ public class ContextPool {
 
     //ECC PCC CON-C
     public void applyChange(String rule_id, ContextChange contextChange){
-        if(contextChange.getChange_type() == ContextChange.Change_Type.ADDITION){
-            Pool.get(rule_id).get(contextChange.getPattern_id()).add(contextChange.getContext());
-        }
-        else{
-            Pool.get(rule_id).get(contextChange.getPattern_id()).remove(contextChange.getContext());
+        if(Pool.get(rule_id).get(contextChange.getPattern_id()).apply(contextChange)){
+            lifecycle.drop(contextChange.getContext());
         }
     }
 
     //CPCC method 2
     public void applyChanges(Rule rule, List<ContextChange> batch) {
-        //init DelSet, AddSet, and ModSet
-        for(String pattern_id : rule.getVarPatternMap().values()){
-            DelSets.get(pattern_id).clear();
-            AddSets.get(pattern_id).clear();
-            UpdSets.get(pattern_id).clear();
+        HashMap<String, PatternStore.View> views = Pool.get(rule.getRule_id());
+        HashMap<String, List<ContextChange>> patternChanges = new HashMap<>();
+        for(String pattern_id : views.keySet()){
+            patternChanges.put(pattern_id, new ArrayList<>());
         }
-
-        //update DelSets, AddSets, and ModSets
         for(ContextChange contextChange : batch){
-            String pattern_id = contextChange.getPattern_id();
-            if(!rule.getVarPatternMap().containsValue(pattern_id))
+            List<ContextChange> changes = patternChanges.get(contextChange.getPattern_id());
+            if(changes == null)
                 continue;
-            Set<Context> DelSet = DelSets.get(pattern_id);
-            Set<Context> AddSet = AddSets.get(pattern_id);
-            Set<Context> ModSet = UpdSets.get(pattern_id);
-            if(contextChange.getChange_type() == ContextChange.Change_Type.ADDITION){
-                Pool.get(rule.getRule_id()).get(pattern_id).add(contextChange.getContext());
-                if(DelSet.contains(contextChange.getContext())){
-                    DelSet.remove(contextChange.getContext());
-                    ModSet.add(contextChange.getContext());
-                }
-                else{
-                    AddSet.add(contextChange.getContext());
-                }
-            }
-            else if(contextChange.getChange_type() == ContextChange.Change_Type.DELETION){
-                Pool.get(rule.getRule_id()).get(pattern_id).remove(contextChange.getContext());
-                if(AddSet.contains(contextChange.getContext())){
-                    AddSet.remove(contextChange.getContext());
-                }
-                else if(ModSet.contains(contextChange.getContext())){
-                    ModSet.remove(contextChange.getContext());
-                    DelSet.add(contextChange.getContext());
-                }
-                else{
-                    DelSet.add(contextChange.getContext());
-                }
-            }
-            else {
+            if(contextChange.getChange_type() == ContextChange.Change_Type.UPDATE){
                 System.out.println("Error");
                 System.exit(1);
             }
+            changes.add(contextChange);
         }
 
+        //DelSets, AddSets, and ModSets of the changes, shared with rules applying the same changes
+        List<Context> removedContexts = new ArrayList<>();
+        for(Map.Entry<String, List<ContextChange>> entry : patternChanges.entrySet()){
+            PatternStore.Delta delta = views.get(entry.getKey()).apply(entry.getValue(), removedContexts);
+            if(delta == null){
+                delta = new PatternStore.Delta();
+                for(ContextChange contextChange : entry.getValue()){
+                    delta.add(contextChange.getChange_type() == ContextChange.Change_Type.ADDITION, contextChange.getContext());
+                }
+            }
+            Deltas.get(rule.getRule_id()).put(entry.getKey(), delta);
+        }
+        for(Context context : removedContexts){
+            lifecycle.drop(context);
+        }
     }
 
     //PCCM CPCC method 1
     public void applyChangeWithSets(String rule_id, ContextChange contextChange){
-        Set<Context> DelS = DelSets.get(contextChange.getPattern_id());
-        Set<Context> AddS = AddSets.get(contextChange.getPattern_id());
-        Set<Context> ModS = UpdSets.get(contextChange.getPattern_id());
+        Set<Context> DelS = getDelSet(rule_id, contextChange.getPattern_id());
+        Set<Context> AddS = getAddSet(rule_id, contextChange.getPattern_id());
+        Set<Context> ModS = getUpdSet(rule_id, contextChange.getPattern_id());
+        applyChange(rule_id, contextChange);
         if(contextChange.getChange_type() == ContextChange.Change_Type.ADDITION){
-            Pool.get(rule_id).get(contextChange.getPattern_id()).add(contextChange.getContext());
             if(DelS.contains(contextChange.getContext())){
                 DelS.remove(contextChange.getContext());
                 ModS.add(contextChange.getContext());
@@ -143,7 +153,6 @@ public class ContextPool {
             }
         }
         else{
-            Pool.get(rule_id).get(contextChange.getPattern_id()).remove(contextChange.getContext());
             if(AddS.contains(contextChange.getContext())){
                 AddS.remove(contextChange.getContext());
             }
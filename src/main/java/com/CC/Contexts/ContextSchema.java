@@ -0,0 +1,56 @@
+package com.CC.Contexts;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+    Registry of context field names, derived from the data: a field gets the next slot when it is first seen.
+    Contexts keep their values in an array indexed by slot, and field names are kept once here instead of
+    as keys of a map in every context. Slots are never removed, and lookups may run on parsing threads.
+    A schema is shared by the contexts of one ContextHandler (see Context), and the value array of a context
+    only reaches its own highest slot, so fields of other data (e.g., other feeds) do not widen it.
+ */
+public class ContextSchema {
+    private final Map<String, Integer> slotMap;
+    //slot -> field name, replaced as a whole when a field is added
+    private volatile String[] fieldNames;
+
+    public ContextSchema() {
+        this.slotMap = new ConcurrentHashMap<>();
+        this.fieldNames = new String[0];
+    }
+
+    //slot of the field, -1 if the field has never been seen
+    public int slotOf(String fieldName){
+        Integer slot = slotMap.get(fieldName);
+        return slot == null ? -1 : slot;
+    }
+
+    //slot of the field, added if the field has never been seen
+    public int register(String fieldName){
+        Integer slot = slotMap.get(fieldName);
+        if(slot != null){
+            return slot;
+        }
+        synchronized (this){
+            slot = slotMap.get(fieldName);
+            if(slot == null){
+                slot = fieldNames.length;
+                String[] newFieldNames = Arrays.copyOf(fieldNames, slot + 1);
+                newFieldNames[slot] = fieldName;
+                fieldNames = newFieldNames;
+                slotMap.put(fieldName, slot);
+            }
+            return slot;
+        }
+    }
+
+    public String getFieldName(int slot){
+        return fieldNames[slot];
+    }
+
+    public int getFieldNum(){
+        return fieldNames.length;
+    }
+}
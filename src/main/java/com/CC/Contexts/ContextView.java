@@ -0,0 +1,23 @@
+package com.CC.Contexts;
+
+import java.util.Map;
+
+/*
+    Read-only view of a context for bfunctions and mfunctions with typed entries.
+    Numeric fields are parsed on first access and the parsed value is kept with the context,
+    so a context evaluated many times parses each field at most once.
+ */
+public interface ContextView {
+    String getCtx_id();
+
+    Map<String, String> getCtx_fields();
+
+    //null if the field is absent or null
+    String getString(String field);
+
+    //same as Double.parseDouble(getString(field))
+    double getDouble(String field);
+
+    //same as Long.parseLong(getString(field))
+    long getLong(String field);
+}
@@ -0,0 +1,334 @@
+package com.CC.Contexts;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+    Hierarchical timing wheel for time-freshness expiry (1 tick = 1 ms).
+    Level L has 256 slots of 256^L ticks, and an entry is put at the level of the highest byte in which
+    its expiry time differs from the current time, so adding is O(1) and 8 levels cover all long times.
+    Occupancy bitmaps let expire() jump to the next non-empty slot instead of stepping every tick,
+    and a slot of a higher level is cascaded to lower levels when the current time enters it.
+
+    Entries are kept in parallel arrays with a free list, so no wrapper object is allocated per context.
+    Entries expiring at the same time are expired in the order of pattern rank, then in the order of adding.
+ */
+public class ExpiryTimingWheel {
+    private static final int LEVELS = 8;
+    private static final int SLOTS = 256;
+    private static final int NIL = -1;
+
+    //entry pool
+    private long[] times; //expiry time with the sign bit flipped, so that unsigned order is time order
+    private int[] ranks;
+    private String[] patternIds;
+    private Context[] contexts;
+    private int[] nexts;
+    private int freeHead;
+    private int size;
+
+    //slot lists and their occupancy bitmaps
+    private final int[][] heads;
+    private final int[][] tails;
+    private final long[][] bitmaps;
+
+    //entries not later than the current time when added (e.g., data going backward in time)
+    private int overdueHead;
+    private int overdueTail;
+
+    private long now;
+    private boolean started;
+
+    //scratch for ordering entries of the same time
+    private int[] sortBuffer;
+
+    public ExpiryTimingWheel() {
+        this(64);
+    }
+
+    public ExpiryTimingWheel(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        this.times = new long[capacity];
+        this.ranks = new int[capacity];
+        this.patternIds = new String[capacity];
+        this.contexts = new Context[capacity];
+        this.nexts = new int[capacity];
+        for(int i = 0; i < capacity; ++i){
+            nexts[i] = i + 1 < capacity ? i + 1 : NIL;
+        }
+        this.freeHead = 0;
+        this.size = 0;
+        this.heads = new int[LEVELS][SLOTS];
+        this.tails = new int[LEVELS][SLOTS];
+        for(int level = 0; level < LEVELS; ++level){
+            for(int slot = 0; slot < SLOTS; ++slot){
+                heads[level][slot] = NIL;
+                tails[level][slot] = NIL;
+            }
+        }
+        this.bitmaps = new long[LEVELS][SLOTS / 64];
+        this.overdueHead = NIL;
+        this.overdueTail = NIL;
+        this.now = 0L;
+        this.started = false;
+        this.sortBuffer = new int[16];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void add(long expiryTime, int rank, String patternId, Context context){
+        int entry = allocate();
+        times[entry] = key(expiryTime);
+        ranks[entry] = rank;
+        patternIds[entry] = patternId;
+        contexts[entry] = context;
+        nexts[entry] = NIL;
+        if(!started){
+            now = times[entry];
+            started = true;
+        }
+        place(entry);
+    }
+
+    //removes entries expiring not later than timeLimit, adding their deletion changes in expiry order
+    public void expire(long timeLimit, List<ContextChange> changeList){
+        long limit = key(timeLimit);
+        if(!started){
+            now = limit;
+            started = true;
+            return;
+        }
+        if(overdueHead != NIL){
+            expireOverdue(limit, changeList);
+        }
+        while(size > 0){
+            int level = 0;
+            int slot = -1;
+            for(; level < LEVELS; ++level){
+                slot = nextSlot(level, slotOf(now, level) + 1);
+                if(slot >= 0){
+                    break;
+                }
+            }
+            if(slot < 0){
+                break;
+            }
+            long slotStart = level == LEVELS - 1 ? 0L : (now >>> (8 * (level + 1))) << (8 * (level + 1));
+            slotStart |= (long) slot << (8 * level);
+            if(Long.compareUnsigned(slotStart, limit) > 0){
+                break;
+            }
+            now = slotStart;
+            int head = takeSlot(level, slot);
+            if(level == 0){
+                emit(head, changeList);
+            }
+            else{
+                cascade(head, changeList);
+            }
+        }
+        if(Long.compareUnsigned(limit, now) > 0){
+            now = limit;
+        }
+    }
+
+    //entries of a higher slot go down relative to the new current time, those due now are expired at once
+    private void cascade(int head, List<ContextChange> changeList){
+        int dueHead = NIL;
+        int dueTail = NIL;
+        int entry = head;
+        while(entry != NIL){
+            int next = nexts[entry];
+            nexts[entry] = NIL;
+            if(times[entry] == now){
+                if(dueHead == NIL){
+                    dueHead = entry;
+                }
+                else{
+                    nexts[dueTail] = entry;
+                }
+                dueTail = entry;
+            }
+            else{
+                place(entry);
+            }
+            entry = next;
+        }
+        if(dueHead != NIL){
+            emit(dueHead, changeList);
+        }
+    }
+
+    private void place(int entry){
+        long diff = times[entry] ^ now;
+        if(Long.compareUnsigned(times[entry], now) <= 0){
+            if(overdueHead == NIL){
+                overdueHead = entry;
+            }
+            else{
+                nexts[overdueTail] = entry;
+            }
+            overdueTail = entry;
+            return;
+        }
+        int level = (63 - Long.numberOfLeadingZeros(diff)) >>> 3;
+        int slot = slotOf(times[entry], level);
+        if(heads[level][slot] == NIL){
+            heads[level][slot] = entry;
+            bitmaps[level][slot >>> 6] |= 1L << slot;
+        }
+        else{
+            nexts[tails[level][slot]] = entry;
+        }
+        tails[level][slot] = entry;
+    }
+
+    private int takeSlot(int level, int slot){
+        int head = heads[level][slot];
+        heads[level][slot] = NIL;
+        tails[level][slot] = NIL;
+        bitmaps[level][slot >>> 6] &= ~(1L << slot);
+        return head;
+    }
+
+    //first non-empty slot of the level from the given slot, -1 if none
+    private int nextSlot(int level, int from){
+        if(from >= SLOTS){
+            return -1;
+        }
+        long[] bitmap = bitmaps[level];
+        int word = from >>> 6;
+        long bits = bitmap[word] & (-1L << from);
+        while(true){
+            if(bits != 0){
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if(++word == bitmap.length){
+                return -1;
+            }
+            bits = bitmap[word];
+        }
+    }
+
+    //overdue entries are few, so they are simply ordered on expiry
+    private void expireOverdue(long limit, List<ContextChange> changeList){
+        int count = 0;
+        int keptHead = NIL;
+        int keptTail = NIL;
+        int entry = overdueHead;
+        while(entry != NIL){
+            int next = nexts[entry];
+            nexts[entry] = NIL;
+            if(Long.compareUnsigned(times[entry], limit) <= 0){
+                ensureSortBuffer(count + 1);
+                sortBuffer[count++] = entry;
+            }
+            else{
+                if(keptHead == NIL){
+                    keptHead = entry;
+                }
+                else{
+                    nexts[keptTail] = entry;
+                }
+                keptTail = entry;
+            }
+            entry = next;
+        }
+        overdueHead = keptHead;
+        overdueTail = keptTail;
+        //stable insertion sort by (time, rank)
+        for(int i = 1; i < count; ++i){
+            int cur = sortBuffer[i];
+            int j = i - 1;
+            while(j >= 0 && (Long.compareUnsigned(times[sortBuffer[j]], times[cur]) > 0
+                    || (times[sortBuffer[j]] == times[cur] && ranks[sortBuffer[j]] > ranks[cur]))){
+                sortBuffer[j + 1] = sortBuffer[j];
+                j--;
+            }
+            sortBuffer[j + 1] = cur;
+        }
+        for(int i = 0; i < count; ++i){
+            release(sortBuffer[i], changeList);
+        }
+    }
+
+    //entries of the list have the same time, expire them by rank (stable)
+    private void emit(int head, List<ContextChange> changeList){
+        if(nexts[head] == NIL){
+            release(head, changeList);
+            return;
+        }
+        int count = 0;
+        for(int entry = head; entry != NIL; entry = nexts[entry]){
+            ensureSortBuffer(count + 1);
+            sortBuffer[count++] = entry;
+        }
+        for(int i = 1; i < count; ++i){
+            int cur = sortBuffer[i];
+            int j = i - 1;
+            while(j >= 0 && ranks[sortBuffer[j]] > ranks[cur]){
+                sortBuffer[j + 1] = sortBuffer[j];
+                j--;
+            }
+            sortBuffer[j + 1] = cur;
+        }
+        for(int i = 0; i < count; ++i){
+            release(sortBuffer[i], changeList);
+        }
+    }
+
+    private void release(int entry, List<ContextChange> changeList){
+        ContextChange delChange = new ContextChange();
+        delChange.setChange_type(ContextChange.Change_Type.DELETION);
+        delChange.setPattern_id(patternIds[entry]);
+        delChange.setContext(contexts[entry]);
+        //TODO(): inducing from-pattern changes.
+        changeList.add(delChange);
+
+        patternIds[entry] = null;
+        contexts[entry] = null;
+        nexts[entry] = freeHead;
+        freeHead = entry;
+        size--;
+    }
+
+    private int allocate(){
+        if(freeHead == NIL){
+            int oldCapacity = times.length;
+            int capacity = oldCapacity * 2;
+            times = Arrays.copyOf(times, capacity);
+            ranks = Arrays.copyOf(ranks, capacity);
+            patternIds = Arrays.copyOf(patternIds, capacity);
+            contexts = Arrays.copyOf(contexts, capacity);
+            nexts = Arrays.copyOf(nexts, capacity);
+            for(int i = oldCapacity; i < capacity; ++i){
+                nexts[i] = i + 1 < capacity ? i + 1 : NIL;
+            }
+            freeHead = oldCapacity;
+        }
+        int entry = freeHead;
+        freeHead = nexts[entry];
+        size++;
+        return entry;
+    }
+
+    private void ensureSortBuffer(int capacity){
+        if(sortBuffer.length < capacity){
+            sortBuffer = Arrays.copyOf(sortBuffer, Math.max(capacity, sortBuffer.length * 2));
+        }
+    }
+
+    private static long key(long time){
+        return time ^ Long.MIN_VALUE;
+    }
+
+    private static int slotOf(long key, int level){
+        return (int) (key >>> (8 * level)) & (SLOTS - 1);
+    }
+}
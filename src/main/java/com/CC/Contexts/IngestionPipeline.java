@@ -0,0 +1,184 @@
+package com.CC.Contexts;
+
+import com.CC.Util.Loggable;
+import com.CC.Util.OrderedRingBuffer;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/*
+    Pipelined front end of offline checking:
+    reader thread (lines -> batches) -> parser threads (ContextHandler.parseLine) -> ordered ring buffer -> take().
+    Lines are Strings (BufferedReader) or ByteSlices (MappedLineReader).
+    Batches carry sequence numbers, so take() returns parsed lines exactly in data order
+    and the stateful part (ContextHandler.generateFromParsedLine) stays on the consumer thread.
+ */
+public class IngestionPipeline<T> implements AutoCloseable, Loggable {
+    public static final int batchSize = 256;
+
+    @FunctionalInterface
+    public interface LineReader<T> {
+        //null at the end of data
+        T readLine() throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface LineParser<T> {
+        ParsedLine parseLine(T line, long ctxNum) throws Exception;
+    }
+
+    private static final class Batch {
+        final long seq;
+        final Object[] lines;
+        final long[] ctxNums;
+        final ParsedLine[] parsedLines;
+        int size;
+        boolean last;
+        //lines before errorIndex are parsed, the error (of reading or parsing) is thrown by take() at errorIndex
+        int errorIndex;
+        Throwable error;
+
+        Batch(long seq, int capacity) {
+            this.seq = seq;
+            this.lines = new Object[capacity];
+            this.ctxNums = new long[capacity];
+            this.parsedLines = new ParsedLine[capacity];
+            this.size = 0;
+            this.last = false;
+            this.errorIndex = -1;
+            this.error = null;
+        }
+    }
+
+    //tells a parser thread to stop
+    private static final Batch POISON = new Batch(-1L, 0);
+
+    private final ContextHandler contextHandler;
+    private final LineReader<T> lineReader;
+    private final LineParser<T> lineParser;
+    private final BlockingQueue<Batch> workQueue;
+    private final OrderedRingBuffer<Batch> ringBuffer;
+    private final Thread readerThread;
+    private final Thread[] parserThreads;
+
+    private Batch curBatch;
+    private int curIndex;
+
+    public IngestionPipeline(ContextHandler contextHandler, LineReader<T> lineReader, LineParser<T> lineParser, int parserNum) {
+        if(parserNum <= 0){
+            throw new IllegalArgumentException("Illegal number of parser threads " + parserNum);
+        }
+        this.contextHandler = contextHandler;
+        this.lineReader = lineReader;
+        this.lineParser = lineParser;
+        this.workQueue = new ArrayBlockingQueue<>(parserNum * 2);
+        this.ringBuffer = new OrderedRingBuffer<>(parserNum * 4);
+        this.readerThread = new Thread(this::read, "ingestion-reader");
+        this.readerThread.setDaemon(true);
+        this.parserThreads = new Thread[parserNum];
+        for(int i = 0; i < parserNum; ++i){
+            this.parserThreads[i] = new Thread(this::parse, "ingestion-parser-" + i);
+            this.parserThreads[i].setDaemon(true);
+        }
+        this.curBatch = null;
+        this.curIndex = 0;
+    }
+
+    public void start(){
+        for(Thread parserThread : parserThreads){
+            parserThread.start();
+        }
+        readerThread.start();
+    }
+
+    //next parsed line in data order, null at the end of data
+    public ParsedLine take() throws Exception {
+        while(true){
+            if(curBatch != null){
+                if(curIndex == curBatch.errorIndex){
+                    if(curBatch.error instanceof Error){
+                        throw (Error) curBatch.error;
+                    }
+                    throw (Exception) curBatch.error;
+                }
+                if(curIndex < curBatch.size){
+                    break;
+                }
+                if(curBatch.last){
+                    return null;
+                }
+            }
+            curBatch = ringBuffer.take();
+            curIndex = 0;
+        }
+        ParsedLine parsedLine = curBatch.parsedLines[curIndex];
+        curBatch.parsedLines[curIndex] = null;
+        curIndex++;
+        return parsedLine;
+    }
+
+    private void read(){
+        long seq = 0L;
+        Batch batch = new Batch(seq++, batchSize);
+        try{
+            T line;
+            while((line = lineReader.readLine()) != null){
+                batch.lines[batch.size] = line;
+                batch.ctxNums[batch.size] = contextHandler.allocateCtxNum();
+                batch.size++;
+                if(batch.size == batchSize){
+                    workQueue.put(batch);
+                    batch = new Batch(seq++, batchSize);
+                }
+            }
+        } catch (InterruptedException e) {
+            return;
+        } catch (Throwable e) {
+            //any failure ends the data, so that take() throws it instead of waiting for more batches
+            batch.errorIndex = batch.size;
+            batch.error = e;
+        }
+        batch.last = true;
+        try{
+            workQueue.put(batch);
+            for(int i = 0; i < parserThreads.length; ++i){
+                workQueue.put(POISON);
+            }
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void parse(){
+        try{
+            Batch batch;
+            while((batch = workQueue.take()) != POISON){
+                for(int i = 0; i < batch.size; ++i){
+                    if(i == batch.errorIndex){
+                        break;
+                    }
+                    try{
+                        batch.parsedLines[i] = lineParser.parseLine((T) batch.lines[i], batch.ctxNums[i]);
+                    } catch (Throwable e) {
+                        //the batch is still put, otherwise take() would wait for it forever
+                        batch.errorIndex = i;
+                        batch.error = e;
+                        break;
+                    }
+                    batch.lines[i] = null;
+                }
+                ringBuffer.put(batch.seq, batch);
+            }
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    @Override
+    public void close() {
+        readerThread.interrupt();
+        for(Thread parserThread : parserThreads){
+            parserThread.interrupt();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.CC.Contexts;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+    Reads lines of a data file as byte slices of memory-mapped windows, without decoding them.
+    Lines end with '\n', '\r' or "\r\n" as in BufferedReader.readLine.
+    A line crossing the end of a window is read again from a window starting at the line,
+    so files larger than 2GB are read by remapping windows.
+ */
+public class MappedLineReader implements Closeable {
+    public static final int defaultWindowSize = 64 * 1024 * 1024;
+
+    private final FileChannel fileChannel;
+    private final long fileSize;
+    private final int windowSize;
+
+    private MappedByteBuffer window;
+    //file position of the window
+    private long windowPos;
+    //position in the window
+    private int pos;
+    //the last line ended with '\r' at the end of a window
+    private boolean skipLF;
+
+    public MappedLineReader(Path path) throws IOException {
+        this(path, defaultWindowSize);
+    }
+
+    public MappedLineReader(Path path, int windowSize) throws IOException {
+        if(windowSize <= 0){
+            throw new IllegalArgumentException("Illegal window size " + windowSize);
+        }
+        this.fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileSize = fileChannel.size();
+        this.windowSize = windowSize;
+        this.window = null;
+        this.windowPos = 0L;
+        this.pos = 0;
+        this.skipLF = false;
+    }
+
+    //next line, null at the end of file
+    public ByteSlice readLine() throws IOException {
+        while(true){
+            if(window == null || pos == window.limit()){
+                long nextPos = window == null ? 0L : windowPos + pos;
+                if(nextPos >= fileSize){
+                    return null;
+                }
+                map(nextPos, (int) Math.min(windowSize, fileSize - nextPos));
+            }
+            if(skipLF){
+                skipLF = false;
+                if(window.get(pos) == '\n'){
+                    pos++;
+                    continue;
+                }
+            }
+            int limit = window.limit();
+            int i = pos;
+            while(i < limit){
+                byte b = window.get(i);
+                if(b == '\n' || b == '\r'){
+                    break;
+                }
+                i++;
+            }
+            if(i == limit){
+                if(windowPos + limit < fileSize){
+                    //the line continues after the window
+                    long lineLength = limit - pos;
+                    long size = Math.min(Math.max(windowSize, lineLength * 2), Math.min(fileSize - (windowPos + pos), Integer.MAX_VALUE));
+                    if(size <= lineLength){
+                        throw new IOException("Line at " + (windowPos + pos) + " is too long to be mapped");
+                    }
+                    map(windowPos + pos, (int) size);
+                    continue;
+                }
+                //the last line without line terminator
+                ByteSlice byteSlice = new ByteSlice(window, pos, limit);
+                pos = limit;
+                return byteSlice;
+            }
+            ByteSlice byteSlice = new ByteSlice(window, pos, i);
+            pos = i + 1;
+            if(window.get(i) == '\r'){
+                if(pos < limit){
+                    if(window.get(pos) == '\n'){
+                        pos++;
+                    }
+                }
+                else{
+                    skipLF = true;
+                }
+            }
+            return byteSlice;
+        }
+    }
+
+    private void map(long position, int size) throws IOException {
+        //previous windows stay valid for the slices still referring to them
+        this.window = fileChannel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        this.windowPos = position;
+        this.pos = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileChannel.close();
+    }
+}
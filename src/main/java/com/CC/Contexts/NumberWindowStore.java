@@ -0,0 +1,115 @@
+package com.CC.Contexts;
+
+import com.CC.Patterns.Pattern;
+import com.CC.Patterns.types.FreshnessType;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+    Sliding windows of number-freshness patterns, one preallocated ring buffer per pattern
+    sized by its freshness value. Adding a context to a full window evicts the oldest one.
+ */
+public class NumberWindowStore {
+    private final Map<String, Integer> windowIndexMap;
+    private final String[] patternIds;
+    private final Context[][] rings;
+    //position of the oldest context
+    private final int[] heads;
+    private final int[] sizes;
+    private final long totalCapacity;
+    private long totalSize;
+
+    public NumberWindowStore(Collection<Pattern> patterns) {
+        int windowNum = 0;
+        for(Pattern pattern : patterns){
+            if(pattern.getFreshnessType() == FreshnessType.number){
+                windowNum++;
+            }
+        }
+        this.windowIndexMap = new HashMap<>();
+        this.patternIds = new String[windowNum];
+        this.rings = new Context[windowNum][];
+        this.heads = new int[windowNum];
+        this.sizes = new int[windowNum];
+        long capacity = 0L;
+        int window = 0;
+        for(Pattern pattern : patterns){
+            if(pattern.getFreshnessType() != FreshnessType.number){
+                continue;
+            }
+            long windowSize = pattern.getParsedFreshnessValue();
+            if(windowSize <= 0 || windowSize > Integer.MAX_VALUE - 8){
+                throw new IllegalArgumentException("Illegal number freshness " + pattern.getFreshnessValue() + " of " + pattern.getPatternId());
+            }
+            windowIndexMap.put(pattern.getPatternId(), window);
+            patternIds[window] = pattern.getPatternId();
+            rings[window] = new Context[(int) windowSize];
+            capacity += windowSize;
+            window++;
+        }
+        this.totalCapacity = capacity;
+        this.totalSize = 0L;
+    }
+
+    //-1 if the pattern is not a number-freshness pattern
+    public int getWindowIndex(String patternId){
+        Integer window = windowIndexMap.get(patternId);
+        return window == null ? -1 : window;
+    }
+
+    //adds the context to the window, returns the evicted context or null
+    public Context slide(int window, Context context){
+        Context[] ring = rings[window];
+        int size = sizes[window];
+        if(size == ring.length){
+            int head = heads[window];
+            Context oldContext = ring[head];
+            ring[head] = context;
+            heads[window] = head + 1 == ring.length ? 0 : head + 1;
+            return oldContext;
+        }
+        int tail = heads[window] + size;
+        ring[tail >= ring.length ? tail - ring.length : tail] = context;
+        sizes[window] = size + 1;
+        totalSize++;
+        return null;
+    }
+
+    //slides the same context into several windows (e.g., all number patterns matched by a line), evicted[i] for windows[i]
+    public void slideAll(int[] windows, int count, Context context, Context[] evicted){
+        for(int i = 0; i < count; ++i){
+            evicted[i] = slide(windows[i], context);
+        }
+    }
+
+    public int getWindowNum(){
+        return rings.length;
+    }
+
+    public String getPatternId(int window){
+        return patternIds[window];
+    }
+
+    public int getSize(int window){
+        return sizes[window];
+    }
+
+    public int getCapacity(int window){
+        return rings[window].length;
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    public long getTotalCapacity() {
+        return totalCapacity;
+    }
+
+    //occupied fraction of all windows
+    public double getOccupancy(){
+        return totalCapacity == 0 ? 0.0 : (double) totalSize / totalCapacity;
+    }
+}
@@ -0,0 +1,48 @@
+package com.CC.Contexts;
+
+import com.CC.Patterns.Pattern;
+
+import java.util.List;
+
+/*
+    A data line after the stateless stage of ContextHandler (parsed and matched),
+    not yet applied to the activated contexts.
+ */
+public class ParsedLine {
+    //change
+    private final ContextChange contextChange;
+    //rawData
+    private final Context context;
+    private final long timestamp;
+    private final List<Pattern> matchedPatterns;
+
+    ParsedLine(ContextChange contextChange) {
+        this.contextChange = contextChange;
+        this.context = null;
+        this.timestamp = 0L;
+        this.matchedPatterns = null;
+    }
+
+    ParsedLine(Context context, long timestamp, List<Pattern> matchedPatterns) {
+        this.contextChange = null;
+        this.context = context;
+        this.timestamp = timestamp;
+        this.matchedPatterns = matchedPatterns;
+    }
+
+    public ContextChange getContextChange() {
+        return contextChange;
+    }
+
+    public Context getContext() {
+        return context;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public List<Pattern> getMatchedPatterns() {
+        return matchedPatterns;
+    }
+}
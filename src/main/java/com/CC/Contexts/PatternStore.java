@@ -0,0 +1,474 @@
+package com.CC.Contexts;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/*
+    The one store of the activated contexts of a pattern, shared by all rules having the pattern.
+    Every rule applies the changes of a pattern in the same order, only at different times (e.g., GEAS batches),
+    so a change is put into the store by the first rule applying it and recorded in a log,
+    and each rule only advances the cursor of its view. The log is kept from the slowest view on.
+    A context keeps the version intervals in which it is in the store, and a view reads the contexts
+    whose intervals cover its cursor, so later changes by other rules never show up in its reads.
+    Add/Del/Upd sets of a range of the log are computed once and shared by views applying the same range.
+    Indexes of quantifier domains (e.g., join keys or grid cells, see DomainFilter) cover the contexts having memberships.
+
+    Changes are applied under the lock of the store (one writer at a time), while views are read without locking
+    from any thread: intervals are replaced as a whole and contexts are only dropped when no view can see them.
+ */
+class PatternStore {
+    private static final int TRIM_LENGTH = 32;
+    private static final long[] NO_INTERVALS = new long[0];
+
+    //context -> [from version, to version) pairs, for contexts visible to some view
+    private final ConcurrentHashMap<Context, Membership> memberships;
+
+    //name -> index of the contexts having memberships
+    private final ConcurrentHashMap<String, Index> indexes;
+
+    //changes from version logStart on
+    private final ArrayList<Entry> log;
+    private int logHead;
+    private long logStart;
+    private long version;
+
+    private final List<View> views;
+
+    private Delta lastDelta;
+
+    PatternStore() {
+        this.memberships = new ConcurrentHashMap<>();
+        this.indexes = new ConcurrentHashMap<>();
+        this.log = new ArrayList<>();
+        this.logHead = 0;
+        this.logStart = 0L;
+        this.version = 0L;
+        this.views = new ArrayList<>();
+        this.lastDelta = null;
+    }
+
+    synchronized View newView(){
+        View view = new View(version);
+        for(Membership membership : memberships.values()){
+            if(membership.isOpen()){
+                view.size++;
+            }
+        }
+        views.add(view);
+        return view;
+    }
+
+    synchronized void addIndex(String name, Function<Context, Object> keyOf){
+        if(indexes.containsKey(name)){
+            return;
+        }
+        Index index = new Index(keyOf);
+        for(Map.Entry<Context, Membership> entry : memberships.entrySet()){
+            index.put(name, entry.getKey(), entry.getValue());
+        }
+        indexes.put(name, index);
+    }
+
+    private void putMembership(Context context, Membership membership){
+        for(Map.Entry<String, Index> entry : indexes.entrySet()){
+            entry.getValue().put(entry.getKey(), context, membership);
+        }
+        memberships.put(context, membership);
+    }
+
+    private void removeMembership(Context context, Membership membership){
+        memberships.remove(context);
+        if(membership.indexedKeys == null){
+            return;
+        }
+        for(Map.Entry<String, Object> entry : membership.indexedKeys.entrySet()){
+            indexes.get(entry.getKey()).remove(entry.getValue(), context);
+        }
+    }
+
+    //drops changes applied by all views, once the log has grown a little
+    private void trim(){
+        if(version - logStart < TRIM_LENGTH){
+            return;
+        }
+        long minCursor = version;
+        for(View view : views){
+            minCursor = Math.min(minCursor, view.cursor);
+        }
+        while(logStart < minCursor){
+            Entry entry = log.set(logHead++, null);
+            logStart++;
+            if(entry.effective){
+                Membership membership = memberships.get(entry.context);
+                if(membership != null && membership.prune(minCursor)){
+                    removeMembership(entry.context, membership);
+                }
+            }
+        }
+        if(logHead > 64 && logHead * 2 > log.size()){
+            log.subList(0, logHead).clear();
+            logHead = 0;
+        }
+    }
+
+    private Entry entryAt(long cursor){
+        return log.get(logHead + (int) (cursor - logStart));
+    }
+
+    private Entry append(ContextChange contextChange){
+        boolean isAddition = contextChange.getChange_type() == ContextChange.Change_Type.ADDITION;
+        Context context = contextChange.getContext();
+        Membership membership = memberships.get(context);
+        boolean isIn = membership != null && membership.isOpen();
+        boolean effective = isAddition != isIn;
+        if(effective){
+            if(isAddition){
+                if(membership == null){
+                    membership = new Membership();
+                    putMembership(context, membership);
+                }
+                membership.open(version + 1);
+            }
+            else{
+                membership.close(version + 1);
+            }
+        }
+        Entry entry = new Entry(isAddition, context, effective);
+        log.add(entry);
+        version++;
+        return entry;
+    }
+
+    private Delta delta(long from, long to){
+        if(lastDelta != null && lastDelta.from == from && lastDelta.to == to){
+            return lastDelta;
+        }
+        Delta delta = new Delta(from, to);
+        for(long v = from; v < to; ++v){
+            Entry entry = entryAt(v);
+            delta.add(entry.isAddition, entry.context);
+        }
+        delta = delta.readOnly();
+        lastDelta = delta;
+        return delta;
+    }
+
+    private static class Entry {
+        private final boolean isAddition;
+        private final Context context;
+        //whether the change added or removed the context (e.g., not for a repeated addition)
+        private final boolean effective;
+
+        private Entry(boolean isAddition, Context context, boolean effective) {
+            this.isAddition = isAddition;
+            this.context = context;
+            this.effective = effective;
+        }
+    }
+
+    private static class Membership {
+        //pairs of [from, to), to is Long.MAX_VALUE while the context is in the store
+        private volatile long[] intervals = NO_INTERVALS;
+        //index name -> key of the indexes having the context, written under the lock of the store
+        private Map<String, Object> indexedKeys = null;
+
+        private boolean isOpen(){
+            long[] current = intervals;
+            return current.length > 0 && current[current.length - 1] == Long.MAX_VALUE;
+        }
+
+        private void open(long from){
+            long[] current = intervals;
+            long[] next = Arrays.copyOf(current, current.length + 2);
+            next[current.length] = from;
+            next[current.length + 1] = Long.MAX_VALUE;
+            intervals = next;
+        }
+
+        private void close(long to){
+            long[] next = intervals.clone();
+            next[next.length - 1] = to;
+            intervals = next;
+        }
+
+        private boolean isVisibleAt(long cursor){
+            long[] current = intervals;
+            for(int i = current.length - 2; i >= 0; i -= 2){
+                if(current[i] <= cursor){
+                    return cursor < current[i + 1];
+                }
+            }
+            return false;
+        }
+
+        //drops intervals before the cursor, returns whether none is left
+        private boolean prune(long minCursor){
+            long[] current = intervals;
+            int from = 0;
+            while(from < current.length && current[from + 1] <= minCursor){
+                from += 2;
+            }
+            if(from > 0){
+                intervals = Arrays.copyOfRange(current, from, current.length);
+            }
+            return from == current.length;
+        }
+    }
+
+    //contexts by key, e.g., by the value of a field
+    private static class Index {
+        private final Function<Context, Object> keyOf;
+        private final ConcurrentHashMap<Object, Set<Context>> buckets;
+
+        private Index(Function<Context, Object> keyOf) {
+            this.keyOf = keyOf;
+            this.buckets = new ConcurrentHashMap<>();
+        }
+
+        //the key is kept by the membership, as the fields of the context may be released before it is removed
+        private void put(String name, Context context, Membership membership){
+            Object key = keyOf.apply(context);
+            if(key != null){
+                buckets.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(context);
+                if(membership.indexedKeys == null){
+                    membership.indexedKeys = new HashMap<>();
+                }
+                membership.indexedKeys.put(name, key);
+            }
+        }
+
+        private void remove(Object key, Context context){
+            buckets.computeIfPresent(key, (k, contexts) -> {
+                contexts.remove(context);
+                return contexts.isEmpty() ? null : contexts;
+            });
+        }
+    }
+
+    //changes of a range of the log, read-only once shared
+    static class Delta {
+        private final long from;
+        private final long to;
+        final Set<Context> addSet;
+        final Set<Context> delSet;
+        final Set<Context> updSet;
+
+        Delta() {
+            this(-1L, -1L);
+        }
+
+        private Delta(long from, long to) {
+            this(from, to, new HashSet<>(), new HashSet<>(), new HashSet<>());
+        }
+
+        private Delta(long from, long to, Set<Context> addSet, Set<Context> delSet, Set<Context> updSet) {
+            this.from = from;
+            this.to = to;
+            this.addSet = addSet;
+            this.delSet = delSet;
+            this.updSet = updSet;
+        }
+
+        private Delta readOnly(){
+            return new Delta(from, to, Collections.unmodifiableSet(addSet), Collections.unmodifiableSet(delSet), Collections.unmodifiableSet(updSet));
+        }
+
+        void add(boolean isAddition, Context context){
+            if(isAddition){
+                if(delSet.contains(context)){
+                    delSet.remove(context);
+                    updSet.add(context);
+                }
+                else{
+                    addSet.add(context);
+                }
+            }
+            else{
+                if(addSet.contains(context)){
+                    addSet.remove(context);
+                }
+                else if(updSet.contains(context)){
+                    updSet.remove(context);
+                    delSet.add(context);
+                }
+                else{
+                    delSet.add(context);
+                }
+            }
+        }
+    }
+
+    /*
+        Pool set of a rule, written by the applier of the rule and read by its checking.
+        A view written directly (e.g., GEAS_opt cancelling a pair of changes in its batch)
+        no longer follows the log, so it takes a copy of its contexts and is detached from the store.
+     */
+    class View extends AbstractSet<Context> {
+        private volatile long cursor;
+        private volatile int size;
+        private volatile Set<Context> detached;
+
+        private View(long cursor) {
+            this.cursor = cursor;
+            this.size = 0;
+            this.detached = null;
+        }
+
+        /*
+            Applies the changes (of the pattern) in order and returns their Add/Del/Upd sets, null if detached.
+            Contexts removed from the view are put into removedContexts.
+         */
+        Delta apply(List<ContextChange> changes, List<Context> removedContexts){
+            synchronized (PatternStore.this){
+                long from = cursor;
+                for(ContextChange contextChange : changes){
+                    if(applyOne(contextChange)){
+                        removedContexts.add(contextChange.getContext());
+                    }
+                }
+                Delta delta = detached == null ? delta(from, cursor) : null;
+                trim();
+                return delta;
+            }
+        }
+
+        //returns whether the context is removed by the change
+        boolean apply(ContextChange contextChange){
+            synchronized (PatternStore.this){
+                boolean removed = applyOne(contextChange);
+                trim();
+                return removed;
+            }
+        }
+
+        private boolean applyOne(ContextChange contextChange){
+            boolean isAddition = contextChange.getChange_type() == ContextChange.Change_Type.ADDITION;
+            if(detached == null){
+                Entry entry = cursor == version ? append(contextChange) : entryAt(cursor);
+                if(entry.isAddition == isAddition && entry.context.equals(contextChange.getContext())){
+                    if(entry.effective){
+                        size += isAddition ? 1 : -1;
+                    }
+                    cursor++;
+                    return !isAddition && entry.effective;
+                }
+                detach();
+            }
+            if(isAddition){
+                detached.add(contextChange.getContext());
+                return false;
+            }
+            return detached.remove(contextChange.getContext());
+        }
+
+        private void detach(){
+            Set<Context> copy = ConcurrentHashMap.newKeySet();
+            copy.addAll(this);
+            detached = copy;
+            views.remove(this);
+        }
+
+        /*
+            Contexts of the view passing the filter, taken from the buckets of the keys if the store has the index,
+            otherwise (or once detached) by a scan. The keys must cover all contexts passing the filter.
+         */
+        Set<Context> lookup(String name, Collection<?> keys, Predicate<Context> filter){
+            Set<Context> result = new HashSet<>();
+            Index index = indexes.get(name);
+            if(detached != null || index == null){
+                for(Context context : this){
+                    if(filter.test(context)){
+                        result.add(context);
+                    }
+                }
+                return result;
+            }
+            long at = cursor;
+            for(Object key : keys){
+                for(Context context : index.buckets.getOrDefault(key, Collections.emptySet())){
+                    Membership membership = memberships.get(context);
+                    if(membership != null && membership.isVisibleAt(at) && filter.test(context)){
+                        result.add(context);
+                    }
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public Iterator<Context> iterator() {
+            Set<Context> detachedContexts = detached;
+            if(detachedContexts != null){
+                return Collections.unmodifiableSet(detachedContexts).iterator();
+            }
+            long at = cursor;
+            Iterator<Map.Entry<Context, Membership>> iterator = memberships.entrySet().iterator();
+            return new Iterator<>() {
+                private Context next = advance();
+
+                private Context advance(){
+                    while(iterator.hasNext()){
+                        Map.Entry<Context, Membership> entry = iterator.next();
+                        if(entry.getValue().isVisibleAt(at)){
+                            return entry.getKey();
+                        }
+                    }
+                    return null;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public Context next() {
+                    if(next == null){
+                        throw new NoSuchElementException();
+                    }
+                    Context context = next;
+                    next = advance();
+                    return context;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            Set<Context> detachedContexts = detached;
+            return detachedContexts != null ? detachedContexts.size() : size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            Set<Context> detachedContexts = detached;
+            if(detachedContexts != null){
+                return detachedContexts.contains(o);
+            }
+            Membership membership = o == null ? null : memberships.get(o);
+            return membership != null && membership.isVisibleAt(cursor);
+        }
+
+        @Override
+        public boolean add(Context context) {
+            synchronized (PatternStore.this){
+                if(detached == null){
+                    detach();
+                }
+                return detached.add(context);
+            }
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            synchronized (PatternStore.this){
+                if(detached == null){
+                    detach();
+                }
+                return detached.remove(o);
+            }
+        }
+    }
+}
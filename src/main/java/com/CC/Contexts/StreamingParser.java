@@ -0,0 +1,403 @@
+package com.CC.Contexts;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/*
+    Single-pass parser for rawData and change lines, given as Strings or as UTF-8 byte slices
+    (e.g., lines of a memory-mapped data file).
+    Fields are written straight into the context instead of going through a JSONObject tree.
+    Known keys are compared in place, and only values and field names are decoded to Strings.
+    One instance keeps a cursor over the current line, so it must not be shared between threads.
+ */
+public class StreamingParser {
+
+    //schema and id numbers of the contexts of change lines
+    private final ContextSchema contextSchema;
+    private final ContextIds contextIds;
+
+    private final StringSource stringSource = new StringSource();
+    private final ByteSliceSource byteSliceSource = new ByteSliceSource();
+
+    private Source source;
+    private int pos;
+
+    public StreamingParser(ContextSchema contextSchema, ContextIds contextIds) {
+        this.contextSchema = contextSchema;
+        this.contextIds = contextIds;
+    }
+
+    //rawData: {"timestamp": "...", "fields": {...}}, returns the timestamp
+    public String parseRawData(String line, Context context){
+        stringSource.line = line;
+        return parseRawData(stringSource, context);
+    }
+
+    public String parseRawData(ByteSlice byteSlice, Context context){
+        byteSliceSource.reset(byteSlice);
+        return parseRawData(byteSliceSource, context);
+    }
+
+    //change: {"changeType": "+", "patternId": "pat_1", "context": {"contextId": "ctx_1", "fields": {...}}}, returns the changeType
+    public String parseChange(String line, ContextChange contextChange){
+        stringSource.line = line;
+        return parseChange(stringSource, contextChange);
+    }
+
+    public String parseChange(ByteSlice byteSlice, ContextChange contextChange){
+        byteSliceSource.reset(byteSlice);
+        return parseChange(byteSliceSource, contextChange);
+    }
+
+    private String parseRawData(Source source, Context context){
+        reset(source);
+        String timestampStr = null;
+        expect('{');
+        if(nextIf('}')){
+            return null;
+        }
+        do{
+            if(nextKeyIs("timestamp")){
+                timestampStr = readValue();
+            }
+            else if(nextKeyIs("fields")){
+                readFields(context.getCtx_fields());
+            }
+            else{
+                skipEntry();
+            }
+        }while(nextIf(','));
+        expect('}');
+        return timestampStr;
+    }
+
+    private String parseChange(Source source, ContextChange contextChange){
+        reset(source);
+        String chgType = null;
+        expect('{');
+        if(nextIf('}')){
+            return null;
+        }
+        do{
+            if(nextKeyIs("changeType")){
+                chgType = readValue();
+            }
+            else if(nextKeyIs("patternId")){
+                contextChange.setPattern_id(readValue());
+            }
+            else if(nextKeyIs("context")){
+                contextChange.setContext(readContext());
+            }
+            else{
+                skipEntry();
+            }
+        }while(nextIf(','));
+        expect('}');
+        return chgType;
+    }
+
+    private Context readContext(){
+        Context context = new Context(contextSchema);
+        expect('{');
+        if(nextIf('}')){
+            return context;
+        }
+        do{
+            if(nextKeyIs("contextId")){
+                context.setCtx_id(readValue(), contextIds);
+            }
+            else if(nextKeyIs("fields")){
+                readFields(context.getCtx_fields());
+            }
+            else{
+                skipEntry();
+            }
+        }while(nextIf(','));
+        expect('}');
+        return context;
+    }
+
+    private void readFields(Map<String, String> ctxFields){
+        expect('{');
+        if(nextIf('}')){
+            return;
+        }
+        do{
+            String fieldName = readString();
+            expect(':');
+            ctxFields.put(fieldName, readValue());
+        }while(nextIf(','));
+        expect('}');
+    }
+
+    /*
+        tokens
+     */
+
+    private void reset(Source source){
+        this.source = source;
+        this.pos = 0;
+    }
+
+    private void skipWhitespace(){
+        while(pos < source.length() && source.at(pos) <= ' '){
+            pos++;
+        }
+    }
+
+    private void expect(char c){
+        skipWhitespace();
+        if(pos >= source.length() || source.at(pos) != c){
+            throw error("'" + c + "' expected");
+        }
+        pos++;
+    }
+
+    private boolean nextIf(char c){
+        skipWhitespace();
+        if(pos < source.length() && source.at(pos) == c){
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    //consumes `"key":` if the next key is exactly the given (ASCII) one, keys with escapes never match
+    private boolean nextKeyIs(String key){
+        skipWhitespace();
+        int keyEnd = pos + 1 + key.length();
+        if(keyEnd >= source.length() || source.at(pos) != '"' || source.at(keyEnd) != '"' || !source.startsWith(key, pos + 1)){
+            return false;
+        }
+        pos = keyEnd + 1;
+        expect(':');
+        return true;
+    }
+
+    private void skipEntry(){
+        skipString();
+        expect(':');
+        skipValue();
+    }
+
+    //same as JSONObject.getString: strings unquoted, null as null, others as their text
+    private String readValue(){
+        skipWhitespace();
+        if(pos >= source.length()){
+            throw error("value expected");
+        }
+        if(source.at(pos) == '"'){
+            return readString();
+        }
+        int valueStart = pos;
+        skipValue();
+        String text = source.text(valueStart, pos, false);
+        return text.equals("null") ? null : text;
+    }
+
+    private String readString(){
+        expect('"');
+        int strStart = pos;
+        boolean ascii = true;
+        //fast path without escapes
+        while(pos < source.length()){
+            int c = source.at(pos);
+            if(c == '"'){
+                return source.text(strStart, pos++, ascii);
+            }
+            if(c == '\\'){
+                break;
+            }
+            ascii &= c < 0x80;
+            pos++;
+        }
+        //runs between escapes are decoded as a whole, so multi-byte characters are kept
+        StringBuilder stringBuilder = new StringBuilder();
+        int runStart = strStart;
+        while(pos < source.length()){
+            int c = source.at(pos);
+            if(c == '"'){
+                stringBuilder.append(source.text(runStart, pos++, false));
+                return stringBuilder.toString();
+            }
+            if(c != '\\'){
+                pos++;
+                continue;
+            }
+            stringBuilder.append(source.text(runStart, pos++, false));
+            if(pos >= source.length()){
+                break;
+            }
+            int e = source.at(pos++);
+            switch (e){
+                case 'b': stringBuilder.append('\b'); break;
+                case 'f': stringBuilder.append('\f'); break;
+                case 'n': stringBuilder.append('\n'); break;
+                case 'r': stringBuilder.append('\r'); break;
+                case 't': stringBuilder.append('\t'); break;
+                case 'u':
+                    if(pos + 4 > source.length()){
+                        throw error("illegal unicode escape");
+                    }
+                    stringBuilder.append((char) Integer.parseInt(source.text(pos, pos + 4, true), 16));
+                    pos += 4;
+                    break;
+                default:
+                    if(e >= 0x80){
+                        //non-ASCII character, decoded with the next run
+                        pos--;
+                    }
+                    else{
+                        stringBuilder.append((char) e);
+                    }
+            }
+            runStart = pos;
+        }
+        throw error("unterminated string");
+    }
+
+    private void skipString(){
+        expect('"');
+        while(pos < source.length()){
+            int c = source.at(pos++);
+            if(c == '"'){
+                return;
+            }
+            if(c == '\\'){
+                pos++;
+            }
+        }
+        throw error("unterminated string");
+    }
+
+    private void skipValue(){
+        skipWhitespace();
+        if(pos >= source.length()){
+            throw error("value expected");
+        }
+        int c = source.at(pos);
+        if(c == '"'){
+            skipString();
+        }
+        else if(c == '{' || c == '['){
+            //nested values are not interpreted, only skipped
+            int depth = 0;
+            while(pos < source.length()){
+                int d = source.at(pos);
+                if(d == '"'){
+                    skipString();
+                    continue;
+                }
+                pos++;
+                if(d == '{' || d == '['){
+                    depth++;
+                }
+                else if(d == '}' || d == ']'){
+                    if(--depth == 0){
+                        return;
+                    }
+                }
+            }
+            throw error("unterminated value");
+        }
+        else{
+            while(pos < source.length()){
+                int d = source.at(pos);
+                if(d == ',' || d == '}' || d == ']' || d <= ' '){
+                    break;
+                }
+                pos++;
+            }
+        }
+    }
+
+    private IllegalArgumentException error(String message){
+        return new IllegalArgumentException("StreamingParser: " + message + " at " + pos + " in \"" + source.text(0, source.length(), false) + "\"");
+    }
+
+    /*
+        The line being parsed, only this differs between Strings and byte slices.
+        Positions are relative to the start of the line.
+     */
+    private interface Source {
+        int length();
+        //char, or unsigned byte of a byte slice
+        int at(int pos);
+        //whether the ASCII key is found at the position
+        boolean startsWith(String key, int pos);
+        //decoded [from, to), ascii if all known to be ASCII
+        String text(int from, int to, boolean ascii);
+    }
+
+    private static class StringSource implements Source {
+        private String line;
+
+        @Override
+        public int length() {
+            return line.length();
+        }
+
+        @Override
+        public int at(int pos) {
+            return line.charAt(pos);
+        }
+
+        @Override
+        public boolean startsWith(String key, int pos) {
+            return line.startsWith(key, pos);
+        }
+
+        @Override
+        public String text(int from, int to, boolean ascii) {
+            return line.substring(from, to);
+        }
+    }
+
+    //read with absolute gets only, see ByteSlice
+    private static class ByteSliceSource implements Source {
+        private ByteBuffer buffer;
+        private int start;
+        private int length;
+        //copy of the bytes being decoded
+        private byte[] scratch = new byte[64];
+
+        private void reset(ByteSlice byteSlice){
+            this.buffer = byteSlice.getBuffer();
+            this.start = byteSlice.getStart();
+            this.length = byteSlice.length();
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public int at(int pos) {
+            return buffer.get(start + pos) & 0xff;
+        }
+
+        @Override
+        public boolean startsWith(String key, int pos) {
+            for(int i = 0; i < key.length(); ++i){
+                if(buffer.get(start + pos + i) != key.charAt(i)){
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String text(int from, int to, boolean ascii) {
+            int textLength = to - from;
+            if(scratch.length < textLength){
+                scratch = new byte[Math.max(textLength, scratch.length * 2)];
+            }
+            for(int i = 0; i < textLength; ++i){
+                scratch[i] = buffer.get(start + from + i);
+            }
+            return new String(scratch, 0, textLength, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+        }
+    }
+}
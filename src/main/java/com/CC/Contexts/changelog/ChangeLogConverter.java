@@ -0,0 +1,85 @@
+package com.CC.Contexts.changelog;
+
+import com.CC.Contexts.ContextChange;
+import com.CC.Contexts.ContextHandler;
+import com.CC.Patterns.PatternHandler;
+import com.CC.Util.Loggable;
+import org.apache.commons.cli.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+/*
+    Converts "rawData" or "change" data into a binary change log.
+    rawData is turned into changes with the given patterns, as in offline checking,
+    so that checking the change log gives the same results as checking the rawData.
+ */
+public class ChangeLogConverter implements Loggable {
+
+    public static long convert(String dataFile, String dataType, PatternHandler patternHandler, String outFile) throws Exception {
+        ContextHandler contextHandler = new ContextHandler(patternHandler, dataType, "streaming");
+        long changeNum = 0L;
+        try(BufferedReader bufferedReader = Files.newBufferedReader(Paths.get(dataFile), StandardCharsets.UTF_8);
+            ChangeLogWriter changeLogWriter = new ChangeLogWriter(Paths.get(outFile))){
+            String line;
+            while((line = bufferedReader.readLine()) != null){
+                changeNum += write(changeLogWriter, contextHandler.generateChanges(line));
+            }
+            changeNum += write(changeLogWriter, contextHandler.generateChanges(null));
+        }
+        return changeNum;
+    }
+
+    private static int write(ChangeLogWriter changeLogWriter, List<ContextChange> changeList) throws IOException {
+        for(ContextChange contextChange : changeList){
+            changeLogWriter.write(contextChange);
+        }
+        return changeList.size();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options();
+        options.addOption(Option.builder("data").argName("file").hasArg().required(true)
+                .desc("Read data from given file").build());
+        options.addOption(Option.builder("datatype").argName("type").hasArg().required(true)
+                .desc("Specify the type of data in dataFile [rawData/change]").build());
+        options.addOption(Option.builder("patterns").argName("file").hasArg().required(false)
+                .desc("Load patterns from given file (XML file), required for rawData").build());
+        options.addOption(Option.builder("mfuncs").argName("file").hasArg().required(false)
+                .desc("Load mfunctions from given file (Class file)").build());
+        options.addOption(Option.builder("out").argName("file").hasArg().required(true)
+                .desc("Write the change log to given file").build());
+
+        CommandLine cli = null;
+        HelpFormatter helpFormatter = new HelpFormatter();
+        try {
+            cli = new DefaultParser().parse(options, args);
+        } catch (ParseException e) {
+            helpFormatter.printHelp("java -cp INFUSE-version.jar com.CC.Contexts.changelog.ChangeLogConverter [Options]", options, true);
+            System.exit(1);
+        }
+
+        String dataType = cli.getOptionValue("datatype");
+        PatternHandler patternHandler = new PatternHandler();
+        if(dataType.equals("rawData")){
+            if(!cli.hasOption("patterns")){
+                logger.error("\033[91m" + "No specified pattern file for rawData, please use option \"-patterns\"" + "\033[0m");
+                System.exit(1);
+            }
+            patternHandler.buildPatterns(cli.getOptionValue("patterns"), cli.getOptionValue("mfuncs"));
+        }
+        else if(!dataType.equals("change")){
+            logger.error("\033[91m" + "The data type is illegal, available datatypes: [rawData/change]" + "\033[0m");
+            System.exit(1);
+        }
+
+        long startTime = System.nanoTime();
+        long changeNum = convert(cli.getOptionValue("data"), dataType, patternHandler, cli.getOptionValue("out"));
+        logger.info("\033[92m" + "Write " + changeNum + " changes to \"" + cli.getOptionValue("out") + "\" in "
+                + (System.nanoTime() - startTime) / 1000000L + " ms\033[0m");
+    }
+}
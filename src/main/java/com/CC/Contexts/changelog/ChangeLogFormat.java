@@ -0,0 +1,34 @@
+package com.CC.Contexts.changelog;
+
+/*
+    Binary change log, a compact replacement of "change" data (one json change per line).
+
+    file    := MAGIC VERSION record*
+    record  := varint(length) payload[length]
+    payload := FIELD   varint(index) string(fieldName)        -- field dictionary entry
+             | PATTERN varint(index) string(patternId)        -- pattern dictionary entry
+             | ID      varint(index) string(ctxId)            -- context id dictionary entry
+             | CHANGE  byte(changeType) varint(patternIndex) zigzag(ctxRef) varint(fieldNum) (varint(fieldIndex) value)*
+    value   := NULL_VALUE | STRING_VALUE string
+    string  := varint(byteLength) utf8Bytes
+    zigzag  := varlong((v << 1) ^ (v >> 63))
+
+    Dictionary entries are written before their first use and indexed from 0 in order of appearance,
+    so a file can be written and read in one pass.
+    changeType is '+', '-' or 'u' as in "change" data. ctxRef is N for context "ctx_N" (see ContextIds),
+    and -(index + 1) of the id dictionary for other context ids (e.g., "taxi_7" or "ctx_007"), which are kept as they are.
+ */
+public final class ChangeLogFormat {
+    public static final byte[] MAGIC = {'I', 'N', 'F', 'C'};
+    public static final byte VERSION = 2;
+
+    public static final byte FIELD = 'F';
+    public static final byte PATTERN = 'P';
+    public static final byte ID = 'I';
+    public static final byte CHANGE = 'C';
+
+    public static final byte NULL_VALUE = 0;
+    public static final byte STRING_VALUE = 1;
+
+    private ChangeLogFormat() {}
+}
@@ -0,0 +1,212 @@
+package com.CC.Contexts.changelog;
+
+import com.CC.Contexts.Context;
+import com.CC.Contexts.ContextChange;
+import com.CC.Contexts.ContextIds;
+import com.CC.Contexts.ContextSchema;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//reads changes in the format of ChangeLogFormat
+public class ChangeLogReader implements Closeable {
+    private final InputStream inputStream;
+    private final List<String> fieldDict;
+    private final List<String> patternDict;
+    private final List<String> idDict;
+    //schema and id numbers of the contexts read
+    private final ContextSchema contextSchema;
+    private final ContextIds contextIds;
+    //payload of the current record
+    private byte[] payload;
+    private int pos;
+    private int length;
+
+    public ChangeLogReader(Path path) throws IOException {
+        this(path, new ContextSchema(), new ContextIds());
+    }
+
+    public ChangeLogReader(Path path, ContextSchema contextSchema, ContextIds contextIds) throws IOException {
+        this.contextSchema = contextSchema;
+        this.contextIds = contextIds;
+        this.inputStream = new BufferedInputStream(Files.newInputStream(path), 1 << 16);
+        this.fieldDict = new ArrayList<>();
+        this.patternDict = new ArrayList<>();
+        this.idDict = new ArrayList<>();
+        this.payload = new byte[256];
+        this.pos = 0;
+        this.length = 0;
+        byte[] header = new byte[ChangeLogFormat.MAGIC.length + 1];
+        if(inputStream.readNBytes(header, 0, header.length) != header.length
+                || !Arrays.equals(Arrays.copyOf(header, ChangeLogFormat.MAGIC.length), ChangeLogFormat.MAGIC)){
+            inputStream.close();
+            throw new IOException("Not a change log file: " + path);
+        }
+        if(header[ChangeLogFormat.MAGIC.length] != ChangeLogFormat.VERSION){
+            inputStream.close();
+            throw new IOException("Unsupported change log version " + header[ChangeLogFormat.MAGIC.length] + ": " + path);
+        }
+    }
+
+    //next change, null at the end of file
+    public ContextChange readChange() throws IOException {
+        while(readRecord()){
+            byte recordType = getByte();
+            switch (recordType){
+                case ChangeLogFormat.FIELD:
+                    readDictEntry(fieldDict);
+                    break;
+                case ChangeLogFormat.PATTERN:
+                    readDictEntry(patternDict);
+                    break;
+                case ChangeLogFormat.ID:
+                    readDictEntry(idDict);
+                    break;
+                case ChangeLogFormat.CHANGE:
+                    return readChangeRecord();
+                default:
+                    throw new IOException("Illegal change log record type " + recordType);
+            }
+        }
+        return null;
+    }
+
+    private ContextChange readChangeRecord() throws IOException {
+        ContextChange contextChange = new ContextChange();
+        byte changeType = getByte();
+        switch (changeType){
+            case '+':
+                contextChange.setChange_type(ContextChange.Change_Type.ADDITION);
+                break;
+            case '-':
+                contextChange.setChange_type(ContextChange.Change_Type.DELETION);
+                break;
+            case 'u':
+                contextChange.setChange_type(ContextChange.Change_Type.UPDATE);
+                break;
+            default:
+                throw new IOException("Illegal change type " + (char) changeType);
+        }
+        contextChange.setPattern_id(dictEntry(patternDict, getVarLong()));
+        Context context = new Context(contextSchema);
+        long zigzag = getVarLong();
+        long ctxRef = (zigzag >>> 1) ^ -(zigzag & 1);
+        if(ContextIds.isCanonical(ctxRef)){
+            context.setCtx_num(ctxRef);
+        }
+        else{
+            context.setCtx_id(dictEntry(idDict, -(ctxRef + 1)), contextIds);
+        }
+        long fieldNum = getVarLong();
+        for(long i = 0; i < fieldNum; ++i){
+            String fieldName = dictEntry(fieldDict, getVarLong());
+            byte valueType = getByte();
+            if(valueType == ChangeLogFormat.NULL_VALUE){
+                context.getCtx_fields().put(fieldName, null);
+            }
+            else if(valueType == ChangeLogFormat.STRING_VALUE){
+                context.getCtx_fields().put(fieldName, getString());
+            }
+            else{
+                throw new IOException("Illegal value type " + valueType);
+            }
+        }
+        contextChange.setContext(context);
+        return contextChange;
+    }
+
+    private void readDictEntry(List<String> dict) throws IOException {
+        long index = getVarLong();
+        if(index != dict.size()){
+            throw new IOException("Dictionary entry " + index + " is out of order");
+        }
+        dict.add(getString());
+    }
+
+    private static String dictEntry(List<String> dict, long index) throws IOException {
+        if(index < 0 || index >= dict.size()){
+            throw new IOException("Undefined dictionary entry " + index);
+        }
+        return dict.get((int) index);
+    }
+
+    //reads the next record into payload, false at the end of file
+    private boolean readRecord() throws IOException {
+        int b = inputStream.read();
+        if(b == -1){
+            return false;
+        }
+        long len = 0L;
+        int shift = 0;
+        while(true){
+            len |= (long) (b & 0x7F) << shift;
+            if((b & 0x80) == 0){
+                break;
+            }
+            shift += 7;
+            b = inputStream.read();
+            if(b == -1 || shift > 28){
+                throw new IOException("Illegal change log record length");
+            }
+        }
+        if(len > Integer.MAX_VALUE - 8){
+            throw new IOException("Illegal change log record length " + len);
+        }
+        length = (int) len;
+        if(payload.length < length){
+            payload = new byte[Math.max(payload.length * 2, length)];
+        }
+        if(inputStream.readNBytes(payload, 0, length) != length){
+            throw new EOFException("Truncated change log record");
+        }
+        pos = 0;
+        return true;
+    }
+
+    private byte getByte() throws IOException {
+        if(pos >= length){
+            throw new IOException("Truncated change log record");
+        }
+        return payload[pos++];
+    }
+
+    private long getVarLong() throws IOException {
+        long value = 0L;
+        int shift = 0;
+        while(true){
+            byte b = getByte();
+            value |= (long) (b & 0x7F) << shift;
+            if((b & 0x80) == 0){
+                return value;
+            }
+            shift += 7;
+            if(shift > 63){
+                throw new IOException("Illegal varint in change log record");
+            }
+        }
+    }
+
+    private String getString() throws IOException {
+        long len = getVarLong();
+        if(len < 0 || len > length - pos){
+            throw new IOException("Truncated change log record");
+        }
+        String str = new String(payload, pos, (int) len, StandardCharsets.UTF_8);
+        pos += (int) len;
+        return str;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+}
@@ -0,0 +1,157 @@
+package com.CC.Contexts.changelog;
+
+import com.CC.Contexts.Context;
+import com.CC.Contexts.ContextChange;
+import com.CC.Contexts.ContextIds;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+//writes changes in the format of ChangeLogFormat
+public class ChangeLogWriter implements Closeable {
+    private final OutputStream outputStream;
+    private final Map<String, Integer> fieldDict;
+    private final Map<String, Integer> patternDict;
+    private final Map<String, Integer> idDict;
+    //payload of the current record
+    private byte[] payload;
+    private int length;
+
+    public ChangeLogWriter(Path path) throws IOException {
+        this.outputStream = new BufferedOutputStream(Files.newOutputStream(path), 1 << 16);
+        this.fieldDict = new HashMap<>();
+        this.patternDict = new HashMap<>();
+        this.idDict = new HashMap<>();
+        this.payload = new byte[256];
+        this.length = 0;
+        outputStream.write(ChangeLogFormat.MAGIC);
+        outputStream.write(ChangeLogFormat.VERSION);
+    }
+
+    public void write(ContextChange contextChange) throws IOException {
+        int patternIndex = dictIndex(patternDict, ChangeLogFormat.PATTERN, contextChange.getPattern_id());
+        Context context = contextChange.getContext();
+        long ctxRef = context.getCtx_num();
+        if(!ContextIds.isCanonical(ctxRef)){
+            ctxRef = -(dictIndex(idDict, ChangeLogFormat.ID, context.getCtx_id()) + 1L);
+        }
+        Map<String, String> ctxFields = context.getCtx_fields();
+        int[] fieldIndexes = new int[ctxFields.size()];
+        int i = 0;
+        for(String fieldName : ctxFields.keySet()){
+            fieldIndexes[i++] = dictIndex(fieldDict, ChangeLogFormat.FIELD, fieldName);
+        }
+
+        length = 0;
+        putByte(ChangeLogFormat.CHANGE);
+        putByte(changeType(contextChange.getChange_type()));
+        putVarLong(patternIndex);
+        putVarLong((ctxRef << 1) ^ (ctxRef >> 63));
+        putVarLong(fieldIndexes.length);
+        i = 0;
+        for(String fieldValue : ctxFields.values()){
+            putVarLong(fieldIndexes[i++]);
+            if(fieldValue == null){
+                putByte(ChangeLogFormat.NULL_VALUE);
+            }
+            else{
+                putByte(ChangeLogFormat.STRING_VALUE);
+                putString(fieldValue);
+            }
+        }
+        flushRecord();
+    }
+
+    private int dictIndex(Map<String, Integer> dict, byte entryType, String key) throws IOException {
+        if(key == null){
+            throw new IllegalArgumentException("Null " + entryName(entryType) + " in change");
+        }
+        Integer index = dict.get(key);
+        if(index == null){
+            index = dict.size();
+            dict.put(key, index);
+            length = 0;
+            putByte(entryType);
+            putVarLong(index);
+            putString(key);
+            flushRecord();
+        }
+        return index;
+    }
+
+    private static String entryName(byte entryType){
+        switch (entryType){
+            case ChangeLogFormat.FIELD:
+                return "field name";
+            case ChangeLogFormat.PATTERN:
+                return "pattern id";
+            default:
+                return "context id";
+        }
+    }
+
+    private static byte changeType(ContextChange.Change_Type changeType){
+        switch (changeType){
+            case ADDITION:
+                return '+';
+            case DELETION:
+                return '-';
+            case UPDATE:
+                return 'u';
+            default:
+                throw new IllegalArgumentException("Illegal change type " + changeType);
+        }
+    }
+
+    private void flushRecord() throws IOException {
+        long len = length;
+        while((len & ~0x7FL) != 0){
+            outputStream.write((int) ((len & 0x7F) | 0x80));
+            len >>>= 7;
+        }
+        outputStream.write((int) len);
+        outputStream.write(payload, 0, length);
+    }
+
+    private void ensure(int extra){
+        if(length + extra > payload.length){
+            byte[] newPayload = new byte[Math.max(payload.length * 2, length + extra)];
+            System.arraycopy(payload, 0, newPayload, 0, length);
+            payload = newPayload;
+        }
+    }
+
+    private void putByte(byte b){
+        ensure(1);
+        payload[length++] = b;
+    }
+
+    private void putVarLong(long value){
+        ensure(10);
+        while((value & ~0x7FL) != 0){
+            payload[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        payload[length++] = (byte) value;
+    }
+
+    private void putString(String str){
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        putVarLong(bytes.length);
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, payload, length, bytes.length);
+        length += bytes.length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        outputStream.close();
+    }
+}
@@ -0,0 +1,22 @@
+package com.CC.Contexts.timestamp;
+
+import java.text.ParseException;
+
+//numeric timestamps are epoch milliseconds, others follow "yyyy-MM-dd HH:mm:ss:SSS"
+public class AutoTimestampCodec implements TimestampCodec {
+    private final EpochTimestampCodec epochCodec;
+    private final LayoutTimestampCodec layoutCodec;
+
+    public AutoTimestampCodec() {
+        this.epochCodec = new EpochTimestampCodec();
+        this.layoutCodec = new LayoutTimestampCodec();
+    }
+
+    @Override
+    public long parse(String timestampStr) throws ParseException {
+        if(timestampStr != null && EpochTimestampCodec.isEpoch(timestampStr)){
+            return epochCodec.parse(timestampStr);
+        }
+        return layoutCodec.parse(timestampStr);
+    }
+}
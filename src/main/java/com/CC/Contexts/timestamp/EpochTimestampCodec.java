@@ -0,0 +1,45 @@
+package com.CC.Contexts.timestamp;
+
+import java.text.ParseException;
+
+//timestamp as epoch milliseconds, e.g., "1302206400000"
+public class EpochTimestampCodec implements TimestampCodec {
+
+    @Override
+    public long parse(String timestampStr) throws ParseException {
+        if(timestampStr == null || timestampStr.isEmpty()){
+            throw new ParseException("Unparseable date: \"" + timestampStr + "\"", 0);
+        }
+        int i = 0;
+        boolean negative = timestampStr.charAt(0) == '-';
+        if(negative){
+            i++;
+        }
+        if(i == timestampStr.length() || timestampStr.length() - i > 18){
+            throw new ParseException("Unparseable date: \"" + timestampStr + "\"", i);
+        }
+        long time = 0L;
+        for(; i < timestampStr.length(); ++i){
+            int digit = timestampStr.charAt(i) - '0';
+            if(digit < 0 || digit > 9){
+                throw new ParseException("Unparseable date: \"" + timestampStr + "\"", i);
+            }
+            time = time * 10 + digit;
+        }
+        return negative ? -time : time;
+    }
+
+    public static boolean isEpoch(String timestampStr){
+        int length = timestampStr.length();
+        if(length == 0 || length > 18){
+            return false;
+        }
+        for(int i = 0; i < length; ++i){
+            char c = timestampStr.charAt(i);
+            if(c < '0' || c > '9'){
+                return false;
+            }
+        }
+        return true;
+    }
+}
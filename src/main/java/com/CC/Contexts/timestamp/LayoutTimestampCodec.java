@@ -0,0 +1,113 @@
+package com.CC.Contexts.timestamp;
+
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.TimeZone;
+
+/*
+    Hand-rolled parser for the fixed layout "yyyy-MM-dd HH:mm:ss:SSS" in the default time zone,
+    giving the same result as SimpleDateFormat for well-formed timestamps.
+    The epoch of the latest day is cached, so a record only costs digit arithmetic.
+ */
+public class LayoutTimestampCodec implements TimestampCodec {
+    public static final String LAYOUT = "yyyy-MM-dd HH:mm:ss:SSS";
+
+    private static final long DAY_MILLIS = 24 * 3600 * 1000L;
+
+    //immutable, so it can be published to other threads through a volatile field
+    private static final class DayEntry {
+        final int dayKey; //yyyyMMdd
+        final long dayStart;
+        final boolean regular; //no offset transition during the day
+
+        DayEntry(int dayKey, long dayStart, boolean regular) {
+            this.dayKey = dayKey;
+            this.dayStart = dayStart;
+            this.regular = regular;
+        }
+    }
+
+    private final ZoneId zoneId;
+    private volatile DayEntry latestDay;
+
+    public LayoutTimestampCodec() {
+        this(TimeZone.getDefault().toZoneId());
+    }
+
+    public LayoutTimestampCodec(ZoneId zoneId) {
+        this.zoneId = zoneId;
+        this.latestDay = null;
+    }
+
+    @Override
+    public long parse(String timestampStr) throws ParseException {
+        if(timestampStr == null || timestampStr.length() != LAYOUT.length()){
+            throw new ParseException("Unparseable date: \"" + timestampStr + "\"", 0);
+        }
+        checkSeparator(timestampStr, 4, '-');
+        checkSeparator(timestampStr, 7, '-');
+        checkSeparator(timestampStr, 10, ' ');
+        checkSeparator(timestampStr, 13, ':');
+        checkSeparator(timestampStr, 16, ':');
+        checkSeparator(timestampStr, 19, ':');
+        int year = digits(timestampStr, 0, 4);
+        int month = digits(timestampStr, 5, 2);
+        int day = digits(timestampStr, 8, 2);
+        int hour = digits(timestampStr, 11, 2);
+        int minute = digits(timestampStr, 14, 2);
+        int second = digits(timestampStr, 17, 2);
+        int millis = digits(timestampStr, 20, 3);
+
+        int dayKey = (year * 100 + month) * 100 + day;
+        DayEntry dayEntry = latestDay;
+        if(dayEntry == null || dayEntry.dayKey != dayKey){
+            dayEntry = buildDayEntry(timestampStr, dayKey, year, month, day);
+            latestDay = dayEntry;
+        }
+        if(dayEntry.regular){
+            return dayEntry.dayStart + hour * 3600_000L + minute * 60_000L + second * 1000L + millis;
+        }
+        //offset transition in this day, let java.time resolve the local time (the later offset at overlaps, as SimpleDateFormat)
+        try{
+            return LocalDateTime.of(year, month, day, 0, 0)
+                    .plusHours(hour).plusMinutes(minute).plusSeconds(second)
+                    .atZone(zoneId).withLaterOffsetAtOverlap().toInstant().toEpochMilli() + millis;
+        } catch (RuntimeException e){
+            throw new ParseException("Unparseable date: \"" + timestampStr + "\"", 0);
+        }
+    }
+
+    private DayEntry buildDayEntry(String timestampStr, int dayKey, int year, int month, int day) throws ParseException {
+        LocalDate localDate;
+        try{
+            localDate = LocalDate.of(year, month, day);
+        } catch (RuntimeException e){
+            throw new ParseException("Unparseable date: \"" + timestampStr + "\"", 5);
+        }
+        long dayStart = localDate.atStartOfDay(zoneId).toInstant().toEpochMilli();
+        long nextDayStart = localDate.plusDays(1).atStartOfDay(zoneId).toInstant().toEpochMilli();
+        boolean regular = nextDayStart - dayStart == DAY_MILLIS
+                && localDate.atStartOfDay(zoneId).toLocalTime().toSecondOfDay() == 0;
+        return new DayEntry(dayKey, dayStart, regular);
+    }
+
+    private static void checkSeparator(String timestampStr, int index, char separator) throws ParseException {
+        if(timestampStr.charAt(index) != separator){
+            throw new ParseException("Unparseable date: \"" + timestampStr + "\"", index);
+        }
+    }
+
+    private static int digits(String timestampStr, int begin, int length) throws ParseException {
+        int value = 0;
+        for(int i = begin; i < begin + length; ++i){
+            int digit = timestampStr.charAt(i) - '0';
+            if(digit < 0 || digit > 9){
+                throw new ParseException("Unparseable date: \"" + timestampStr + "\"", i);
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
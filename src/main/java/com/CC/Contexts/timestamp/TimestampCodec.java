@@ -0,0 +1,11 @@
+package com.CC.Contexts.timestamp;
+
+import java.text.ParseException;
+
+/*
+    Converts the "timestamp" of a record into epoch milliseconds.
+    Implementations must be safe to share between parser threads.
+ */
+public interface TimestampCodec {
+    long parse(String timestampStr) throws ParseException;
+}
@@ -33,7 +33,7 @@ public class BASE extends ConC{
                 //taint SCCT
                 Set<RuntimeNode> prevSubstantialNodes = this.substantialNodes.getOrDefault(rule.getRule_id(),  new HashSet<>());
                 if(this.isMG){
-                    this.substantialNodes.put(rule.getRule_id(), rule.taintSCCT());
+                    this.substantialNodes.put(rule.getRule_id(), rule.taintSCCT(this));
                 }
                 //links generation
                 Set<Link> links = rule.linksGeneration_BASE(contextChange, this, prevSubstantialNodes);
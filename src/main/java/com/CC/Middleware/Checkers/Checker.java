@@ -1,5 +1,7 @@
 package com.CC.Middleware.Checkers;
 
+import com.CC.Constraints.Formulas.Bfunc;
+import com.CC.Constraints.Formulas.BfuncCache;
 import com.CC.Constraints.Rules.Rule;
 import com.CC.Constraints.Rules.RuleHandler;
 import com.CC.Constraints.Runtime.Link;
@@ -14,7 +16,9 @@ public abstract class Checker {
     protected RuleHandler ruleHandler;
     protected ContextPool contextPool;
     protected String technique;
-    protected Object bfuncInstance;
+    protected Bfunc bfunc;
+    //null if results of bfuncs are not cached
+    protected BfuncCache bfuncCache;
     // for MG
     protected boolean isMG;
     protected final Map<String, Set<RuntimeNode>> substantialNodes;
@@ -25,7 +29,7 @@ public abstract class Checker {
     public Checker(RuleHandler ruleHandler, ContextPool contextPool, Object bfuncInstance, boolean isMG) {
         this.ruleHandler = ruleHandler;
         this.contextPool = contextPool;
-        this.bfuncInstance = bfuncInstance;
+        this.bfunc = Bfunc.bind(bfuncInstance);
         this.isMG = isMG;
         this.substantialNodes = new HashMap<>();
         this.ruleLinksMap = new HashMap<>();
@@ -44,7 +48,7 @@ public abstract class Checker {
             rule.truthEvaluation_ECC(this);
             Set<RuntimeNode> prevSubstantialNodes = this.substantialNodes.getOrDefault(rule.getRule_id(),  new HashSet<>());
             if(this.isMG){
-                this.substantialNodes.put(rule.getRule_id(), rule.taintSCCT());
+                this.substantialNodes.put(rule.getRule_id(), rule.taintSCCT(this));
             }
             rule.linksGeneration_ECC(this, prevSubstantialNodes);
         }
@@ -65,8 +69,16 @@ public abstract class Checker {
         return technique;
     }
 
-    public Object getBfuncInstance() {
-        return bfuncInstance;
+    public Bfunc getBfunc() {
+        return bfunc;
+    }
+
+    public BfuncCache getBfuncCache() {
+        return bfuncCache;
+    }
+
+    public void setBfuncCache(BfuncCache bfuncCache) {
+        this.bfuncCache = bfuncCache;
     }
 
     public Map<String, List<Map.Entry<Boolean, Set<Link>>>> getRuleLinksMap() {
@@ -80,4 +92,9 @@ public abstract class Checker {
     public boolean isMG() {
         return isMG;
     }
+
+    //whether and/or/implies may leave a side unevaluated when the other side decides the result
+    public boolean isShortCircuit() {
+        return false;
+    }
 }
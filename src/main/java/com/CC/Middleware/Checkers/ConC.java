@@ -122,7 +122,7 @@ public class ConC extends Checker {
                 //taint SCCT
                 Set<RuntimeNode> prevSubstantialNodes = this.substantialNodes.getOrDefault(rule.getRule_id(),  new HashSet<>());
                 if(this.isMG){
-                    this.substantialNodes.put(rule.getRule_id(), rule.taintSCCT());
+                    this.substantialNodes.put(rule.getRule_id(), rule.taintSCCT(this));
                 }
                 //Links Generation
                 Set<Link> links = rule.linksGeneration_ConC(this, prevSubstantialNodes);
@@ -147,7 +147,7 @@ public class ConC extends Checker {
         //taint SCCT
         Set<RuntimeNode> prevSubstantialNodes = this.substantialNodes.getOrDefault(rule.getRule_id(),  new HashSet<>());
         if(this.isMG){
-            this.substantialNodes.put(rule.getRule_id(), rule.taintSCCT());
+            this.substantialNodes.put(rule.getRule_id(), rule.taintSCCT(this));
         }
         Set<Link> links = rule.linksGeneration_ConC(this, prevSubstantialNodes);
         if(links != null){
@@ -157,4 +157,10 @@ public class ConC extends Checker {
             storeLink(rule.getRule_id(), rule.getCCTRoot().isTruth(), links);
         }
     }
+
+    //as in ECC
+    @Override
+    public boolean isShortCircuit() {
+        return this.isMG;
+    }
 }
@@ -32,7 +32,7 @@ public class ECC extends Checker{
                 //taint SCCT
                 Set<RuntimeNode> prevSubstantialNodes = this.substantialNodes.getOrDefault(rule.getRule_id(),  new HashSet<>());
                 if(this.isMG){
-                    this.substantialNodes.put(rule.getRule_id(), rule.taintSCCT());
+                    this.substantialNodes.put(rule.getRule_id(), rule.taintSCCT(this));
                 }
                 //links generation
                 Set<Link> links = rule.linksGeneration_ECC(this, prevSubstantialNodes);
@@ -56,7 +56,7 @@ public class ECC extends Checker{
         //taint SCCT
         Set<RuntimeNode> prevSubstantialNodes = this.substantialNodes.getOrDefault(rule.getRule_id(),  new HashSet<>());
         if(this.isMG){
-            this.substantialNodes.put(rule.getRule_id(), rule.taintSCCT());
+            this.substantialNodes.put(rule.getRule_id(), rule.taintSCCT(this));
         }
         //links generation
         Set<Link> links = rule.linksGeneration_ECC(this, prevSubstantialNodes);
@@ -67,4 +67,11 @@ public class ECC extends Checker{
             storeLink(rule.getRule_id(), rule.getCCTRoot().isTruth(), links);
         }
     }
+
+    //the CCT is rebuilt on every check, so a pending truth is never reused by incremental checking,
+    //and links generation with MG does not read the truths below true forall and false exists nodes
+    @Override
+    public boolean isShortCircuit() {
+        return this.isMG;
+    }
 }
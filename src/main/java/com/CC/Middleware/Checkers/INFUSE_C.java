@@ -168,7 +168,7 @@ public class INFUSE_C extends Checker{
             //taint SCCT
             Set<RuntimeNode> prevSubstantialNodes = this.substantialNodes.getOrDefault(rule.getRule_id(),  new HashSet<>());
             if(this.isMG){
-                this.substantialNodes.put(rule.getRule_id(), rule.taintSCCT());
+                this.substantialNodes.put(rule.getRule_id(), rule.taintSCCT(this));
             }
             rule.linksGeneration_INFUSE(this, prevSubstantialNodes);
         }
@@ -187,7 +187,7 @@ public class INFUSE_C extends Checker{
         //taint SCCT
         Set<RuntimeNode> prevSubstantialNodes = this.substantialNodes.getOrDefault(rule.getRule_id(),  new HashSet<>());
         if(this.isMG){
-            this.substantialNodes.put(rule.getRule_id(), rule.taintSCCT());
+            this.substantialNodes.put(rule.getRule_id(), rule.taintSCCT(this));
         }
         Set<Link> links2 = rule.linksGeneration_INFUSE(this, prevSubstantialNodes);
         if(links2 != null){
@@ -215,7 +215,7 @@ public class INFUSE_C extends Checker{
                 //taint SCCT
                 Set<RuntimeNode> prevSubstantialNodes = this.substantialNodes.getOrDefault(rule.getRule_id(),  new HashSet<>());
                 if(this.isMG){
-                    this.substantialNodes.put(rule.getRule_id(), rule.taintSCCT());
+                    this.substantialNodes.put(rule.getRule_id(), rule.taintSCCT(this));
                 }
                 Set<Link> links2 = rule.linksGeneration_INFUSE(this, prevSubstantialNodes);
                 if (links2 != null) {
@@ -33,7 +33,7 @@ public class PCC extends Checker{
                 //taint SCCT
                 Set<RuntimeNode> prevSubstantialNodes = this.substantialNodes.getOrDefault(rule.getRule_id(),  new HashSet<>());
                 if(this.isMG){
-                    this.substantialNodes.put(rule.getRule_id(), rule.taintSCCT());
+                    this.substantialNodes.put(rule.getRule_id(), rule.taintSCCT(this));
                 }
                 //links generation
                 Set<Link> links = rule.linksGeneration_PCC(contextChange, this, prevSubstantialNodes);
@@ -54,9 +54,9 @@ public class PCC extends Checker{
         //rule.intoFile(batch);
         //clean
         for(String pattern_id : rule.getVarPatternMap().values()){
-            contextPool.getAddSet(pattern_id).clear();
-            contextPool.getDelSet(pattern_id).clear();
-            contextPool.getUpdSet(pattern_id).clear();
+            contextPool.getAddSet(rule.getRule_id(), pattern_id).clear();
+            contextPool.getDelSet(rule.getRule_id(), pattern_id).clear();
+            contextPool.getUpdSet(rule.getRule_id(), pattern_id).clear();
         }
         for(ContextChange contextChange : batch){
             contextPool.applyChangeWithSets(rule.getRule_id(), contextChange);
@@ -67,7 +67,7 @@ public class PCC extends Checker{
         //taint SCCT
         Set<RuntimeNode> prevSubstantialNodes = this.substantialNodes.getOrDefault(rule.getRule_id(),  new HashSet<>());
         if(this.isMG){
-            this.substantialNodes.put(rule.getRule_id(), rule.taintSCCT());
+            this.substantialNodes.put(rule.getRule_id(), rule.taintSCCT(this));
         }
         Set<Link> links = rule.linksGeneration_PCCM(this, prevSubstantialNodes);
         if(links != null){
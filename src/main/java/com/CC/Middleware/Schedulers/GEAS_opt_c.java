@@ -90,7 +90,7 @@ public class GEAS_opt_c extends GEAS_ori{
             }
 
             long oldTime = System.nanoTime();
-            if(rule.inCriticalSet(chg.getContext().getCtx_id()) || rule.inCriticalSet(newChange.getContext().getCtx_id())){
+            if(rule.inCriticalSet(chg.getContext()) || rule.inCriticalSet(newChange.getContext())){
                 continue;
             }
 
@@ -81,7 +81,7 @@ public class GEAS_opt_s extends GEAS_ori{
                 continue;
             }
 
-            if(rule.inCriticalSet(chg.getContext().getCtx_id()) || rule.inCriticalSet(newChange.getContext().getCtx_id())){
+            if(rule.inCriticalSet(chg.getContext()) || rule.inCriticalSet(newChange.getContext())){
                 continue;
             }
             //examine part2 - sideEffect
@@ -1,5 +1,6 @@
 package com.CC.Middleware.Schedulers;
 
+import com.CC.Constraints.Formulas.DomainFilter;
 import com.CC.Constraints.Formulas.FExists;
 import com.CC.Constraints.Formulas.FForall;
 import com.CC.Constraints.Formulas.Formula;
@@ -86,6 +87,8 @@ public class INFUSE_S extends Scheduler{
                 if(!reFlag){
                     long oldTime = System.nanoTime();
                     for(RuntimeNode runtimeNode : runtimeNodeSet){
+                        if(!inDomain(runtimeNode, newChange.getContext()))
+                            continue;
                         runtimeNode.vtPropagationAdd(newChange.getContext());
                         //runtimeNode.virtualTruthUpdating(ContextChange.Change_Type.ADD, RuntimeNode.Virtual_Truth_Type.UNKNOWN, null);
                     }
@@ -135,6 +138,8 @@ public class INFUSE_S extends Scheduler{
                 }
                 long oldTime = System.nanoTime();
                 for(RuntimeNode runtimeNode : runtimeNodeSet){
+                    if(!inDomain(runtimeNode, newChange.getContext()))
+                        continue;
                     runtimeNode.vtPropagationAdd(newChange.getContext());
                 }
             }
@@ -162,6 +167,14 @@ public class INFUSE_S extends Scheduler{
         }
     }
 
+    //a node whose quantifier has a domain filter only gets the contexts matching it as children
+    private boolean inDomain(RuntimeNode runtimeNode, Context context){
+        Formula formula = runtimeNode.getFormula();
+        DomainFilter domainFilter = formula.getFormula_type() == Formula.Formula_Type.FORALL ?
+                ((FForall) formula).getDomainFilter() : ((FExists) formula).getDomainFilter();
+        return domainFilter == null || domainFilter.matches(context, runtimeNode.getVarEnv());
+    }
+
     private void riskRefresh(Rule rule){
         rule.setRiskAlready(false);
         //根据batch中第一个修改virtualTruth
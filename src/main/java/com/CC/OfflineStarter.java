@@ -1,12 +1,22 @@
 package com.CC;
 
 import com.CC.Constraints.Rules.Rule;
+import com.CC.Constraints.Formulas.Bfunc;
+import com.CC.Constraints.Formulas.BfuncCache;
 import com.CC.Constraints.Rules.RuleHandler;
 import com.CC.Constraints.Runtime.Link;
 import com.CC.Contexts.Context;
+import com.CC.Contexts.ContextArena;
 import com.CC.Contexts.ContextChange;
 import com.CC.Contexts.ContextHandler;
+import com.CC.Contexts.ContextIds;
 import com.CC.Contexts.ContextPool;
+import com.CC.Contexts.IngestionPipeline;
+import com.CC.Contexts.MappedLineReader;
+import com.CC.Contexts.NumberWindowStore;
+import com.CC.Contexts.ParsedLine;
+import com.CC.Contexts.changelog.ChangeLogReader;
+import com.CC.Contexts.timestamp.AutoTimestampCodec;
 import com.CC.Middleware.Checkers.*;
 import com.CC.Middleware.Schedulers.*;
 import com.CC.Patterns.PatternHandler;
@@ -37,6 +47,12 @@ public class OfflineStarter implements Loggable {
 
     private String dataFile;
     private String incOutFile;
+    //"buffered" or "mmap"
+    private String readerType;
+    //number of parser threads in pipelined ingestion, 0 for reading and parsing on the checking thread
+    private int pipelineNum;
+    //number of threads evaluating function matchers of a context, 0 for evaluating them on the parsing thread
+    private int matcherNum;
 
     private RuleHandler ruleHandler;
     private PatternHandler patternHandler;
@@ -46,17 +62,20 @@ public class OfflineStarter implements Loggable {
 
     public OfflineStarter() {}
 
-    public void start(String approach, String ruleFile, String bfuncFile, String patternFile, String mfuncFile, String dataFile, String dataType, boolean isMG, String incOutFile){
+    public void start(String approach, String ruleFile, String bfuncFile, String patternFile, String mfuncFile, String dataFile, String dataType, String parserType, String readerType, int pipelineNum, int matcherNum, boolean isOffHeap, int bfuncCacheSize, boolean isMG, String incOutFile){
         this.ruleFile = ruleFile;
         this.bfuncFile = bfuncFile;
         this.patternFile = patternFile;
         this.mfuncFile = mfuncFile;
         this.dataFile = dataFile;
         this.incOutFile = incOutFile;
+        this.readerType = readerType;
+        this.pipelineNum = pipelineNum;
+        this.matcherNum = matcherNum;
 
         this.ruleHandler = new RuleHandler();
-        this.patternHandler = new PatternHandler();
-        this.contextHandler = new ContextHandler(patternHandler, dataType);
+        this.patternHandler = new PatternHandler(matcherNum);
+        this.contextHandler = new ContextHandler(patternHandler, dataType, parserType, new AutoTimestampCodec(), isOffHeap ? new ContextArena() : null);
         this.contextPool = new ContextPool();
 
         try {
@@ -65,12 +84,18 @@ public class OfflineStarter implements Loggable {
             throw new RuntimeException(e);
         }
 
-        Object bfuncInstance = null;
-        try {
-            bfuncInstance = loadBfuncFile();
-            logger.info("Load bfunctions successfully.");
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        Bfunc bfuncInstance = null;
+        if(bfuncFile != null){
+            try {
+                bfuncInstance = loadBfuncFile();
+                logger.info("Load bfunctions successfully.");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+        else if(ruleHandler.isBfuncUsed()){
+            logger.error("\033[91m" + "Rules use bfunctions, please specify the bfunction file with option \"-bfuncs\"" + "\033[0m");
+            System.exit(1);
         }
 
         String technique = null;
@@ -129,6 +154,10 @@ public class OfflineStarter implements Loggable {
                 break;
         }
 
+        if(bfuncCacheSize > 0){
+            this.checker.setBfuncCache(new BfuncCache(bfuncCacheSize));
+        }
+
         //check init
         this.checker.checkInit();
         logger.info("Init checking successfully.");
@@ -138,6 +167,7 @@ public class OfflineStarter implements Loggable {
             logger.info("Start running......");
             run();
             incsOutput();
+            this.contextHandler.getContextIds().reset();
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -156,13 +186,10 @@ public class OfflineStarter implements Loggable {
             //DIS
             rule.deriveRCRESets();
         }
-
-        for(String pattern_id : patternHandler.getPatternMap().keySet()){
-            contextPool.threeSetsInit(pattern_id);
-        }
     }
 
-    private Object loadBfuncFile() {
+    //the bfunc entry is bound once here, FBfunc calls it without reflection
+    private Bfunc loadBfuncFile() {
         Path bfuncPath = Paths.get(bfuncFile).toAbsolutePath();
         Object bfuncInstance = null;
         try(URLClassLoader classLoader = new URLClassLoader(new URL[]{ bfuncPath.getParent().toFile().toURI().toURL()})){
@@ -173,36 +200,101 @@ public class OfflineStarter implements Loggable {
                  IllegalAccessException | IOException e) {
             throw new RuntimeException(e);
         }
-        return bfuncInstance;
+        return Bfunc.bind(bfuncInstance);
     }
 
     private void run() throws Exception{
-        String line;
-        try(InputStream inputStream = Files.newInputStream(Paths.get(dataFile))){
-            InputStreamReader inputStreamReader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
-            BufferedReader bufferedReader = new BufferedReader(inputStreamReader);
-            while((line = bufferedReader.readLine()) != null){
-                //logger.info(line.trim());
-                List<ContextChange> changeList = this.contextHandler.generateChanges(line);
-                while(!changeList.isEmpty()){
-                    ContextChange chg = changeList.get(0);
-                    changeList.remove(0);
-                    this.scheduler.doSchedule(chg);
+        if(contextHandler.getDataType().equals("changeLog")){
+            try(ChangeLogReader changeLogReader = new ChangeLogReader(Paths.get(dataFile), contextHandler.getContextSchema(), contextHandler.getContextIds())){
+                readLines(changeLogReader::readChange, contextHandler::parseLine);
+            }
+        }
+        else if(readerType.equals("mmap")){
+            try(MappedLineReader mappedLineReader = new MappedLineReader(Paths.get(dataFile))){
+                readLines(mappedLineReader::readLine, contextHandler::parseLine);
+            }
+        }
+        else{
+            try(InputStream inputStream = Files.newInputStream(Paths.get(dataFile))){
+                InputStreamReader inputStreamReader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
+                BufferedReader bufferedReader = new BufferedReader(inputStreamReader);
+                readLines(bufferedReader::readLine, contextHandler::parseLine);
+                bufferedReader.close();
+                inputStreamReader.close();
+            }
+        }
+
+        List<ContextChange> changeList = this.contextHandler.generateChanges(null);
+        schedule(changeList);
+        this.scheduler.checkEnds();
+        this.contextPool.getLifecycle().releaseDropped();
+        logger.info(String.format("Released contexts: %d", this.contextPool.getLifecycle().getReleasedNum()));
+        BfuncCache bfuncCache = this.checker.getBfuncCache();
+        if(bfuncCache != null){
+            logger.info(String.format("Bfunc cache: %d hits, %d misses, %d results cached", bfuncCache.getHitNum(),
+                    bfuncCache.getMissNum(), bfuncCache.size()));
+        }
+        ContextArena contextArena = this.contextHandler.getContextArena();
+        if(contextArena != null){
+            logger.info(String.format("Off-heap contexts: %d records, %d bytes in %d chunks", contextArena.getRecordNum(),
+                    contextArena.getLiveBytes(), contextArena.getChunkNum()));
+        }
+
+        NumberWindowStore numberWindowStore = this.contextHandler.getNumberWindowStore();
+        if(numberWindowStore != null && numberWindowStore.getWindowNum() > 0){
+            logger.info(String.format("Number windows occupancy: %d/%d (%.2f%%)", numberWindowStore.getTotalSize(),
+                    numberWindowStore.getTotalCapacity(), numberWindowStore.getOccupancy() * 100));
+            for(int window = 0; window < numberWindowStore.getWindowNum(); ++window){
+                logger.debug(String.format("Number window of %s: %d/%d", numberWindowStore.getPatternId(window),
+                        numberWindowStore.getSize(window), numberWindowStore.getCapacity(window)));
+            }
+        }
+    }
+
+    private <T> void readLines(IngestionPipeline.LineReader<T> lineReader, IngestionPipeline.LineParser<T> lineParser) throws Exception{
+        if(pipelineNum > 0){
+            try(IngestionPipeline<T> ingestionPipeline = new IngestionPipeline<>(contextHandler, lineReader, lineParser, pipelineNum)){
+                ingestionPipeline.start();
+                ParsedLine parsedLine;
+                while((parsedLine = ingestionPipeline.take()) != null){
+                    schedule(this.contextHandler.generateFromParsedLine(parsedLine));
                 }
             }
-            bufferedReader.close();
-            inputStreamReader.close();
-
-            List<ContextChange> changeList = this.contextHandler.generateChanges(null);
-            while(!changeList.isEmpty()){
-                ContextChange chg = changeList.get(0);
-                changeList.remove(0);
-                this.scheduler.doSchedule(chg);
+        }
+        else{
+            T line;
+            while((line = lineReader.readLine()) != null){
+                //logger.info(line.trim());
+                ParsedLine parsedLine = lineParser.parseLine(line, this.contextHandler.allocateCtxNum());
+                schedule(this.contextHandler.generateFromParsedLine(parsedLine));
             }
-            this.scheduler.checkEnds();
         }
     }
 
+    private void schedule(List<ContextChange> changeList) throws Exception{
+        while(!changeList.isEmpty()){
+            ContextChange chg = changeList.get(0);
+            changeList.remove(0);
+            this.contextPool.getLifecycle().retain(chg);
+            this.scheduler.doSchedule(chg);
+            invalidateBfuncResults(chg);
+            this.contextPool.getLifecycle().complete(chg);
+        }
+    }
+
+    private void invalidateBfuncResults(ContextChange chg){
+        BfuncCache bfuncCache = this.checker.getBfuncCache();
+        if(bfuncCache != null && chg.getChange_type() == ContextChange.Change_Type.DELETION){
+            bfuncCache.invalidate(chg.getContext());
+        }
+    }
+
+    //"ctx_N" is output as N+1, other ids (e.g., of change data) as they are
+    private String outputId(Context context){
+        long ctxNum = context.getCtx_num();
+        return ContextIds.isCanonical(ctxNum) ? String.valueOf(ctxNum + 1) : context.getCtx_id();
+    }
+
     private void incsOutput() throws Exception {
         OutputStream outputStream = Files.newOutputStream(Paths.get(incOutFile));
         OutputStreamWriter outputStreamWriter = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
@@ -228,7 +320,7 @@ public class OfflineStarter implements Loggable {
                 tmpBuilder.append(linkType.name()).append(",{");
                 //对当前每个link的变量赋值遍历
                 for(Map.Entry<String, Context> va : link.getVaSet()){
-                    tmpBuilder.append("(").append(va.getKey()).append(",").append(Integer.parseInt(va.getValue().getCtx_id().substring(4)) + 1).append("),");
+                    tmpBuilder.append("(").append(va.getKey()).append(",").append(outputId(va.getValue())).append("),");
                 }
                 tmpBuilder.deleteCharAt(tmpBuilder.length() - 1);
                 tmpBuilder.append("})");
@@ -241,7 +333,7 @@ public class OfflineStarter implements Loggable {
                 tmpBuilder.append(linkType.name()).append(",{");
                 //对当前每个link的变量赋值遍历
                 for(Map.Entry<String, Context> va : link.getVaSet()){
-                    tmpBuilder.append("(").append(va.getKey()).append(",").append(Integer.parseInt(va.getValue().getCtx_id().substring(4)) + 1).append("),");
+                    tmpBuilder.append("(").append(va.getKey()).append(",").append(outputId(va.getValue())).append("),");
                 }
                 tmpBuilder.deleteCharAt(tmpBuilder.length() - 1);
                 tmpBuilder.append("})");
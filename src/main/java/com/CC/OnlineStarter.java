@@ -1,12 +1,17 @@
 package com.CC;
 
 import com.CC.Constraints.Rules.Rule;
+import com.CC.Constraints.Formulas.Bfunc;
+import com.CC.Constraints.Formulas.BfuncCache;
 import com.CC.Constraints.Rules.RuleHandler;
 import com.CC.Constraints.Runtime.Link;
 import com.CC.Contexts.Context;
 import com.CC.Contexts.ContextChange;
 import com.CC.Contexts.ContextHandler;
+import com.CC.Contexts.ContextIds;
 import com.CC.Contexts.ContextPool;
+import com.CC.Contexts.timestamp.AutoTimestampCodec;
+import com.CC.Contexts.timestamp.TimestampCodec;
 import com.CC.Middleware.Checkers.*;
 import com.CC.Middleware.Schedulers.*;
 import com.CC.Patterns.PatternHandler;
@@ -23,7 +28,6 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -53,7 +57,7 @@ public class OnlineStarter implements Loggable {
         private final Queue<ContextChange> changeQueue = new LinkedList<>();
         private boolean cleaned = false;
 
-        public CCEServer(String approach, String ruleFile, String bfuncFile, String patternFile, String mfuncFile, String dataType, boolean isMG, String incOutFile) {
+        public CCEServer(String approach, String ruleFile, String bfuncFile, String patternFile, String mfuncFile, String dataType, String parserType, int bfuncCacheSize, boolean isMG, String incOutFile) {
             this.ruleFile = ruleFile;
             this.bfuncFile = bfuncFile;
             this.patternFile = patternFile;
@@ -62,7 +66,7 @@ public class OnlineStarter implements Loggable {
 
             this.ruleHandler = new RuleHandler();
             this.patternHandler = new PatternHandler();
-            this.contextHandler = new ContextHandler(patternHandler, dataType);
+            this.contextHandler = new ContextHandler(patternHandler, dataType, parserType);
             this.contextPool = new ContextPool();
 
             try {
@@ -71,12 +75,18 @@ public class OnlineStarter implements Loggable {
                 throw new RuntimeException(e);
             }
 
-            Object bfuncInstance = null;
-            try {
-                bfuncInstance = loadBfuncFile();
-                logger.info("Load bfunctions successfully.");
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+            Bfunc bfuncInstance = null;
+            if(bfuncFile != null){
+                try {
+                    bfuncInstance = loadBfuncFile();
+                    logger.info("Load bfunctions successfully.");
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            else if(ruleHandler.isBfuncUsed()){
+                logger.error("\033[91m" + "Rules use bfunctions, please specify the bfunction file with option \"-bfuncs\"" + "\033[0m");
+                System.exit(1);
             }
 
             String technique = null;
@@ -135,6 +145,10 @@ public class OnlineStarter implements Loggable {
                     break;
             }
 
+            if(bfuncCacheSize > 0){
+                this.checker.setBfuncCache(new BfuncCache(bfuncCacheSize));
+            }
+
             //check init
             this.checker.checkInit();
             logger.info("Init checking successfully.");
@@ -153,13 +167,10 @@ public class OnlineStarter implements Loggable {
                 //DIS
                 rule.deriveRCRESets();
             }
-
-            for(String pattern_id : patternHandler.getPatternMap().keySet()){
-                contextPool.threeSetsInit(pattern_id);
-            }
         }
 
-        private Object loadBfuncFile() {
+        //the bfunc entry is bound once here, FBfunc calls it without reflection
+        private Bfunc loadBfuncFile() {
             Path bfuncPath = Paths.get(bfuncFile).toAbsolutePath();
             Object bfuncInstance = null;
             try(URLClassLoader classLoader = new URLClassLoader(new URL[]{ bfuncPath.getParent().toFile().toURI().toURL()})){
@@ -170,7 +181,7 @@ public class OnlineStarter implements Loggable {
                      IllegalAccessException | IOException e) {
                 throw new RuntimeException(e);
             }
-            return bfuncInstance;
+            return Bfunc.bind(bfuncInstance);
         }
 
         @Override
@@ -194,7 +205,12 @@ public class OnlineStarter implements Loggable {
                     totalTime_gen += System.currentTimeMillis() - oldTime_gen;
                     long oldTime_chk = System.currentTimeMillis();
                     if(contextChange == null) break;
+                    this.contextPool.getLifecycle().retain(contextChange);
                     this.scheduler.doSchedule(contextChange);
+                    if(this.checker.getBfuncCache() != null && contextChange.getChange_type() == ContextChange.Change_Type.DELETION){
+                        this.checker.getBfuncCache().invalidate(contextChange.getContext());
+                    }
+                    this.contextPool.getLifecycle().complete(contextChange);
                     totalTime_det += System.currentTimeMillis() - oldTime_chk;
                 } catch (Exception e) {
                     logger.error("Fail to schedule \"" + contextChange +"\"");
@@ -206,9 +222,15 @@ public class OnlineStarter implements Loggable {
             totalTime_det += System.currentTimeMillis() - oldTime_chk;
 
             incsOutput();
+            this.contextHandler.getContextIds().reset();
             //Output fixed data
             //TODO()
             logger.info("Checking completes at " + new Date(System.currentTimeMillis()) );
+            BfuncCache bfuncCache = this.checker.getBfuncCache();
+            if(bfuncCache != null){
+                logger.info(String.format("Bfunc cache: %d hits, %d misses, %d results cached", bfuncCache.getHitNum(),
+                        bfuncCache.getMissNum(), bfuncCache.size()));
+            }
             logger.info("TotalTime_gen: " + this.totalTime_gen + " ms\ttotalTime_det: " + this.totalTime_det + " ms\n");
             return null;
         }
@@ -247,7 +269,7 @@ public class OnlineStarter implements Loggable {
                     }
                 }
             } catch (ParseException e) {
-                logger.error("\033[91m" + "SimpleDateFormat failed to parse" + "\033[0m");
+                logger.error("\033[91m" + "Failed to parse timestamp" + "\033[0m");
                 e.printStackTrace();
             } catch (Exception e) {
                 logger.error("\033[91m" + "Fail to generate changes" + "\033[0m");
@@ -256,6 +278,12 @@ public class OnlineStarter implements Loggable {
             return null;
         }
 
+        //"ctx_N" is output as N+1, other ids (e.g., of change data) as they are
+        private String outputId(Context context){
+            long ctxNum = context.getCtx_num();
+            return ContextIds.isCanonical(ctxNum) ? String.valueOf(ctxNum + 1) : context.getCtx_id();
+        }
+
         private void incsOutput() throws Exception {
             OutputStream outputStream = Files.newOutputStream(Paths.get(incOutFile));
             OutputStreamWriter outputStreamWriter = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
@@ -281,7 +309,7 @@ public class OnlineStarter implements Loggable {
                     tmpBuilder.append(linkType.name()).append(",{");
                     //对当前每个link的变量赋值遍历
                     for(Map.Entry<String, Context> va : link.getVaSet()){
-                        tmpBuilder.append("(").append(va.getKey()).append(",").append(Integer.parseInt(va.getValue().getCtx_id().substring(4)) + 1).append("),");
+                        tmpBuilder.append("(").append(va.getKey()).append(",").append(outputId(va.getValue())).append("),");
                     }
                     tmpBuilder.deleteCharAt(tmpBuilder.length() - 1);
                     tmpBuilder.append("})");
@@ -294,7 +322,7 @@ public class OnlineStarter implements Loggable {
                     tmpBuilder.append(linkType.name()).append(",{");
                     //对当前每个link的变量赋值遍历
                     for(Map.Entry<String, Context> va : link.getVaSet()){
-                        tmpBuilder.append("(").append(va.getKey()).append(",").append(Integer.parseInt(va.getValue().getCtx_id().substring(4)) + 1).append("),");
+                        tmpBuilder.append("(").append(va.getKey()).append(",").append(outputId(va.getValue())).append("),");
                     }
                     tmpBuilder.deleteCharAt(tmpBuilder.length() - 1);
                     tmpBuilder.append("})");
@@ -332,7 +360,7 @@ public class OnlineStarter implements Loggable {
             long startTime_real = -1;
             String line;
             int cnt = 0;
-            SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss:SSS");
+            TimestampCodec timestampCodec = new AutoTimestampCodec();
 
             logger.info("[CCEClient]: begin at: " + new Date(System.currentTimeMillis()));
             do {
@@ -342,7 +370,7 @@ public class OnlineStarter implements Loggable {
                 }
 
                 JSONObject recordJsonObj = JSON.parseObject(line.trim());
-                long curTime_fake = simpleDateFormat.parse(recordJsonObj.getString("timestamp")).getTime();
+                long curTime_fake = timestampCodec.parse(recordJsonObj.getString("timestamp"));
                 long curTime_real = System.currentTimeMillis();
 
                 byte[] data = String.format("%-1024s", line).getBytes(StandardCharsets.UTF_8);
@@ -377,9 +405,9 @@ public class OnlineStarter implements Loggable {
     public OnlineStarter() {
     }
 
-    public void start(String approach, String ruleFile, String bfuncFile, String patternFile, String mfuncFile, String dataType, boolean isMG, String incOutFile){
+    public void start(String approach, String ruleFile, String bfuncFile, String patternFile, String mfuncFile, String dataType, String parserType, int bfuncCacheSize, boolean isMG, String incOutFile){
        //FutureTask<Void> clientTask = new FutureTask<>(new CCEClient("./taxi/data_5_0-1_new.txt"));
-        FutureTask<Void> serverTask = new FutureTask<>(new CCEServer(approach, ruleFile, bfuncFile, patternFile, mfuncFile, dataType, isMG, incOutFile));
+        FutureTask<Void> serverTask = new FutureTask<>(new CCEServer(approach, ruleFile, bfuncFile, patternFile, mfuncFile, dataType, parserType, bfuncCacheSize, isMG, incOutFile));
         //new Thread(clientTask, "Client...").start();
         new Thread(serverTask, "Server...").start();
         try {
@@ -10,6 +10,8 @@ public class Pattern {
     private String patternId;
     private FreshnessType freshnessType;
     private String freshnessValue;
+    //milliseconds for time, number of contexts for number
+    private long parsedFreshnessValue;
     private final Set<String> dataSourceSet;
     private AbstractMatcher matcher;
 
@@ -29,6 +31,7 @@ public class Pattern {
 
     public void setFreshnessValue(String freshnessValue) {
         this.freshnessValue = freshnessValue;
+        this.parsedFreshnessValue = Long.parseLong(freshnessValue.trim());
     }
 
     public void setMatcher(AbstractMatcher matcher) {
@@ -47,6 +50,10 @@ public class Pattern {
         return freshnessValue;
     }
 
+    public long getParsedFreshnessValue() {
+        return parsedFreshnessValue;
+    }
+
     public Set<String> getDataSourceSet() {
         return dataSourceSet;
     }
@@ -0,0 +1,142 @@
+package com.CC.Patterns;
+
+import com.CC.Contexts.Context;
+import com.CC.Patterns.matcher.PrimaryKeyMatcher;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/*
+    Index of patterns for matching a context against all patterns at once.
+    Primary-key patterns are found by one hash lookup per indexed field (field -> value -> patterns),
+    and only the other patterns (function matchers, no matcher) are evaluated one by one.
+    Matched patterns are returned in the order of the pattern file. The index is immutable after building.
+    With a matcher pool, the patterns evaluated one by one are split into contiguous chunks evaluated in parallel,
+    and the results are put back by position, so the matched patterns are the same as the sequential ones.
+ */
+public class PatternDispatchIndex {
+    private final Pattern[] patterns;
+    //positions of patterns evaluated one by one
+    private final int[] individualPositions;
+    //field -> (value -> ascending positions of primary-key patterns)
+    private final String[] indexedFields;
+    private final List<Map<String, int[]>> valueIndexes;
+
+    public PatternDispatchIndex(Collection<Pattern> patternCollection) {
+        this.patterns = patternCollection.toArray(new Pattern[0]);
+        List<Integer> individualList = new ArrayList<>();
+        Map<String, Map<String, List<Integer>>> buildIndex = new LinkedHashMap<>();
+        for(int position = 0; position < patterns.length; ++position){
+            if(patterns[position].getMatcher() instanceof PrimaryKeyMatcher){
+                PrimaryKeyMatcher primaryKeyMatcher = (PrimaryKeyMatcher) patterns[position].getMatcher();
+                Map<String, List<Integer>> valueIndex = buildIndex.computeIfAbsent(primaryKeyMatcher.getField(), k -> new HashMap<>());
+                for(String optionalValue : primaryKeyMatcher.getOptionalValueList()){
+                    List<Integer> positions = valueIndex.computeIfAbsent(optionalValue, k -> new ArrayList<>());
+                    if(positions.isEmpty() || positions.get(positions.size() - 1) != position){
+                        positions.add(position);
+                    }
+                }
+            }
+            else{
+                individualList.add(position);
+            }
+        }
+        this.individualPositions = individualList.stream().mapToInt(Integer::intValue).toArray();
+        this.indexedFields = buildIndex.keySet().toArray(new String[0]);
+        this.valueIndexes = new ArrayList<>();
+        for(Map<String, List<Integer>> valueIndex : buildIndex.values()){
+            Map<String, int[]> frozenIndex = new HashMap<>();
+            for(Map.Entry<String, List<Integer>> entry : valueIndex.entrySet()){
+                frozenIndex.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+            }
+            valueIndexes.add(frozenIndex);
+        }
+    }
+
+    public List<Pattern> match(Context context){
+        return match(context, null, 0);
+    }
+
+    //matcherNum: number of threads of the matcher pool, the calling thread evaluates one more chunk
+    public List<Pattern> match(Context context, ExecutorService matcherPool, int matcherNum){
+        long[] marks = new long[(patterns.length + 63) >>> 6];
+        Map<String, String> ctxFields = context.getCtx_fields();
+        for(int i = 0; i < indexedFields.length; ++i){
+            String value = ctxFields.get(indexedFields[i]);
+            if(value == null){
+                continue;
+            }
+            int[] positions = valueIndexes.get(i).get(value);
+            if(positions != null){
+                for(int position : positions){
+                    marks[position >>> 6] |= 1L << position;
+                }
+            }
+        }
+        boolean[] results = new boolean[individualPositions.length];
+        int chunkNum = matcherPool == null ? 1 : Math.min(matcherNum + 1, individualPositions.length);
+        if(chunkNum <= 1){
+            evaluate(context, 0, individualPositions.length, results);
+        }
+        else{
+            evaluateInParallel(context, matcherPool, chunkNum, results);
+        }
+        for(int i = 0; i < individualPositions.length; ++i){
+            if(results[i]){
+                int position = individualPositions[i];
+                marks[position >>> 6] |= 1L << position;
+            }
+        }
+        List<Pattern> matchedPatterns = new ArrayList<>();
+        for(int word = 0; word < marks.length; ++word){
+            long bits = marks[word];
+            while(bits != 0){
+                matchedPatterns.add(patterns[(word << 6) + Long.numberOfTrailingZeros(bits)]);
+                bits &= bits - 1;
+            }
+        }
+        return matchedPatterns;
+    }
+
+    private void evaluate(Context context, int from, int to, boolean[] results){
+        for(int i = from; i < to; ++i){
+            Pattern pattern = patterns[individualPositions[i]];
+            results[i] = pattern.getMatcher() == null || pattern.getMatcher().match(context);
+        }
+    }
+
+    private void evaluateInParallel(Context context, ExecutorService matcherPool, int chunkNum, boolean[] results){
+        int total = individualPositions.length;
+        List<Future<?>> futures = new ArrayList<>(chunkNum - 1);
+        for(int chunk = 1; chunk < chunkNum; ++chunk){
+            int from = (int) ((long) total * chunk / chunkNum);
+            int to = (int) ((long) total * (chunk + 1) / chunkNum);
+            futures.add(matcherPool.submit(() -> evaluate(context, from, to, results)));
+        }
+        evaluate(context, 0, total / chunkNum, results);
+        //Future.get also makes the results written by the pool visible here
+        try {
+            for(Future<?> future : futures){
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException){
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    public int getIndexedFieldNum(){
+        return indexedFields.length;
+    }
+
+    public int getIndividualPatternNum(){
+        return individualPositions.length;
+    }
+}
@@ -1,6 +1,8 @@
 package com.CC.Patterns;
 
+import com.CC.Contexts.Context;
 import com.CC.Patterns.matcher.FunctionMatcher;
+import com.CC.Patterns.matcher.Mfunc;
 import com.CC.Patterns.matcher.PrimaryKeyMatcher;
 import com.CC.Patterns.types.FreshnessType;
 import com.CC.Util.Loggable;
@@ -21,20 +23,68 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PatternHandler implements Loggable {
     private final LinkedHashMap<String, Pattern> patternMap;
+    private volatile PatternDispatchIndex dispatchIndex;
+    //pool evaluating function matchers of a context in parallel, null for evaluating them on the calling thread
+    private final int matcherNum;
+    private final ExecutorService matcherPool;
 
     public PatternHandler(){
+        this(0);
+    }
+
+    public PatternHandler(int matcherNum){
         patternMap = new LinkedHashMap<>();
+        dispatchIndex = null;
+        this.matcherNum = matcherNum;
+        if(matcherNum > 0){
+            AtomicInteger threadCounter = new AtomicInteger();
+            this.matcherPool = Executors.newFixedThreadPool(matcherNum, runnable -> {
+                Thread thread = new Thread(runnable, "pattern-matcher-" + threadCounter.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        else{
+            this.matcherPool = null;
+        }
     }
 
     public LinkedHashMap<String, Pattern> getPatternMap() {
         return patternMap;
     }
 
+    //built by buildPatterns, or on first use for patterns put into the map directly
+    public PatternDispatchIndex getDispatchIndex() {
+        PatternDispatchIndex index = dispatchIndex;
+        if(index == null){
+            synchronized (this){
+                index = dispatchIndex;
+                if(index == null){
+                    index = new PatternDispatchIndex(patternMap.values());
+                    dispatchIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    //matched patterns of the context, in the order of the pattern map
+    public List<Pattern> match(Context context){
+        return getDispatchIndex().match(context, matcherPool, matcherNum);
+    }
+
+    public int getMatcherNum() {
+        return matcherNum;
+    }
+
     public void buildPatterns(String patternFile, String mfuncFile) {
-        Object mfuncInstance = loadMfuncFile(mfuncFile);
+        Mfunc mfuncInstance = loadMfuncFile(mfuncFile);
         if(mfuncInstance != null){
             logger.info("Load mfunc file successfully");
         }
@@ -98,9 +148,13 @@ public class PatternHandler implements Loggable {
         catch (DocumentException | IOException e) {
             throw new RuntimeException(e);
         }
+        dispatchIndex = new PatternDispatchIndex(patternMap.values());
+        logger.debug("Pattern dispatch index: " + dispatchIndex.getIndexedFieldNum() + " indexed fields, "
+                + dispatchIndex.getIndividualPatternNum() + " patterns matched one by one");
     }
 
-    private Object loadMfuncFile(String mfuncFile) {
+    //the mfunc entry is bound once here, matchers call it without reflection
+    private Mfunc loadMfuncFile(String mfuncFile) {
         if(mfuncFile == null || mfuncFile.equals(""))
             return null;
         Object mfuncInstance;
@@ -113,6 +167,6 @@ public class PatternHandler implements Loggable {
                  InstantiationException | IllegalAccessException e) {
             throw new RuntimeException(e);
         }
-        return mfuncInstance;
+        return Mfunc.bind(mfuncInstance);
     }
 }
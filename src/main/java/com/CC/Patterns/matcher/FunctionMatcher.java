@@ -2,34 +2,36 @@ package com.CC.Patterns.matcher;
 
 
 import com.CC.Contexts.Context;
+import com.CC.Contexts.ContextView;
 import com.CC.Patterns.types.MatcherType;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 
 public class FunctionMatcher extends AbstractMatcher{
     private final String funcName;
     private final List<String> extraArgList;
+    private final Mfunc mfunc;
 
-    public FunctionMatcher(String funcName, Object mfuncInstance){
+    public FunctionMatcher(String funcName, Mfunc mfunc){
         this.matcherType = MatcherType.function;
-        this.mfuncInstance = mfuncInstance;
+        this.mfuncInstance = mfunc;
+        this.mfunc = mfunc;
         this.funcName = funcName;
         this.extraArgList = new ArrayList<>();
     }
 
+    public FunctionMatcher(String funcName, Object mfuncInstance){
+        this(funcName, Mfunc.bind(mfuncInstance));
+    }
+
     @Override
     public boolean match(Context context) {
-        boolean result = false;
         try {
-            Method m = this.mfuncInstance.getClass().getMethod("mfunc", String.class, Class.forName("java.util.Map"), Class.forName("java.util.List"));
-            result = (boolean) m.invoke(this.mfuncInstance, funcName, context.getCtx_fields(), extraArgList);
-        } catch (NoSuchMethodException | ClassNotFoundException | InvocationTargetException | IllegalAccessException e) {
+            return mfunc.mfunc(funcName, (ContextView) context, extraArgList);
+        } catch (Exception e) {
             throw new RuntimeException(e);
         }
-        return result;
     }
 
     public void addExtraArg(String extraArg){
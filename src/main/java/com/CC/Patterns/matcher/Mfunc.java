@@ -0,0 +1,68 @@
+package com.CC.Patterns.matcher;
+
+import com.CC.Contexts.ContextView;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+
+/*
+    Entry of mfunctions. An Mfunction class may implement this interface directly,
+    otherwise its public `mfunc` method is bound once by bind() and called through a MethodHandle.
+    The context is passed as a ContextView, whose numeric fields are parsed only once.
+    A Mfunction class declaring mfunc(String, Map<String, String>, List<String>) gets the fields of the context
+    as a map view, read from the context on access.
+ */
+@FunctionalInterface
+public interface Mfunc {
+    boolean mfunc(String funcName, ContextView context, List<String> extraArgumentList) throws Exception;
+
+    static Mfunc bind(Object mfuncInstance) {
+        if(mfuncInstance == null || mfuncInstance instanceof Mfunc){
+            return (Mfunc) mfuncInstance;
+        }
+        try {
+            //the typed entry is preferred when the class declares it
+            Method m = findTypedEntry(mfuncInstance.getClass());
+            if(m != null){
+                MethodHandle handle = MethodHandles.lookup().unreflect(m).bindTo(mfuncInstance)
+                        .asType(MethodType.methodType(boolean.class, String.class, ContextView.class, List.class));
+                return (funcName, context, extraArgumentList) -> {
+                    try {
+                        return (boolean) handle.invokeExact(funcName, context, extraArgumentList);
+                    } catch (Exception | Error e) {
+                        throw e;
+                    } catch (Throwable t) {
+                        throw new RuntimeException(t);
+                    }
+                };
+            }
+            m = mfuncInstance.getClass().getMethod("mfunc", String.class, Map.class, List.class);
+            MethodHandle handle = MethodHandles.lookup().unreflect(m).bindTo(mfuncInstance)
+                    .asType(MethodType.methodType(boolean.class, String.class, Map.class, List.class));
+            //the legacy entry gets the map view of the fields
+            return (funcName, context, extraArgumentList) -> {
+                try {
+                    return (boolean) handle.invokeExact(funcName, context.getCtx_fields(), extraArgumentList);
+                } catch (Exception | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new RuntimeException(t);
+                }
+            };
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Method findTypedEntry(Class<?> clazz){
+        try {
+            return clazz.getMethod("mfunc", String.class, ContextView.class, List.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
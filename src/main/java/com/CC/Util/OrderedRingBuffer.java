@@ -0,0 +1,77 @@
+package com.CC.Util;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+    Bounded ring buffer that hands items over in sequence order.
+    Producers put items tagged with sequence numbers (0, 1, 2, ...) in any order,
+    and a single consumer takes them strictly in sequence order.
+    A producer blocks while its sequence number is not within capacity of the consumer.
+ */
+public class OrderedRingBuffer<T> {
+    private final Object[] slots;
+    private final ReentrantLock lock;
+    private final Condition headFilled;
+    private final Condition slotFreed;
+    //sequence number of the next item to be taken
+    private long nextSeq;
+
+    public OrderedRingBuffer(int capacity) {
+        if(capacity <= 0){
+            throw new IllegalArgumentException("Illegal capacity " + capacity);
+        }
+        this.slots = new Object[capacity];
+        this.lock = new ReentrantLock();
+        this.headFilled = lock.newCondition();
+        this.slotFreed = lock.newCondition();
+        this.nextSeq = 0L;
+    }
+
+    public void put(long seq, T item) throws InterruptedException {
+        if(item == null){
+            throw new NullPointerException();
+        }
+        lock.lockInterruptibly();
+        try{
+            while(seq >= nextSeq + slots.length){
+                slotFreed.await();
+            }
+            if(seq < nextSeq || slots[index(seq)] != null){
+                throw new IllegalStateException("Sequence number " + seq + " is put twice");
+            }
+            slots[index(seq)] = item;
+            if(seq == nextSeq){
+                headFilled.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public T take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try{
+            int index = index(nextSeq);
+            while(slots[index] == null){
+                headFilled.await();
+            }
+            T item = (T) slots[index];
+            slots[index] = null;
+            nextSeq++;
+            slotFreed.signalAll();
+            return item;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    private int index(long seq){
+        return (int) (seq % slots.length);
+    }
+}
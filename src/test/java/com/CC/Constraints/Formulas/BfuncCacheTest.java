@@ -0,0 +1,52 @@
+package com.CC.Constraints.Formulas;
+
+import com.CC.Contexts.Context;
+import com.CC.Contexts.ContextIds;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BfuncCacheTest {
+
+    private static final ContextIds contextIds = new ContextIds();
+
+    private static Context context(String ctx_id){
+        Context context = new Context();
+        context.setCtx_id(ctx_id, contextIds);
+        return context;
+    }
+
+    @Test
+    void cacheTest(){
+        BfuncCache bfuncCache = new BfuncCache(2);
+        String[] vars = {"v1", "v2"};
+        Context c1 = context("ctx_1"), c2 = context("ctx_2"), c3 = context("ctx_3");
+
+        assertNull(bfuncCache.get("close", vars, new Context[]{c1, c2}));
+        bfuncCache.put("close", vars, new Context[]{c1, c2}, true);
+        bfuncCache.put("close", vars, new Context[]{c2, c1}, false);
+        assertEquals(Boolean.TRUE, bfuncCache.get("close", vars, new Context[]{c1, c2}));
+        assertEquals(Boolean.FALSE, bfuncCache.get("close", vars.clone(), new Context[]{c2, c1}));
+        //other function or variables
+        assertNull(bfuncCache.get("far", vars, new Context[]{c1, c2}));
+        assertNull(bfuncCache.get("close", new String[]{"v1", "v3"}, new Context[]{c1, c2}));
+
+        //(c1, c2) is the least recently used
+        bfuncCache.get("close", vars, new Context[]{c2, c1});
+        bfuncCache.put("close", vars, new Context[]{c1, c3}, true);
+        assertEquals(2, bfuncCache.size());
+        assertNull(bfuncCache.get("close", vars, new Context[]{c1, c2}));
+
+        //deletion of c1
+        bfuncCache.invalidate(c1);
+        assertEquals(0, bfuncCache.size());
+
+        //a context added again under the same id
+        bfuncCache.put("close", vars, new Context[]{c2, c3}, true);
+        assertNull(bfuncCache.get("close", vars, new Context[]{context("ctx_2"), c3}));
+        assertEquals(Boolean.TRUE, bfuncCache.get("close", vars, new Context[]{c2, c3}));
+
+        assertEquals(4, bfuncCache.getHitNum());
+        assertEquals(5, bfuncCache.getMissNum());
+    }
+}
@@ -0,0 +1,123 @@
+package com.CC.Constraints.Formulas;
+
+import com.CC.Constraints.Rules.RuleHandler;
+import com.CC.Constraints.Runtime.RuntimeNode;
+import com.CC.Contexts.Context;
+import com.CC.Contexts.ContextIds;
+import com.CC.Contexts.ContextPool;
+import com.CC.Contexts.ContextView;
+import com.CC.Middleware.Checkers.ECC;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BfuncTest {
+
+    private static final ContextIds contextIds = new ContextIds();
+
+    //a Bfunction class following the skeleton, without implementing Bfunc
+    public static class LegacyBfunction {
+        public boolean bfunc(String funcName, Map<String, Map<String, String>> vcMap) throws Exception {
+            if("same".equals(funcName)){
+                return vcMap.get("v1").get("taxiId").equals(vcMap.get("v2").get("taxiId"));
+            }
+            if("id_of".equals(funcName)){
+                return vcMap.get("v1").get("ctx_id").equals(vcMap.get("v1").get("taxiId"));
+            }
+            throw new Exception("Illegal bfuncName");
+        }
+    }
+
+    //a Bfunction class declaring the typed entry
+    public static class TypedBfunction {
+        public boolean bfunc(String funcName, Map<String, ContextView> vcMap) {
+            return vcMap.get("v1").getLong("speed") > vcMap.get("v2").getLong("speed");
+        }
+    }
+
+    //a Bfunction class declaring the batch entry, for "faster" only
+    public static class BatchBfunction extends TypedBfunction {
+        public int batchCalls = 0;
+
+        public BitSet bfuncBatch(String funcName, Map<String, ContextView> vcMap, String var, ContextView[] candidates) {
+            if(!"faster".equals(funcName)){
+                return null;
+            }
+            batchCalls++;
+            assertFalse(vcMap.containsKey(var));
+            long[] speeds = new long[candidates.length];
+            for(int i = 0; i < candidates.length; ++i){
+                speeds[i] = candidates[i].getLong("speed");
+            }
+            long speed = vcMap.get("v2").getLong("speed");
+            BitSet results = new BitSet(candidates.length);
+            for(int i = 0; i < speeds.length; ++i){
+                if(speeds[i] > speed){
+                    results.set(i);
+                }
+            }
+            return results;
+        }
+    }
+
+    private static Context context(String ctx_id, String taxiId, String speed){
+        Context context = new Context();
+        context.setCtx_id(ctx_id, contextIds);
+        context.getCtx_fields().put("taxiId", taxiId);
+        context.getCtx_fields().put("speed", speed);
+        return context;
+    }
+
+    @Test
+    void bindTest() throws Exception {
+        Map<String, ContextView> vcMap = Map.of("v1", context("ctx_1", "ctx_1", "50"), "v2", context("ctx_2", "ctx_1", "20"));
+
+        Bfunc legacy = Bfunc.bind(new LegacyBfunction());
+        assertTrue(legacy.bfunc("same", vcMap));
+        assertTrue(legacy.bfunc("id_of", vcMap));
+        Exception e = assertThrows(Exception.class, () -> legacy.bfunc("unknown", vcMap));
+        assertEquals("Illegal bfuncName", e.getMessage());
+
+        assertTrue(Bfunc.bind(new TypedBfunction()).bfunc("faster", vcMap));
+
+        Bfunc bfunc = (funcName, contexts) -> contexts.get("v2").getLong("speed") > 30;
+        assertSame(bfunc, Bfunc.bind(bfunc));
+        assertFalse(bfunc.bfunc("fast", vcMap));
+        assertNull(Bfunc.bind(null));
+    }
+
+    @Test
+    void batchTest(){
+        BatchBfunction bfunction = new BatchBfunction();
+        assertTrue(Bfunc.bind(bfunction) instanceof BatchBfunc);
+        assertFalse(Bfunc.bind(new TypedBfunction()) instanceof BatchBfunc);
+        ECC checker = new ECC(new RuleHandler(), new ContextPool(), bfunction, false);
+
+        Context fixed = context("ctx_0", "ctx_0", "30");
+        for(String func : new String[]{"faster", "slower"}){
+            FBfunc fBfunc = new FBfunc(func);
+            fBfunc.addParam("1", "v1");
+            fBfunc.addParam("2", "v2");
+            List<RuntimeNode> children = new ArrayList<>();
+            for(int i = 0; i < 5; ++i){
+                RuntimeNode child = new RuntimeNode(fBfunc);
+                child.getVarEnv().put("v1", context("ctx_" + (i + 1), "ctx_1", String.valueOf(i * 15)));
+                child.getVarEnv().put("v2", fixed);
+                children.add(child);
+            }
+            fBfunc.truthEvaluationBatch(children, "v1", checker);
+            for(int i = 0; i < 5; ++i){
+                //"slower" is not batched, and evaluated one by one as "faster" by TypedBfunction
+                assertEquals(i * 15 > 30, children.get(i).isTruth());
+                assertEquals(i * 15 > 30 ? RuntimeNode.Virtual_Truth_Type.TRUE : RuntimeNode.Virtual_Truth_Type.FALSE,
+                        children.get(i).getVirtualTruth());
+            }
+        }
+        assertEquals(1, bfunction.batchCalls);
+    }
+}
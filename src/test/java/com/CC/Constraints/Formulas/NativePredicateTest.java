@@ -0,0 +1,92 @@
+package com.CC.Constraints.Formulas;
+
+import com.CC.Constraints.Rules.RuleHandler;
+import com.CC.Constraints.Runtime.RuntimeNode;
+import com.CC.Contexts.Context;
+import com.CC.Contexts.ContextIds;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NativePredicateTest {
+
+    private static final ContextIds contextIds = new ContextIds();
+
+    private static Context context(String ctx_id, String... fields){
+        Context context = new Context();
+        context.setCtx_id(ctx_id, contextIds);
+        for(int i = 0; i < fields.length; i += 2){
+            context.getCtx_fields().put(fields[i], fields[i + 1]);
+        }
+        return context;
+    }
+
+    @Test
+    void predicateTest(){
+        Map<String, Context> varEnv = Map.of(
+                "v1", context("ctx_1", "taxiId", "A", "speed", "50", "status", "free", "longitude", "113.9", "latitude", "22.5"),
+                "v2", context("ctx_2", "taxiId", "A", "speed", "x", "status", "busy", "longitude", "113.9", "latitude", "22.503"));
+
+        assertTrue(FieldEqual.of("v1.taxiId", "v2.taxiId").test(varEnv));
+        assertFalse(FieldEqual.of("v1.taxiId", "v2.status").test(varEnv));
+        assertFalse(FieldEqual.of("v1.plate", "v2.plate").test(varEnv));
+        assertNull(FieldEqual.of("v1", "v2.taxiId"));
+
+        assertTrue(NumericCompare.of("v1.speed", "gt", "30").test(varEnv));
+        assertFalse(NumericCompare.of("v1.speed", "LE", "30").test(varEnv));
+        assertTrue(NumericCompare.of("v1.latitude", "lt", "v2.latitude").test(varEnv));
+        //a non-numeric field is never compared
+        assertFalse(NumericCompare.of("v2.speed", "ne", "30").test(varEnv));
+        assertNull(NumericCompare.of("v1.speed", ">", "30"));
+        assertEquals(List.of("v1", "v2"), NumericCompare.of("v1.latitude", "lt", "v2.latitude").getVars());
+
+        assertTrue(NumericRange.of("v1.speed", "0", "50").test(varEnv));
+        assertFalse(NumericRange.of("v1.speed", "60", null).test(varEnv));
+        assertFalse(NumericRange.of("v2.speed", null, "60").test(varEnv));
+        assertNull(NumericRange.of("v1.speed", null, null));
+        assertNull(NumericRange.of("v1.speed", "10", "0"));
+
+        assertTrue(DistanceWithin.of("v1", "v2", "0.004", null, null).test(varEnv));
+        assertFalse(DistanceWithin.of("v1", "v2", "0.002", "longitude,latitude", "euclidean").test(varEnv));
+        //0.003 degrees of latitude are about 334m
+        assertTrue(DistanceWithin.of("v1", "v2", "340", null, "haversine").test(varEnv));
+        assertFalse(DistanceWithin.of("v1", "v2", "330", null, "haversine").test(varEnv));
+        assertNull(DistanceWithin.of("v1", "v2", "340", null, "manhattan"));
+
+        assertTrue(StringMember.of("v1.status", "free, idle").test(varEnv));
+        assertFalse(StringMember.of("v2.status", "free,idle").test(varEnv));
+        assertNull(StringMember.of("v1.status", " , "));
+    }
+
+    @Test
+    void resolveTest() throws Exception {
+        Path ruleFile = Files.createTempFile("rules", ".xml");
+        RuleHandler ruleHandler = new RuleHandler();
+        try{
+            Files.writeString(ruleFile, "<rules><rule><id>rule_01</id><formula>"
+                    + "<forall var=\"v1\" in=\"pat_1\"><forall var=\"v2\" in=\"pat_2\"><implies>"
+                    + "<equal left=\"v1.taxiId\" right=\"v2.taxiId\"/>"
+                    + "<distance from=\"v2\" to=\"v1\" within=\"0.001\"/>"
+                    + "</implies></forall></forall></formula></rule></rules>");
+            ruleHandler.buildRules(ruleFile.toString());
+        } finally {
+            Files.delete(ruleFile);
+        }
+        assertFalse(ruleHandler.isBfuncUsed());
+
+        FForall fForall = (FForall) ((FForall) ruleHandler.getRuleMap().get("rule_01").getFormula()).getSubformula();
+        FImplies fImplies = (FImplies) fForall.getSubformula();
+        FBfunc equal = (FBfunc) fImplies.getSubformulas()[0];
+        FBfunc distance = (FBfunc) fImplies.getSubformulas()[1];
+        assertTrue(equal.getPredicate() instanceof FieldEqual);
+        assertTrue(distance.getPredicate() instanceof DistanceWithin);
+        assertEquals(Map.of("1", "v2", "2", "v1"), distance.getParams());
+        //runtime nodes share the rule's formula
+        assertSame(distance, new RuntimeNode(distance).getFormula());
+    }
+}
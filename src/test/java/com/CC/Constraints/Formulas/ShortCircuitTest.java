@@ -0,0 +1,67 @@
+package com.CC.Constraints.Formulas;
+
+import com.CC.Constraints.Rules.RuleHandler;
+import com.CC.Constraints.Runtime.RuntimeNode;
+import com.CC.Contexts.ContextPool;
+import com.CC.Middleware.Checkers.Checker;
+import com.CC.Middleware.Checkers.ECC;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShortCircuitTest {
+
+    private static RuntimeNode andNode(FAnd fAnd){
+        RuntimeNode curNode = new RuntimeNode(fAnd);
+        curNode.getChildren().add(new RuntimeNode(fAnd.getSubformulas()[0]));
+        curNode.getChildren().add(new RuntimeNode(fAnd.getSubformulas()[1]));
+        return curNode;
+    }
+
+    @Test
+    void shortCircuitTest(){
+        //"never" is always true and never decides the conjunction, "always" is always false
+        Map<String, Integer> callNums = new HashMap<>();
+        Bfunc bfunc = (funcName, vcMap) -> {
+            callNums.merge(funcName, 1, Integer::sum);
+            return "never".equals(funcName);
+        };
+        FAnd fAnd = new FAnd();
+        fAnd.replaceSubformula(0, new FBfunc("never"));
+        fAnd.replaceSubformula(1, new FBfunc("always"));
+
+        //without MG, both sides are evaluated in order
+        Checker checker = new ECC(new RuleHandler(), new ContextPool(), bfunc, false);
+        assertFalse(checker.isShortCircuit());
+        assertFalse(fAnd.truthEvaluation_ECC(andNode(fAnd), fAnd, checker));
+        assertEquals(Map.of("never", 1, "always", 1), callNums);
+        callNums.clear();
+
+        checker = new ECC(new RuleHandler(), new ContextPool(), bfunc, true);
+        assertTrue(checker.isShortCircuit());
+        RuntimeNode pendingNode = null;
+        for(int i = 0; i < 200; ++i){
+            RuntimeNode curNode = andNode(fAnd);
+            assertFalse(fAnd.truthEvaluation_ECC(curNode, fAnd, checker));
+            assertFalse(curNode.isTruth());
+            assertFalse(curNode.getChildren().get(1).isPending());
+            if(curNode.getChildren().get(0).isPending()){
+                pendingNode = curNode;
+            }
+        }
+        assertEquals(200, (int) callNums.get("always"));
+        assertTrue(callNums.get("never") < 200);
+        assertNotNull(pendingNode);
+
+        //the pending side is evaluated when links generation reads its truth
+        RuntimeNode pendingChild = pendingNode.getChildren().get(0);
+        assertFalse(pendingChild.isTruth());
+        fAnd.linksGeneration_ECC(pendingNode, fAnd, new HashSet<>(), checker);
+        assertFalse(pendingChild.isPending());
+        assertTrue(pendingChild.isTruth());
+    }
+}
@@ -0,0 +1,92 @@
+package com.CC.Contexts;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContextArenaTest {
+
+    @Test
+    void recordTest(){
+        ContextArena arena = new ContextArena(64);
+        String nullValue = new String("null");
+        String[] values = new String[200];
+        values[0] = "113.9";
+        values[3] = nullValue;
+        values[199] = "北京";
+        long handle = arena.allocate(values, nullValue);
+        assertEquals("113.9", arena.get(handle, 0, nullValue));
+        assertNull(arena.get(handle, 1, nullValue));
+        assertSame(nullValue, arena.get(handle, 3, nullValue));
+        assertEquals("北京", arena.get(handle, 199, nullValue));
+        String[] decoded = arena.getAll(handle, 10, nullValue);
+        assertEquals(200, decoded.length);
+        assertEquals("113.9", decoded[0]);
+        assertSame(nullValue, decoded[3]);
+        assertEquals("北京", decoded[199]);
+        assertEquals(1L, arena.getRecordNum());
+
+        //records larger than a chunk get a chunk of their own
+        String[] bigValues = {"x".repeat(100)};
+        long bigHandle = arena.allocate(bigValues, nullValue);
+        assertEquals(bigValues[0], arena.get(bigHandle, 0, nullValue));
+
+        arena.free(handle);
+        arena.free(bigHandle);
+        assertEquals(0L, arena.getRecordNum());
+        assertEquals(0L, arena.getLiveBytes());
+
+        //chunks are reused once their records are freed
+        List<Long> handles = new ArrayList<>();
+        for(int i = 0; i < 100; ++i){
+            handles.add(arena.allocate(new String[]{String.valueOf(i), "speed"}, nullValue));
+        }
+        int chunkNum = arena.getChunkNum();
+        for(int round = 0; round < 10; ++round){
+            for(int i = 0; i < handles.size(); ++i){
+                arena.free(handles.get(i));
+                handles.set(i, arena.allocate(new String[]{String.valueOf(i), "speed"}, nullValue));
+            }
+        }
+        for(int i = 0; i < handles.size(); ++i){
+            assertEquals(String.valueOf(i), arena.get(handles.get(i), 0, nullValue));
+        }
+        assertTrue(arena.getChunkNum() <= chunkNum + 1);
+    }
+
+    @Test
+    void offHeapContextTest(){
+        ContextArena arena = new ContextArena();
+        Context context = new Context();
+        context.setCtx_num(7L);
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("longitude", "113.9");
+        expected.put("note", null);
+        context.getCtx_fields().putAll(expected);
+
+        context.moveOffHeap(arena);
+        assertTrue(context.isOffHeap());
+        assertEquals(expected, context.getCtx_fields());
+        assertEquals(113.9, context.getDouble("longitude"));
+        assertTrue(context.getCtx_fields().containsKey("note"));
+        assertNull(context.getString("note"));
+        assertEquals(1L, arena.getRecordNum());
+
+        //writing a field moves the context back to the heap
+        context.getCtx_fields().put("speed", "23");
+        assertFalse(context.isOffHeap());
+        assertEquals(0L, arena.getRecordNum());
+        expected.put("speed", "23");
+        assertEquals(expected, context.getCtx_fields());
+
+        //releasing frees the record
+        context.moveOffHeap(arena);
+        assertEquals(1L, arena.getRecordNum());
+        context.release();
+        assertTrue(context.isReleased());
+        assertEquals(0L, arena.getRecordNum());
+        assertEquals("ctx_7", context.getCtx_id());
+    }
+}
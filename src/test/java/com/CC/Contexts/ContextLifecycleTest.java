@@ -0,0 +1,110 @@
+package com.CC.Contexts;
+
+import com.CC.Constraints.Rules.Rule;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContextLifecycleTest {
+
+    private static ContextChange change(ContextChange.Change_Type changeType, String pattern_id, Context context){
+        ContextChange contextChange = new ContextChange();
+        contextChange.setChange_type(changeType);
+        contextChange.setPattern_id(pattern_id);
+        contextChange.setContext(context);
+        return contextChange;
+    }
+
+    @Test
+    void releaseTest(){
+        Rule rule1 = new Rule("rule_1");
+        rule1.getVarPatternMap().put("v1", "pat_1");
+        rule1.getVarPatternMap().put("v2", "pat_1");
+        Rule rule2 = new Rule("rule_2");
+        rule2.getVarPatternMap().put("v1", "pat_1");
+        rule2.getVarPatternMap().put("v2", "pat_2");
+        ContextPool contextPool = new ContextPool();
+        contextPool.poolInit(rule1);
+        contextPool.poolInit(rule2);
+        ContextLifecycle lifecycle = contextPool.getLifecycle();
+
+        Context context = new Context();
+        context.setCtx_num(0L);
+        context.getCtx_fields().put("speed", "23");
+        ContextChange addChange = change(ContextChange.Change_Type.ADDITION, "pat_1", context);
+        ContextChange delChange = change(ContextChange.Change_Type.DELETION, "pat_1", context);
+
+        //pat_1 is in the pool sets of both rules
+        lifecycle.retain(addChange);
+        contextPool.applyChange("rule_1", addChange);
+        lifecycle.complete(addChange);
+        contextPool.applyChange("rule_1", delChange);
+        lifecycle.complete(delChange);
+        assertFalse(context.isReleased());
+
+        //the addition to rule_2 was still waiting, e.g., in a batch
+        contextPool.applyChange("rule_2", addChange);
+        contextPool.applyChange("rule_2", delChange);
+        assertFalse(context.isReleased());
+        lifecycle.releaseDropped();
+        assertTrue(context.isReleased());
+        assertEquals(1L, lifecycle.getReleasedNum());
+
+        //the released context keeps its identity
+        assertEquals("ctx_0", context.getCtx_id());
+        assertTrue(context.getCtx_fields().isEmpty());
+        Context sameContext = new Context();
+        sameContext.setCtx_num(0L);
+        assertEquals(sameContext, context);
+
+        //contexts of patterns without rules are released once deleted
+        Context otherContext = new Context();
+        otherContext.setCtx_num(1L);
+        ContextChange otherAddChange = change(ContextChange.Change_Type.ADDITION, "pat_3", otherContext);
+        lifecycle.retain(otherAddChange);
+        lifecycle.complete(otherAddChange);
+        assertFalse(otherContext.isReleased());
+        lifecycle.complete(change(ContextChange.Change_Type.DELETION, "pat_3", otherContext));
+        assertTrue(otherContext.isReleased());
+        assertEquals(2L, lifecycle.getReleasedNum());
+    }
+
+    @Test
+    void changeDataTest(){
+        Rule rule = new Rule("rule_1");
+        rule.getVarPatternMap().put("v1", "pat_1");
+        ContextPool contextPool = new ContextPool();
+        contextPool.poolInit(rule);
+        ContextLifecycle lifecycle = contextPool.getLifecycle();
+        ContextIds contextIds = new ContextIds();
+
+        //each line of change data gives an object of its own
+        Context addedContext = new Context();
+        addedContext.setCtx_id("taxi_7", contextIds);
+        Context deletedContext = new Context();
+        deletedContext.setCtx_id("taxi_7", contextIds);
+        ContextChange addChange = change(ContextChange.Change_Type.ADDITION, "pat_1", addedContext);
+        ContextChange delChange = change(ContextChange.Change_Type.DELETION, "pat_1", deletedContext);
+
+        lifecycle.retain(addChange);
+        contextPool.applyChange("rule_1", addChange);
+        lifecycle.complete(addChange);
+        lifecycle.retain(delChange);
+        contextPool.applyChange("rule_1", delChange);
+        lifecycle.complete(delChange);
+        assertTrue(addedContext.isReleased());
+        assertEquals(0, addedContext.getRefCount());
+        assertEquals(0, deletedContext.getRefCount());
+        assertEquals(1L, lifecycle.getReleasedNum());
+
+        //deletions without additions are ignored
+        lifecycle.complete(delChange);
+        Context unknownContext = new Context();
+        unknownContext.setCtx_id("taxi_8", contextIds);
+        lifecycle.complete(change(ContextChange.Change_Type.DELETION, "pat_1", unknownContext));
+        assertEquals(0, addedContext.getRefCount());
+        assertEquals(0, deletedContext.getRefCount());
+        assertEquals(0, unknownContext.getRefCount());
+        assertEquals(1L, lifecycle.getReleasedNum());
+    }
+}
@@ -0,0 +1,227 @@
+package com.CC.Contexts;
+
+import com.CC.Constraints.Formulas.DistanceBound;
+import com.CC.Constraints.Formulas.DomainFilter;
+import com.CC.Constraints.Formulas.JoinKey;
+import com.CC.Constraints.Rules.Rule;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContextPoolTest {
+
+    private static ContextChange change(ContextChange.Change_Type changeType, String pattern_id, Context context){
+        ContextChange contextChange = new ContextChange();
+        contextChange.setChange_type(changeType);
+        contextChange.setPattern_id(pattern_id);
+        contextChange.setContext(context);
+        return contextChange;
+    }
+
+    private static Context context(long ctxNum){
+        Context context = new Context();
+        context.setCtx_num(ctxNum);
+        return context;
+    }
+
+    private static Context context(long ctxNum, String taxiId){
+        Context context = context(ctxNum);
+        context.getCtx_fields().put("taxiId", taxiId);
+        return context;
+    }
+
+    private static ContextPool contextPool(String... rule_ids){
+        ContextPool contextPool = new ContextPool();
+        for(String rule_id : rule_ids){
+            Rule rule = new Rule(rule_id);
+            rule.getVarPatternMap().put("v1", "pat_1");
+            contextPool.poolInit(rule);
+        }
+        return contextPool;
+    }
+
+    @Test
+    void sharedViewTest(){
+        ContextPool contextPool = contextPool("rule_1", "rule_2");
+        Context context0 = context(0L);
+        Context context1 = context(1L);
+        List<ContextChange> changes = List.of(
+                change(ContextChange.Change_Type.ADDITION, "pat_1", context0),
+                change(ContextChange.Change_Type.ADDITION, "pat_1", context1),
+                change(ContextChange.Change_Type.DELETION, "pat_1", context0));
+
+        //rule_2 is behind rule_1, e.g., its changes wait in a batch
+        for(ContextChange contextChange : changes){
+            contextPool.applyChange("rule_1", contextChange);
+        }
+        assertEquals(Set.of(context1), contextPool.getPoolSet("rule_1", "pat_1"));
+        assertTrue(contextPool.getPoolSet("rule_2", "pat_1").isEmpty());
+        contextPool.applyChange("rule_2", changes.get(0));
+        contextPool.applyChange("rule_2", changes.get(1));
+        assertEquals(Set.of(context0, context1), contextPool.getPoolSet("rule_2", "pat_1"));
+        assertEquals(2, contextPool.getPoolSetSize("rule_2", "pat_1"));
+        assertTrue(contextPool.getPoolSet("rule_2", "pat_1").contains(context0));
+        contextPool.applyChange("rule_2", changes.get(2));
+        assertEquals(Set.of(context1), contextPool.getPoolSet("rule_2", "pat_1"));
+
+        //a view written directly keeps its own contexts
+        Context context2 = context(2L);
+        contextPool.getPoolSet("rule_2", "pat_1").add(context2);
+        assertEquals(Set.of(context1, context2), contextPool.getPoolSet("rule_2", "pat_1"));
+        assertEquals(Set.of(context1), contextPool.getPoolSet("rule_1", "pat_1"));
+        ContextChange delChange = change(ContextChange.Change_Type.DELETION, "pat_1", context1);
+        contextPool.applyChange("rule_1", delChange);
+        contextPool.applyChange("rule_2", delChange);
+        assertTrue(contextPool.getPoolSet("rule_1", "pat_1").isEmpty());
+        assertEquals(Set.of(context2), contextPool.getPoolSet("rule_2", "pat_1"));
+    }
+
+    @Test
+    void sharedDeltaTest(){
+        ContextPool contextPool = contextPool("rule_1", "rule_2");
+        Rule rule1 = new Rule("rule_1");
+        rule1.getVarPatternMap().put("v1", "pat_1");
+        Rule rule2 = new Rule("rule_2");
+        rule2.getVarPatternMap().put("v1", "pat_1");
+        Context context0 = context(0L);
+        Context context1 = context(1L);
+        Context context2 = context(2L);
+        contextPool.applyChanges(rule1, List.of(change(ContextChange.Change_Type.ADDITION, "pat_1", context0)));
+        contextPool.applyChanges(rule2, List.of(change(ContextChange.Change_Type.ADDITION, "pat_1", context0)));
+
+        List<ContextChange> batch = List.of(
+                change(ContextChange.Change_Type.DELETION, "pat_1", context0),
+                change(ContextChange.Change_Type.ADDITION, "pat_1", context0),
+                change(ContextChange.Change_Type.ADDITION, "pat_1", context1),
+                change(ContextChange.Change_Type.ADDITION, "pat_1", context2),
+                change(ContextChange.Change_Type.DELETION, "pat_1", context2));
+        contextPool.applyChanges(rule1, batch);
+        Set<Context> addSet = contextPool.getAddSet("rule_1", "pat_1");
+        assertEquals(Set.of(context1), addSet);
+        assertEquals(Set.of(context0), contextPool.getUpdSet("rule_1", "pat_1"));
+        assertTrue(contextPool.getDelSet("rule_1", "pat_1").isEmpty());
+        //rule_2 has not applied the batch yet
+        assertEquals(Set.of(context0), contextPool.getAddSet("rule_2", "pat_1"));
+
+        //the same changes give the same sets
+        contextPool.applyChanges(rule2, batch);
+        assertSame(addSet, contextPool.getAddSet("rule_2", "pat_1"));
+        assertEquals(Set.of(context0, context1), contextPool.getPoolSet("rule_2", "pat_1"));
+    }
+
+    @Test
+    void concurrentReadTest() throws Exception {
+        ContextPool contextPool = contextPool("rule_1", "rule_2");
+        List<Context> contexts = new ArrayList<>();
+        for(int i = 0; i < 100; ++i){
+            Context context = context(i);
+            contexts.add(context);
+            contextPool.applyChange("rule_2", change(ContextChange.Change_Type.ADDITION, "pat_1", context));
+        }
+        Set<Context> expected = new HashSet<>(contexts);
+
+        //rule_1 applies changes while the pool set of rule_2 is read on another thread
+        Thread writer = new Thread(() -> {
+            for(int round = 0; round < 20; ++round){
+                for(Context context : contexts){
+                    contextPool.applyChange("rule_1", change(ContextChange.Change_Type.ADDITION, "pat_1", context));
+                }
+                for(Context context : contexts){
+                    contextPool.applyChange("rule_1", change(ContextChange.Change_Type.DELETION, "pat_1", context));
+                }
+            }
+        });
+        writer.start();
+        Set<Context> pool = contextPool.getPoolSet("rule_2", "pat_1");
+        while(writer.isAlive()){
+            assertEquals(expected, new HashSet<>(pool));
+            assertEquals(100, pool.size());
+        }
+        writer.join();
+        assertEquals(expected, new HashSet<>(pool));
+        assertTrue(contextPool.getPoolSet("rule_1", "pat_1").isEmpty());
+    }
+
+    @Test
+    void joinIndexTest(){
+        ContextPool contextPool = new ContextPool();
+        Rule rule1 = new Rule("rule_1");
+        rule1.getVarPatternMap().put("v1", "pat_1");
+        contextPool.poolInit(rule1);
+        Rule rule2 = new Rule("rule_2");
+        rule2.getVarPatternMap().put("v2", "pat_1");
+        JoinKey joinKey = new JoinKey("taxiId", "v1", "taxiId");
+        rule2.getPatToDomainFilter().put("pat_1", joinKey);
+        contextPool.poolInit(rule2);
+
+        List<Context> contexts = new ArrayList<>();
+        for(int i = 0; i < 40; ++i){
+            contexts.add(context(i, "taxi_" + i % 4));
+        }
+        contexts.add(context(40));
+        for(Context context : contexts){
+            ContextChange addChange = change(ContextChange.Change_Type.ADDITION, "pat_1", context);
+            contextPool.applyChange("rule_1", addChange);
+            contextPool.applyChange("rule_2", addChange);
+        }
+        //rule_1 runs ahead, rule_2 still sees the removed contexts
+        for(int i = 0; i < 40; i += 3){
+            contextPool.applyChange("rule_1", change(ContextChange.Change_Type.DELETION, "pat_1", contexts.get(i)));
+        }
+
+        for(String rule_id : List.of("rule_1", "rule_2")){
+            for(int taxi = 0; taxi < 5; ++taxi){
+                String taxiId = "taxi_" + taxi;
+                Set<Context> expected = new HashSet<>();
+                for(Context context : contextPool.getPoolSet(rule_id, "pat_1")){
+                    if(taxiId.equals(context.getString("taxiId"))){
+                        expected.add(context);
+                    }
+                }
+                assertEquals(expected, joinKey.select(contextPool, rule_id, "pat_1", Map.of("v1", context(100L, taxiId))));
+            }
+        }
+        Map<String, Context> varEnv = Map.of("v1", context(100L, "taxi_0"));
+        assertEquals(10, joinKey.select(contextPool, "rule_2", "pat_1", varEnv).size());
+        assertEquals(6, joinKey.select(contextPool, "rule_1", "pat_1", varEnv).size());
+    }
+
+    @Test
+    void gridIndexTest(){
+        ContextPool contextPool = new ContextPool();
+        Rule rule = new Rule("rule_1");
+        rule.getVarPatternMap().put("v2", "pat_1");
+        DomainFilter distanceBound = DistanceBound.of("v1", "0.01", null);
+        rule.getPatToDomainFilter().put("pat_1", distanceBound);
+        contextPool.poolInit(rule);
+
+        Random random = new Random(7);
+        List<Context> contexts = new ArrayList<>();
+        for(int i = 0; i < 500; ++i){
+            Context context = context(i);
+            context.getCtx_fields().put("longitude", String.valueOf(113.9 + random.nextDouble() * 0.1));
+            context.getCtx_fields().put("latitude", String.valueOf(22.5 + random.nextDouble() * 0.1));
+            contexts.add(context);
+            contextPool.applyChange("rule_1", change(ContextChange.Change_Type.ADDITION, "pat_1", context));
+        }
+        //no coordinates, matches nothing
+        contextPool.applyChange("rule_1", change(ContextChange.Change_Type.ADDITION, "pat_1", context(500L)));
+        for(int i = 0; i < 500; i += 5){
+            contextPool.applyChange("rule_1", change(ContextChange.Change_Type.DELETION, "pat_1", contexts.get(i)));
+        }
+
+        for(Context outer : contexts.subList(0, 50)){
+            Map<String, Context> varEnv = Map.of("v1", outer);
+            Set<Context> expected = new HashSet<>();
+            for(Context context : contextPool.getPoolSet("rule_1", "pat_1")){
+                if(distanceBound.matches(context, varEnv)){
+                    expected.add(context);
+                }
+            }
+            assertEquals(expected, distanceBound.select(contextPool, "rule_1", "pat_1", varEnv));
+        }
+        assertTrue(distanceBound.select(contextPool, "rule_1", "pat_1", Map.of("v1", context(501L))).isEmpty());
+    }
+}
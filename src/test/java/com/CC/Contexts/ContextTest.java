@@ -0,0 +1,134 @@
+package com.CC.Contexts;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContextTest {
+
+    @Test
+    void fieldMapTest(){
+        Context context = new Context();
+        Map<String, String> expected = new LinkedHashMap<>();
+        Map<String, String> ctxFields = context.getCtx_fields();
+        assertTrue(ctxFields.isEmpty());
+
+        expected.put("longitude", "113.9");
+        ctxFields.put("longitude", "113.9");
+        expected.put("note", null);
+        ctxFields.put("note", null);
+        expected.put("ContextTest_field", "1");
+        assertNull(ctxFields.put("ContextTest_field", "0"));
+        assertEquals("0", ctxFields.put("ContextTest_field", "1"));
+        assertEquals(expected, context.getCtx_fields());
+        assertEquals(expected.hashCode(), context.getCtx_fields().hashCode());
+
+        //JSON null is kept apart from absent fields
+        assertTrue(ctxFields.containsKey("note"));
+        assertNull(ctxFields.get("note"));
+        assertFalse(ctxFields.containsKey("ContextTest_absent"));
+
+        //contexts created before a field is seen still take it
+        Context newContext = new Context();
+        newContext.getCtx_fields().put("ContextTest_late", "x");
+        assertEquals("x", newContext.getCtx_fields().get("ContextTest_late"));
+        assertNull(context.getCtx_fields().get("ContextTest_late"));
+
+        Iterator<Map.Entry<String, String>> iterator = ctxFields.entrySet().iterator();
+        while(iterator.hasNext()){
+            Map.Entry<String, String> entry = iterator.next();
+            if(entry.getKey().equals("longitude")){
+                entry.setValue("114.0");
+            }
+            else if(entry.getKey().equals("note")){
+                iterator.remove();
+            }
+        }
+        expected.put("longitude", "114.0");
+        expected.remove("note");
+        assertEquals(expected, ctxFields);
+        assertEquals(2, ctxFields.size());
+    }
+
+    @Test
+    void typedGetterTest(){
+        Context context = new Context();
+        context.getCtx_fields().put("longitude", "113.909048");
+        context.getCtx_fields().put("speed", "23");
+        assertEquals(113.909048, context.getDouble("longitude"));
+        assertEquals(113.909048, context.getDouble("longitude"));
+        assertEquals(23L, context.getLong("speed"));
+        assertEquals(23.0, context.getDouble("speed"));
+        assertEquals("23", context.getString("speed"));
+        assertNull(context.getString("ContextTest_absent"));
+        assertThrows(NumberFormatException.class, () -> context.getLong("longitude"));
+        assertThrows(NumberFormatException.class, () -> context.getLong("ContextTest_absent"));
+
+        //parsed values are dropped when a field is put
+        context.getCtx_fields().put("speed", "72");
+        assertEquals(72L, context.getLong("speed"));
+    }
+
+    @Test
+    void identityTest(){
+        ContextIds contextIds = new ContextIds();
+        Context context = new Context();
+        context.setCtx_id("ctx_42", contextIds);
+        assertEquals(42L, context.getCtx_num());
+        assertEquals("ctx_42", context.getCtx_id());
+
+        Context sameContext = new Context();
+        sameContext.setCtx_num(42L);
+        assertEquals(context, sameContext);
+        assertEquals(context.hashCode(), sameContext.hashCode());
+        for(long ctxNum : new long[]{0L, 7L, 10L, 123456789L, Long.MAX_VALUE}){
+            assertEquals(("ctx_" + ctxNum).hashCode(), ContextIds.hashOf(ctxNum));
+        }
+
+        //ids not in the form of "ctx_N" are kept as they are
+        for(String ctxId : new String[]{"ctx_007", "taxi_1", "ctx_", "ctx_99999999999999999999"}){
+            Context otherContext = new Context();
+            otherContext.setCtx_id(ctxId, contextIds);
+            assertTrue(otherContext.getCtx_num() < 0);
+            assertEquals(ctxId, otherContext.getCtx_id());
+            assertEquals(otherContext.getCtx_num(), contextIds.toCtxNum(ctxId));
+            assertEquals(ctxId.hashCode(), otherContext.hashCode());
+        }
+        assertNull(new Context().getCtx_id());
+
+        //each handler numbers its own ids, and numbers are not given again after a reset
+        ContextIds otherIds = new ContextIds();
+        assertEquals(-1L, otherIds.toCtxNum("taxi_1"));
+        long taxiNum = contextIds.toCtxNum("taxi_1");
+        contextIds.reset();
+        long resetNum = contextIds.toCtxNum("taxi_1");
+        assertTrue(resetNum < 0 && resetNum != taxiNum);
+        assertEquals(resetNum, contextIds.toCtxNum("taxi_1"));
+    }
+
+    @Test
+    void schemaTest(){
+        ContextSchema schema = new ContextSchema();
+        Context taxi = new Context(schema);
+        for(int i = 0; i < 12; ++i){
+            taxi.getCtx_fields().put("f" + i, String.valueOf(i));
+        }
+        //fields of other feeds take later slots of the shared schema
+        Context metro = new Context(schema);
+        metro.getCtx_fields().put("line", "1");
+        metro.getCtx_fields().put("station", null);
+        assertEquals(14, schema.getFieldNum());
+        assertEquals(12, schema.slotOf("line"));
+        assertEquals(new HashMap<>(){{put("line", "1"); put("station", null);}}, metro.getCtx_fields());
+        assertEquals(12, taxi.getCtx_fields().size());
+        assertNull(taxi.getString("line"));
+
+        //contexts built by hand do not share slots
+        Context other = new Context();
+        other.getCtx_fields().put("station", "s");
+        assertEquals("s", other.getString("station"));
+        assertEquals(14, schema.getFieldNum());
+    }
+}
@@ -0,0 +1,82 @@
+package com.CC.Contexts;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ExpiryTimingWheelTest {
+
+    //reference: entries sorted by (time, rank, order of adding)
+    static final class Entry {
+        final long time;
+        final int rank;
+        final int seq;
+        final String patternId;
+        final Context context;
+
+        Entry(long time, int rank, int seq, String patternId, Context context) {
+            this.time = time;
+            this.rank = rank;
+            this.seq = seq;
+            this.patternId = patternId;
+            this.context = context;
+        }
+    }
+
+    static void check(long startTime, long maxStep, long maxFreshness, boolean backward, long seed){
+        Random random = new Random(seed);
+        ExpiryTimingWheel expiryTimingWheel = new ExpiryTimingWheel(4);
+        List<Entry> reference = new ArrayList<>();
+        long time = startTime;
+        int seq = 0;
+        for(int round = 0; round < 3000; ++round){
+            time += backward && random.nextInt(10) == 0 ? -random.nextInt(1000) : (long) (random.nextDouble() * maxStep);
+            List<ContextChange> expected = new ArrayList<>();
+            List<Entry> expired = new ArrayList<>();
+            for(Entry entry : reference){
+                if(entry.time <= time){
+                    expired.add(entry);
+                }
+            }
+            reference.removeAll(expired);
+            expired.sort(Comparator.comparingLong((Entry entry) -> entry.time).thenComparingInt(entry -> entry.rank).thenComparingInt(entry -> entry.seq));
+            for(Entry entry : expired){
+                ContextChange delChange = new ContextChange();
+                delChange.setChange_type(ContextChange.Change_Type.DELETION);
+                delChange.setPattern_id(entry.patternId);
+                delChange.setContext(entry.context);
+                expected.add(delChange);
+            }
+            List<ContextChange> actual = new ArrayList<>();
+            expiryTimingWheel.expire(time, actual);
+            StreamingParserTest.assertSameChanges(expected, actual);
+
+            int addNum = random.nextInt(4);
+            for(int i = 0; i < addNum; ++i){
+                int rank = random.nextInt(3);
+                //coarse freshness values make equal expiry times common
+                long freshness = random.nextInt(4) == 0 ? 0L : (random.nextLong() & Long.MAX_VALUE) % maxFreshness / 500 * 500;
+                Context context = new Context();
+                context.setCtx_num(seq);
+                reference.add(new Entry(time + freshness, rank, seq++, "pat_" + rank, context));
+                expiryTimingWheel.add(time + freshness, rank, "pat_" + rank, context);
+            }
+            assertEquals(reference.size(), expiryTimingWheel.size());
+        }
+    }
+
+    @Test
+    void expireTest(){
+        //2011-04-08 04:00:00:000 (+0800), seconds between lines
+        check(1302206400000L, 4000, 600_000, false, 1);
+        //large jumps crossing higher levels
+        check(1302206400000L, 50_000_000, 2_000_000_000_000L, false, 2);
+        //around zero and data going backward in time
+        check(-5000, 3000, 20_000, true, 3);
+    }
+}
@@ -0,0 +1,93 @@
+package com.CC.Contexts;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class IngestionPipelineTest {
+
+    static String buildData(int lineNum){
+        StringBuilder stringBuilder = new StringBuilder();
+        for(int i = 0; i < lineNum; ++i){
+            stringBuilder.append(String.format("{\"timestamp\": \"2011-04-08 04:%02d:%02d:%03d\", \"fields\": {\"taxiId\": \"B%05d\"}}\n",
+                    i / 60000, i / 1000 % 60, i % 1000, i % 7));
+        }
+        return stringBuilder.toString();
+    }
+
+    static List<ContextChange> runPipeline(String data, String parserType, int parserNum) throws Exception {
+        ContextHandler contextHandler = new ContextHandler(StreamingParserTest.buildPatternHandler(), "rawData", parserType);
+        List<ContextChange> changeList = new ArrayList<>();
+        BufferedReader bufferedReader = new BufferedReader(new StringReader(data));
+        try(IngestionPipeline<String> ingestionPipeline = new IngestionPipeline<>(contextHandler, bufferedReader::readLine, contextHandler::parseLine, parserNum)){
+            ingestionPipeline.start();
+            ParsedLine parsedLine;
+            while((parsedLine = ingestionPipeline.take()) != null){
+                changeList.addAll(contextHandler.generateFromParsedLine(parsedLine));
+            }
+        }
+        changeList.addAll(contextHandler.generateChanges(null));
+        return changeList;
+    }
+
+    @Test
+    void orderTest() throws Exception {
+        String data = buildData(IngestionPipeline.batchSize * 10 + 17);
+        ContextHandler contextHandler = new ContextHandler(StreamingParserTest.buildPatternHandler(), "rawData", "fastjson");
+        List<ContextChange> expected = new ArrayList<>();
+        for(String line : data.split("\n")){
+            expected.addAll(contextHandler.generateChanges(line));
+        }
+        expected.addAll(contextHandler.generateChanges(null));
+
+        StreamingParserTest.assertSameChanges(expected, runPipeline(data, "fastjson", 4));
+        StreamingParserTest.assertSameChanges(expected, runPipeline(data, "streaming", 3));
+    }
+
+    @Test
+    void errorTest() {
+        String data = buildData(IngestionPipeline.batchSize + 5) + "{\"timestamp\": \"bad\", \"fields\": {}}\n" + buildData(3);
+        assertThrows(ParseException.class, () -> runPipeline(data, "streaming", 2));
+    }
+
+    static void drain(IngestionPipeline<String> ingestionPipeline) throws Exception {
+        ingestionPipeline.start();
+        while(ingestionPipeline.take() != null){
+        }
+    }
+
+    @Test
+    void throwableTest() {
+        ContextHandler contextHandler = new ContextHandler(StreamingParserTest.buildPatternHandler(), "rawData", "streaming");
+        BufferedReader bufferedReader = new BufferedReader(new StringReader(buildData(IngestionPipeline.batchSize + 5)));
+        int[] lineNum = {0};
+        //unchecked exceptions of the reader and errors of the parsers are thrown by take() instead of hanging it
+        assertThrows(IllegalStateException.class, () -> {
+            try(IngestionPipeline<String> ingestionPipeline = new IngestionPipeline<>(contextHandler, () -> {
+                if(++lineNum[0] > IngestionPipeline.batchSize + 2){
+                    throw new IllegalStateException("reader");
+                }
+                return bufferedReader.readLine();
+            }, contextHandler::parseLine, 2)){
+                drain(ingestionPipeline);
+            }
+        });
+        assertThrows(StackOverflowError.class, () -> {
+            try(IngestionPipeline<String> ingestionPipeline = new IngestionPipeline<>(contextHandler,
+                    new BufferedReader(new StringReader(buildData(10)))::readLine, (line, ctxNum) -> {
+                if(line.contains("B00005")){
+                    throw new StackOverflowError();
+                }
+                return contextHandler.parseLine(line, ctxNum);
+            }, 2)){
+                drain(ingestionPipeline);
+            }
+        });
+    }
+}
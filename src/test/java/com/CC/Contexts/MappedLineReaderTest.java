@@ -0,0 +1,58 @@
+package com.CC.Contexts;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MappedLineReaderTest {
+
+    static List<String> readLines(Path path, int windowSize) throws Exception {
+        List<String> lines = new ArrayList<>();
+        try(MappedLineReader mappedLineReader = new MappedLineReader(path, windowSize)){
+            ByteSlice byteSlice;
+            while((byteSlice = mappedLineReader.readLine()) != null){
+                lines.add(byteSlice.toString());
+            }
+        }
+        return lines;
+    }
+
+    @Test
+    void readLineTest() throws Exception {
+        StringBuilder stringBuilder = new StringBuilder();
+        for(int i = 0; i < 50; ++i){
+            stringBuilder.append("line").append(i).append("中文".repeat(i % 5)).append(i % 3 == 0 ? "\r\n" : (i % 3 == 1 ? "\n" : "\r"));
+            if(i % 10 == 0){
+                stringBuilder.append("\n");
+            }
+        }
+        stringBuilder.append("x".repeat(100)).append("\r\n").append("last");
+        String data = stringBuilder.toString();
+
+        List<String> expected = new ArrayList<>();
+        BufferedReader bufferedReader = new BufferedReader(new StringReader(data));
+        String line;
+        while((line = bufferedReader.readLine()) != null){
+            expected.add(line);
+        }
+
+        Path path = Files.createTempFile("mapped", ".txt");
+        try{
+            Files.write(path, data.getBytes(StandardCharsets.UTF_8));
+            //windows smaller than lines are remapped and grown
+            for(int windowSize : new int[]{1, 7, 16, 64, MappedLineReader.defaultWindowSize}){
+                assertEquals(expected, readLines(path, windowSize));
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.CC.Contexts;
+
+import com.CC.Patterns.Pattern;
+import com.CC.Patterns.PatternHandler;
+import com.CC.Patterns.types.FreshnessType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class NumberWindowStoreTest {
+
+    @Test
+    void slideTest(){
+        PatternHandler patternHandler = StreamingParserTest.buildPatternHandler();
+        NumberWindowStore numberWindowStore = new NumberWindowStore(patternHandler.getPatternMap().values());
+        assertEquals(1, numberWindowStore.getWindowNum());
+        assertEquals(-1, numberWindowStore.getWindowIndex("pat_time"));
+        int window = numberWindowStore.getWindowIndex("pat_number");
+        Context[] contexts = new Context[5];
+        for(int i = 0; i < contexts.length; ++i){
+            contexts[i] = new Context();
+            contexts[i].setCtx_num(i);
+        }
+        assertNull(numberWindowStore.slide(window, contexts[0]));
+        assertEquals(0.5, numberWindowStore.getOccupancy());
+        assertNull(numberWindowStore.slide(window, contexts[1]));
+        for(int i = 2; i < contexts.length; ++i){
+            assertEquals(contexts[i - 2], numberWindowStore.slide(window, contexts[i]));
+        }
+        assertEquals(2, numberWindowStore.getSize(window));
+        assertEquals(1.0, numberWindowStore.getOccupancy());
+    }
+
+    @Test
+    void lateBuildTest() throws Exception {
+        //patterns are built after the handler is created, as in OfflineStarter
+        PatternHandler patternHandler = new PatternHandler();
+        ContextHandler contextHandler = new ContextHandler(patternHandler, "rawData", "streaming");
+        Pattern pattern = new Pattern();
+        pattern.setPatternId("pat_number");
+        pattern.setFreshnessType(FreshnessType.number);
+        pattern.setFreshnessValue("1");
+        patternHandler.getPatternMap().put(pattern.getPatternId(), pattern);
+
+        contextHandler.generateChanges("{\"timestamp\": \"2011-04-08 04:00:00:000\", \"fields\": {}}");
+        List<ContextChange> changeList = contextHandler.generateChanges("{\"timestamp\": \"2011-04-08 04:00:01:000\", \"fields\": {}}");
+        assertEquals(2, changeList.size());
+        assertEquals(ContextChange.Change_Type.DELETION, changeList.get(0).getChange_type());
+        assertEquals("ctx_0", changeList.get(0).getContext().getCtx_id());
+        assertEquals(ContextChange.Change_Type.ADDITION, changeList.get(1).getChange_type());
+        assertEquals("ctx_1", changeList.get(1).getContext().getCtx_id());
+    }
+}
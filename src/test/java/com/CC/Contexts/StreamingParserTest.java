@@ -0,0 +1,87 @@
+package com.CC.Contexts;
+
+import com.CC.Patterns.Pattern;
+import com.CC.Patterns.PatternHandler;
+import com.CC.Patterns.types.FreshnessType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StreamingParserTest {
+
+    static final List<String> rawDataLines = new ArrayList<>(){{
+        add("{\"timestamp\": \"2011-04-08 04:00:00:000\", \"fields\" : {\"taxiId\": \"B00001\", \"longitude\": \"113.9\", \"latitude\": \"22.5\", \"status\": \"1\"}}");
+        add("{\"fields\":{\"taxiId\":\"B00002\",\"speed\":35,\"status\":null},\"timestamp\":\"2011-04-08 04:00:01:500\"}");
+        add("{ \"timestamp\" : \"2011-04-08 04:00:02:000\" , \"extra\" : [1, {\"a\": \"}\"}] , \"fields\" : { \"name\" : \"a \\\"quoted\\\" \\u4e2d\\\\n\" , \"flag\" : true } }");
+        add("{\"timestamp\": \"2011-04-08 04:00:03:000\", \"fields\": {}}");
+        add("{\"fields\": {\"地点\": \"深圳\\t福田\", \"k\\u0041\": \"\\\"é\\\"\"}, \"timestamp\": \"1302206404000\"}");
+    }};
+
+    static final List<String> changeLines = new ArrayList<>(){{
+        add("{ \"changeType\": \"+\", \"patternId\": \"pat_1\", \"context\": { \"contextId\": \"ctx_1\", \"fields\": { \"key1\": \"value1\", \"key2\": \"value2\"}}}");
+        add("{\"context\":{\"fields\":{\"key1\":\"value1\"},\"contextId\":\"ctx_1\"},\"patternId\":\"pat_1\",\"changeType\":\"-\"}");
+    }};
+
+    static PatternHandler buildPatternHandler(){
+        PatternHandler patternHandler = new PatternHandler();
+        Pattern timePattern = new Pattern();
+        timePattern.setPatternId("pat_time");
+        timePattern.setFreshnessType(FreshnessType.time);
+        timePattern.setFreshnessValue("1000");
+        patternHandler.getPatternMap().put(timePattern.getPatternId(), timePattern);
+        Pattern numberPattern = new Pattern();
+        numberPattern.setPatternId("pat_number");
+        numberPattern.setFreshnessType(FreshnessType.number);
+        numberPattern.setFreshnessValue("2");
+        patternHandler.getPatternMap().put(numberPattern.getPatternId(), numberPattern);
+        return patternHandler;
+    }
+
+    static void assertSameChanges(List<ContextChange> expected, List<ContextChange> actual){
+        assertEquals(expected.size(), actual.size());
+        for(int i = 0; i < expected.size(); ++i){
+            assertEquals(expected.get(i).getChange_type(), actual.get(i).getChange_type());
+            assertEquals(expected.get(i).getPattern_id(), actual.get(i).getPattern_id());
+            assertEquals(expected.get(i).getContext().getCtx_id(), actual.get(i).getContext().getCtx_id());
+            assertEquals(expected.get(i).getContext().getCtx_fields(), actual.get(i).getContext().getCtx_fields());
+        }
+    }
+
+    static void compareParsers(String dataType, List<String> lines) throws Exception {
+        ContextHandler fastjsonHandler = new ContextHandler(buildPatternHandler(), dataType, "fastjson");
+        ContextHandler streamingHandler = new ContextHandler(buildPatternHandler(), dataType, "streaming");
+        for(String line : lines){
+            assertSameChanges(fastjsonHandler.generateChanges(line), streamingHandler.generateChanges(line));
+        }
+        assertSameChanges(fastjsonHandler.generateChanges(null), streamingHandler.generateChanges(null));
+    }
+
+    static void compareByteParser(String dataType, List<String> lines) throws Exception {
+        ContextHandler fastjsonHandler = new ContextHandler(buildPatternHandler(), dataType, "fastjson");
+        ContextHandler streamingHandler = new ContextHandler(buildPatternHandler(), dataType, "streaming");
+        for(String line : lines){
+            //the line in the middle of a larger buffer
+            byte[] bytes = ("\n" + line + "\n").getBytes(StandardCharsets.UTF_8);
+            ByteSlice byteSlice = new ByteSlice(ByteBuffer.wrap(bytes), 1, bytes.length - 1);
+            assertSameChanges(fastjsonHandler.generateChanges(line),
+                    streamingHandler.generateFromParsedLine(streamingHandler.parseLine(byteSlice, streamingHandler.allocateCtxNum())));
+        }
+    }
+
+    @Test
+    void rawDataTest() throws Exception {
+        compareParsers("rawData", rawDataLines);
+        compareByteParser("rawData", rawDataLines);
+    }
+
+    @Test
+    void changeTest() throws Exception {
+        compareParsers("change", changeLines);
+        compareByteParser("change", changeLines);
+    }
+}
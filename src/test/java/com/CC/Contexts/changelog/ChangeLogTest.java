@@ -0,0 +1,116 @@
+package com.CC.Contexts.changelog;
+
+import com.CC.Contexts.ContextChange;
+import com.CC.Contexts.ContextHandler;
+import com.CC.Patterns.Pattern;
+import com.CC.Patterns.PatternHandler;
+import com.CC.Patterns.types.FreshnessType;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ChangeLogTest {
+
+    static final List<String> rawDataLines = new ArrayList<>(){{
+        add("{\"timestamp\": \"2011-04-08 04:00:00:000\", \"fields\" : {\"taxiId\": \"B00001\", \"speed\": 35, \"status\": null}}");
+        add("{\"timestamp\": \"2011-04-08 04:00:00:500\", \"fields\" : {\"taxiId\": \"B00002\", \"地点\": \"深圳\"}}");
+        add("{\"timestamp\": \"2011-04-08 04:00:02:000\", \"fields\" : {}}");
+    }};
+
+    static List<ContextChange> readAll(Path path) throws IOException {
+        List<ContextChange> changeList = new ArrayList<>();
+        try(ChangeLogReader changeLogReader = new ChangeLogReader(path)){
+            ContextChange contextChange;
+            while((contextChange = changeLogReader.readChange()) != null){
+                changeList.add(contextChange);
+            }
+        }
+        return changeList;
+    }
+
+    @Test
+    void convertTest() throws Exception {
+        PatternHandler patternHandler = new PatternHandler();
+        for(FreshnessType freshnessType : FreshnessType.values()){
+            Pattern pattern = new Pattern();
+            pattern.setPatternId("pat_" + freshnessType.name());
+            pattern.setFreshnessType(freshnessType);
+            pattern.setFreshnessValue("1000");
+            patternHandler.getPatternMap().put(pattern.getPatternId(), pattern);
+        }
+        ContextHandler contextHandler = new ContextHandler(patternHandler, "rawData", "fastjson");
+        List<ContextChange> expected = new ArrayList<>();
+        for(String line : rawDataLines){
+            expected.addAll(contextHandler.generateChanges(line));
+        }
+        expected.addAll(contextHandler.generateChanges(null));
+
+        Path dataPath = Files.createTempFile("rawData", ".txt");
+        Path logPath = Files.createTempFile("changeLog", ".bin");
+        try{
+            Files.write(dataPath, String.join("\n", rawDataLines).getBytes(StandardCharsets.UTF_8));
+            assertEquals(expected.size(), ChangeLogConverter.convert(dataPath.toString(), "rawData", patternHandler, logPath.toString()));
+            List<ContextChange> actual = readAll(logPath);
+            assertEquals(expected.size(), actual.size());
+            for(int i = 0; i < expected.size(); ++i){
+                assertEquals(expected.get(i).getChange_type(), actual.get(i).getChange_type());
+                assertEquals(expected.get(i).getPattern_id(), actual.get(i).getPattern_id());
+                assertEquals(expected.get(i).getContext().getCtx_id(), actual.get(i).getContext().getCtx_id());
+                assertEquals(expected.get(i).getContext().getCtx_fields(), actual.get(i).getContext().getCtx_fields());
+            }
+        } finally {
+            Files.delete(dataPath);
+            Files.delete(logPath);
+        }
+    }
+
+    @Test
+    void contextIdTest() throws Exception {
+        //ids not in the form of "ctx_N" are kept as they are
+        String[] ctxIds = {"taxi_7", "ctx_007", "ctx_3", "ctx_0", "taxi_7", "ctx_" + Long.MAX_VALUE, "ctx_"};
+        StringBuilder changeData = new StringBuilder();
+        for(int i = 0; i < ctxIds.length; ++i){
+            changeData.append("{\"changeType\": \"").append(i % 2 == 0 ? "+" : "-").append("\", \"patternId\": \"pat_1\", ")
+                    .append("\"context\": {\"contextId\": \"").append(ctxIds[i]).append("\", \"fields\": {\"speed\": \"").append(i).append("\"}}}\n");
+        }
+
+        Path dataPath = Files.createTempFile("change", ".txt");
+        Path logPath = Files.createTempFile("changeLog", ".bin");
+        try{
+            Files.write(dataPath, changeData.toString().getBytes(StandardCharsets.UTF_8));
+            assertEquals(ctxIds.length, ChangeLogConverter.convert(dataPath.toString(), "change", new PatternHandler(), logPath.toString()));
+            List<ContextChange> actual = readAll(logPath);
+            assertEquals(ctxIds.length, actual.size());
+            for(int i = 0; i < ctxIds.length; ++i){
+                assertEquals(ctxIds[i], actual.get(i).getContext().getCtx_id());
+                assertEquals(String.valueOf(i), actual.get(i).getContext().getCtx_fields().get("speed"));
+            }
+            assertEquals(3L, actual.get(2).getContext().getCtx_num());
+            assertEquals(actual.get(0).getContext(), actual.get(4).getContext());
+            assertFalse(actual.get(1).getContext().equals(actual.get(3).getContext()));
+        } finally {
+            Files.delete(dataPath);
+            Files.delete(logPath);
+        }
+    }
+
+    @Test
+    void illegalTest() throws Exception {
+        Path path = Files.createTempFile("changeLog", ".bin");
+        try{
+            Files.write(path, "{\"changeType\": \"+\"}".getBytes(StandardCharsets.UTF_8));
+            assertThrows(IOException.class, () -> new ChangeLogReader(path));
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.CC.Contexts.timestamp;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TimestampCodecTest {
+
+    static final String[] timestamps = {
+            "2011-04-08 04:00:00:000",
+            "2011-04-08 23:59:59:999",
+            "2011-04-09 00:00:00:001",
+            "2000-02-29 12:34:56:789",
+            "1970-01-01 00:00:00:000",
+            "2021-03-14 02:30:00:000",
+            "2021-11-07 01:30:00:000"
+    };
+
+    @Test
+    void layoutTest() throws Exception {
+        TimeZone defaultTimeZone = TimeZone.getDefault();
+        try{
+            for(String zone : new String[]{"UTC", "Asia/Shanghai", "America/New_York"}){
+                TimeZone.setDefault(TimeZone.getTimeZone(zone));
+                SimpleDateFormat simpleDateFormat = new SimpleDateFormat(LayoutTimestampCodec.LAYOUT);
+                TimestampCodec codec = new LayoutTimestampCodec(ZoneId.of(zone));
+                for(String timestampStr : timestamps){
+                    assertEquals(simpleDateFormat.parse(timestampStr).getTime(), codec.parse(timestampStr));
+                }
+            }
+        } finally {
+            TimeZone.setDefault(defaultTimeZone);
+        }
+    }
+
+    @Test
+    void autoTest() throws Exception {
+        TimestampCodec codec = new AutoTimestampCodec();
+        assertEquals(1302206400000L, codec.parse("1302206400000"));
+        assertEquals(new SimpleDateFormat(LayoutTimestampCodec.LAYOUT).parse(timestamps[0]).getTime(), codec.parse(timestamps[0]));
+        assertThrows(ParseException.class, () -> codec.parse("2011-04-08T04:00:00:000"));
+        assertThrows(ParseException.class, () -> codec.parse("2011-04-08 04:00:00"));
+        assertThrows(ParseException.class, () -> codec.parse("2011-02-30 04:00:00:000"));
+    }
+}
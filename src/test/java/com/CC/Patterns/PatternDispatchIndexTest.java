@@ -0,0 +1,90 @@
+package com.CC.Patterns;
+
+import com.CC.Contexts.Context;
+import com.CC.Patterns.matcher.FunctionMatcher;
+import com.CC.Patterns.matcher.Mfunc;
+import com.CC.Patterns.matcher.PrimaryKeyMatcher;
+import com.CC.Patterns.types.FreshnessType;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PatternDispatchIndexTest {
+
+    @Test
+    void matchTest(){
+        Random random = new Random(8);
+        String[] fields = {"subject", "status", "type"};
+        List<Pattern> patterns = new ArrayList<>();
+        for(int i = 0; i < 100; ++i){
+            Pattern pattern = new Pattern();
+            pattern.setPatternId("pat_" + i);
+            pattern.setFreshnessType(FreshnessType.number);
+            pattern.setFreshnessValue("1");
+            if(i % 7 != 0){
+                PrimaryKeyMatcher primaryKeyMatcher = new PrimaryKeyMatcher(fields[random.nextInt(fields.length)]);
+                for(int j = random.nextInt(3); j >= 0; --j){
+                    primaryKeyMatcher.addOptionalValue("v" + random.nextInt(5));
+                }
+                pattern.setMatcher(primaryKeyMatcher);
+            }
+            patterns.add(pattern);
+        }
+        PatternDispatchIndex dispatchIndex = new PatternDispatchIndex(patterns);
+        assertEquals(fields.length, dispatchIndex.getIndexedFieldNum());
+        for(int n = 0; n < 1000; ++n){
+            Context context = new Context();
+            for(String field : fields){
+                if(random.nextInt(4) != 0){
+                    context.getCtx_fields().put(field, "v" + random.nextInt(6));
+                }
+            }
+            List<Pattern> expected = new ArrayList<>();
+            for(Pattern pattern : patterns){
+                if(pattern.getMatcher() == null || pattern.getMatcher().match(context)){
+                    expected.add(pattern);
+                }
+            }
+            assertEquals(expected, dispatchIndex.match(context));
+        }
+    }
+
+    @Test
+    void parallelMatchTest(){
+        Mfunc mfunc = (funcName, context, extraArgumentList) -> context.getString("speed").endsWith(funcName);
+        List<Pattern> patterns = new ArrayList<>();
+        for(int i = 0; i < 50; ++i){
+            Pattern pattern = new Pattern();
+            pattern.setPatternId("pat_" + i);
+            pattern.setFreshnessType(FreshnessType.time);
+            pattern.setFreshnessValue("1000");
+            if(i % 5 == 0){
+                PrimaryKeyMatcher primaryKeyMatcher = new PrimaryKeyMatcher("status");
+                primaryKeyMatcher.addOptionalValue("1");
+                pattern.setMatcher(primaryKeyMatcher);
+            }
+            else if(i % 5 != 1){
+                pattern.setMatcher(new FunctionMatcher(String.valueOf(i % 10), mfunc));
+            }
+            patterns.add(pattern);
+        }
+        PatternDispatchIndex dispatchIndex = new PatternDispatchIndex(patterns);
+        ExecutorService matcherPool = Executors.newFixedThreadPool(3);
+        try{
+            Random random = new Random(10);
+            for(int n = 0; n < 1000; ++n){
+                Context context = new Context();
+                context.getCtx_fields().put("status", String.valueOf(random.nextInt(2)));
+                context.getCtx_fields().put("speed", String.valueOf(random.nextInt(100)));
+                assertEquals(dispatchIndex.match(context), dispatchIndex.match(context, matcherPool, 3));
+            }
+        }
+        finally {
+            matcherPool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.CC.Patterns.matcher;
+
+import com.CC.Contexts.Context;
+import com.CC.Contexts.ContextView;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FunctionMatcherTest {
+
+    //an Mfunction class following the skeleton, without implementing Mfunc
+    public static class LegacyMfunction {
+        public boolean mfunc(final String funcName, final Map<String, String> ctxFields, final List<String> extraArgumentList) throws Exception {
+            if("status_in".equals(funcName)){
+                return extraArgumentList.contains(ctxFields.get("status"));
+            }
+            throw new Exception("Illegal mfuncName");
+        }
+    }
+
+    //an Mfunction class declaring the typed entry
+    public static class TypedMfunction {
+        public boolean mfunc(final String funcName, final ContextView context, final List<String> extraArgumentList) {
+            return context.getLong("status") > Long.parseLong(extraArgumentList.get(0));
+        }
+    }
+
+    @Test
+    void bindTest() throws Exception {
+        Context context = new Context();
+        context.getCtx_fields().put("status", "1");
+
+        FunctionMatcher legacyMatcher = new FunctionMatcher("status_in", new LegacyMfunction());
+        legacyMatcher.addExtraArg("1");
+        assertTrue(legacyMatcher.match(context));
+        //the legacy entry is adapted to the interface method
+        assertFalse(Mfunc.bind(new LegacyMfunction()).mfunc("status_in", context, List.of("0", "2")));
+
+        Mfunc mfunc = (funcName, ctx, extraArgumentList) -> ctx.getString("status").equals("0");
+        assertSame(mfunc, Mfunc.bind(mfunc));
+        assertFalse(new FunctionMatcher("run", mfunc).match(context));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> new FunctionMatcher("unknown", new LegacyMfunction()).match(context));
+        assertEquals("Illegal mfuncName", e.getCause().getMessage());
+
+        FunctionMatcher typedMatcher = new FunctionMatcher("status_gt", new TypedMfunction());
+        typedMatcher.addExtraArg("0");
+        assertTrue(typedMatcher.match(context));
+    }
+}